@@ -0,0 +1,180 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fixtures shared by the benchmarks. The sample Central Area, No-Fly zones and Restaurants are read from the
+ * resources, and grown with generated No-Fly zones and Orders, always from a fixed seed so that every run measures
+ * the same data.
+ */
+public class BenchmarkFixtures {
+
+    /**
+     * Functional interface for the read methods of the application.
+     *
+     * @param <T>    Type of the de-serialized resource.
+     */
+    @FunctionalInterface
+    private interface ResourceReader<T> {
+        T read(InputStream resource) throws IOException;
+    }
+
+    /**
+     * Starting Coordinates of the Drone, as in DroneControl.
+     */
+    public static final LngLat DRONE_START_COORDINATES = new LngLat(-3.186874, 55.944494);
+
+    /**
+     * Seed of all generated fixtures.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * Bounds of the generated No-Fly zones and points, as {minLng, minLat, maxLng, maxLat}.
+     */
+    private static final double[] AREA = {-3.204, 55.941, -3.182, 55.947};
+
+    /**
+     * Generated No-Fly zones keep at least this distance from the Drone's start and every Restaurant.
+     */
+    private static final double CLEARANCE = 0.0005;
+
+    /**
+     * Reads a resource with one of the read methods of the application.
+     *
+     * @param name      Name of the resource.
+     * @param reader    Method de-serializing the resource.
+     * @param <T>       Type of the de-serialized resource.
+     * @return          De-serialized resource.
+     */
+    private static <T> T readResource(String name, ResourceReader<T> reader) {
+        try (InputStream resource = BenchmarkFixtures.class.getResourceAsStream("/" + name)) {
+            return reader.read(resource);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return    Edges of the sample Central Area.
+     */
+    public static List<LngLat> centralArea() {
+        return readResource("centralArea.json", CentralAreaAccess::readEdgesOfCentralArea);
+    }
+
+    /**
+     * @return    Mapping between the name of every sample Restaurant and the Restaurant.
+     */
+    public static Map<String, Restaurant> restaurants() {
+        return readResource("restaurants.json", Restaurant::readRestaurants);
+    }
+
+    /**
+     * Sample No-Fly zones, grown with small generated zones up to the given number of zones. Generated zones keep
+     * clear of the Drone's start and of every sample Restaurant, so that every Restaurant stays accessible.
+     *
+     * @param zoneCount    Number of No-Fly zones, at least the number of sample zones.
+     * @return             List of lists of edge coordinates of the No-Fly zones.
+     */
+    public static List<List<LngLat>> noFlyZones(int zoneCount) {
+
+        var noFlyZones = new ArrayList<List<LngLat>>(readResource("noFlyZones.json", NoFlyZonesAccess::readNoFlyZones));
+
+        var pointsToAvoid = new ArrayList<LngLat>();
+        pointsToAvoid.add(DRONE_START_COORDINATES);
+        for (Restaurant restaurant : restaurants().values()) {
+            pointsToAvoid.add(restaurant.getLocation());
+        }
+
+        var random = new Random(SEED);
+        while (noFlyZones.size() < zoneCount) {
+            var centre = randomPoint(random);
+            double radius = 0.00005 + random.nextDouble() * 0.00015;
+
+            boolean clear = true;
+            for (LngLat point : pointsToAvoid) {
+                clear &= centre.distanceTo(point) > radius * 1.5 + CLEARANCE;
+            }
+            if (!clear) {
+                continue;
+            }
+
+            int vertices = 3 + random.nextInt(5);
+            var noFlyZone = new ArrayList<LngLat>();
+            for (int i = 0; i < vertices; i++) {
+                double angle = 2 * Math.PI * i / vertices;
+                double distance = radius * (0.5 + random.nextDouble());
+                noFlyZone.add(new LngLat(centre.lng() + distance * Math.cos(angle), centre.lat() + distance * Math.sin(angle)));
+            }
+            noFlyZone.add(noFlyZone.get(0));
+            noFlyZones.add(noFlyZone);
+        }
+        return noFlyZones;
+    }
+
+    /**
+     * @param random    Source of randomness.
+     * @return          Point uniformly distributed over the generated area.
+     */
+    public static LngLat randomPoint(Random random) {
+        return new LngLat(AREA[0] + random.nextDouble() * (AREA[2] - AREA[0]), AREA[1] + random.nextDouble() * (AREA[3] - AREA[1]));
+    }
+
+    /**
+     * @param count    Number of points.
+     * @return         Points uniformly distributed over the generated area.
+     */
+    public static LngLat[] randomPoints(int count) {
+        var random = new Random(SEED);
+        var points = new LngLat[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = randomPoint(random);
+        }
+        return points;
+    }
+
+    /**
+     * Generates Orders for the sample Restaurants, mostly valid but with every kind of invalid Order mixed in.
+     *
+     * @param count    Number of Orders.
+     * @return         List of de-serialized, not yet validated Orders.
+     */
+    public static List<Order> orders(int count) {
+
+        List<Restaurant> restaurants = restaurants().values().stream().toList();
+        String[] expiries = {"04/28", "04/28", "04/28", "12/22", "13/25"};
+
+        var random = new Random(SEED);
+        var orders = new ArrayList<Order>(count);
+        for (int i = 0; i < count; i++) {
+
+            // items mostly come from a single Restaurant, but sometimes from two
+            Menu[] menu = restaurants.get(random.nextInt(restaurants.size())).getMenuItems();
+            Menu[] otherMenu = restaurants.get(random.nextInt(restaurants.size())).getMenuItems();
+            var items = new String[random.nextInt(6)];
+            int price = 100;
+            for (int item = 0; item < items.length; item++) {
+                Menu menuItem = random.nextInt(20) == 0 ? otherMenu[random.nextInt(otherMenu.length)] : menu[random.nextInt(menu.length)];
+                items[item] = random.nextInt(50) == 0 ? "Pizza-Surprise" : menuItem.getName();
+                price += menuItem.getPriceInPence();
+            }
+
+            var order = new Order();
+            order.setOrderNo(random.nextInt(50) == 0 ? "1A2B" : String.format("%08X", i));
+            order.setOrderDate("2023-01-0" + (1 + random.nextInt(7)));
+            order.setCreditCardNumber(random.nextInt(50) == 0 ? "400012341234" : "4000123412341234");
+            order.setCreditCardExpiry(expiries[random.nextInt(expiries.length)]);
+            order.setCvv(random.nextInt(50) == 0 ? "12" : "123");
+            order.setPriceTotalInPence(random.nextInt(50) == 0 ? price + 5 : price);
+            order.setOrderItems(items);
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,71 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the collision and Central Area tests done for every expanded Node, over a fixed batch of moves from
+ * random points, with growing numbers of No-Fly zones.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeometryBenchmark {
+
+    /**
+     * Number of moves tested by every invocation.
+     */
+    private static final int MOVES = 1024;
+
+    @Param({"4", "50", "200", "1000"})
+    public int zones;
+
+    private LngLat[] from;
+    private LngLat[] to;
+    private List<List<LngLat>> noFlyZones;
+    private NoFlyZoneIndex noFlyZoneIndex;
+    private List<LngLat> centralArea;
+
+    @Setup
+    public void setUp() {
+        from = BenchmarkFixtures.randomPoints(MOVES);
+        to = new LngLat[MOVES];
+        Compass[] directions = Compass.values();
+        for (int i = 0; i < MOVES; i++) {
+            to[i] = from[i].nextPosition(directions[i % directions.length]);
+        }
+        noFlyZones = BenchmarkFixtures.noFlyZones(zones);
+        noFlyZoneIndex = new NoFlyZoneIndex(noFlyZones);
+        centralArea = BenchmarkFixtures.centralArea();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public void lineCrossesNoFlyZone(Blackhole blackhole) {
+        for (int i = 0; i < MOVES; i++) {
+            blackhole.consume(LngLat.lineCrossesNoFlyZone(from[i], to[i], noFlyZones));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public void lineCrossesNoFlyZoneIndexed(Blackhole blackhole) {
+        for (int i = 0; i < MOVES; i++) {
+            blackhole.consume(noFlyZoneIndex.lineCrossesNoFlyZone(from[i], to[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public void inCentralArea(Blackhole blackhole) {
+        for (int i = 0; i < MOVES; i++) {
+            blackhole.consume(to[i].inCentralArea(centralArea));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+import uk.ac.ed.inf.Exceptions.RestaurantNotAccessibleException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the path calculation from the Drone's start to each sample Restaurant, with growing numbers of No-Fly
+ * zones. Every search type has its own benchmark, with only the parameters that the search uses, so that no
+ * configuration is measured twice under different names.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public abstract class PathfindingBenchmark {
+
+    /**
+     * Node based search, with every open list implementation.
+     */
+    public static class Nodes extends PathfindingBenchmark {
+
+        @Param({"INDEXED_HEAP", "PRIORITY_QUEUE"})
+        public OpenListType openList;
+
+        @Override
+        protected void configure(PlannerSettings settings) {
+            settings.setSearchType(SearchType.NODES);
+            settings.setOpenListType(openList);
+        }
+    }
+
+    /**
+     * Arena search, with and without symmetry pruning and anytime mode.
+     */
+    public static class Arena extends PathfindingBenchmark {
+
+        @Param({"false", "true"})
+        public boolean symmetryPruning;
+
+        @Param({"false", "true"})
+        public boolean anytime;
+
+        @Override
+        protected void configure(PlannerSettings settings) {
+            settings.setSearchType(SearchType.ARENA);
+            settings.setSymmetryPruning(symmetryPruning);
+            settings.setAnytime(anytime);
+        }
+    }
+
+    /**
+     * Bidirectional search.
+     */
+    public static class Bidirectional extends PathfindingBenchmark {
+
+        @Override
+        protected void configure(PlannerSettings settings) {
+            settings.setSearchType(SearchType.BIDIRECTIONAL);
+        }
+    }
+
+    /**
+     * Visibility graph, with and without anytime mode in the arena search it falls back to. Symmetry pruning of that
+     * search is measured by the Arena benchmark only.
+     */
+    public static class VisibilityGraph extends PathfindingBenchmark {
+
+        @Param({"false", "true"})
+        public boolean anytime;
+
+        @Override
+        protected void configure(PlannerSettings settings) {
+            settings.setSearchType(SearchType.VISIBILITY_GRAPH);
+            settings.setAnytime(anytime);
+        }
+    }
+
+    @Param({"4", "50", "200"})
+    public int zones;
+
+    @Param({"Civerinos Slice", "Sora Lella Vegan Restaurant", "Domino's Pizza - Central", "Sodeberg Pavillion"})
+    public String restaurant;
+
+    private LngLat restaurantLocation;
+    private List<LngLat> centralArea;
+    private NoFlyZoneIndex noFlyZoneIndex;
+    private PlannerSettings settings;
+
+    @Setup
+    public void setUp() {
+        restaurantLocation = BenchmarkFixtures.restaurants().get(restaurant).getLocation();
+        centralArea = BenchmarkFixtures.centralArea();
+        noFlyZoneIndex = new NoFlyZoneIndex(BenchmarkFixtures.noFlyZones(zones));
+        settings = new PlannerSettings();
+        configure(settings);
+    }
+
+    /**
+     * Selects the search of the benchmark and sets its parameters.
+     *
+     * @param settings    Settings of the path calculation.
+     */
+    protected abstract void configure(PlannerSettings settings);
+
+    @Benchmark
+    public List<Node> calculatePathForOrder() throws RestaurantNotAccessibleException {
+        return DroneControl.calculatePathForOrder(restaurantLocation, centralArea, noFlyZoneIndex, settings);
+    }
+}
@@ -0,0 +1,95 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing a day's deliveries and flightpath files, with growing numbers of delivered Orders. The paths are
+ * real routes to the sample Restaurants.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerialisationBenchmark {
+
+    /**
+     * Date used in the names of the written files.
+     */
+    private static final String DATE = "benchmark";
+
+    @Param({"30", "300"})
+    public int orderCount;
+
+    @Param({"true", "false"})
+    public boolean pretty;
+
+    private List<Order> orders;
+    private Map<String, List<Node>> orderPathMap;
+    private PlannerSettings jsonSettings;
+    private PlannerSettings binarySettings;
+
+    @Setup
+    public void setUp() {
+        List<Restaurant> restaurants = BenchmarkFixtures.restaurants().values().stream().toList();
+        var routeCache = new RouteCache();
+        DroneControl.calculateRestaurantRoutes(restaurants, BenchmarkFixtures.centralArea(),
+                new NoFlyZoneIndex(BenchmarkFixtures.noFlyZones(4)), routeCache, new PlannerSettings());
+
+        orders = BenchmarkFixtures.orders(orderCount);
+        orderPathMap = new LinkedHashMap<>();
+        for (int i = 0; i < orderCount; i++) {
+            RouteCache.Route route = routeCache.get(restaurants.get(i % restaurants.size()).getLocation());
+            orderPathMap.put(orders.get(i).getOrderNo(), route.toOrderPath(i));
+        }
+
+        jsonSettings = new PlannerSettings();
+        jsonSettings.setPrettyOutput(pretty);
+        binarySettings = new PlannerSettings();
+        binarySettings.setFlightpathFormat(FlightpathFormat.BINARY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        new File("deliveries-" + DATE + ".json").delete();
+        new File("flightpath-" + DATE + ".json").delete();
+        new File("flightpath-" + DATE + ".bin").delete();
+    }
+
+    @Benchmark
+    public void deliveries() {
+        FileGeneration.toJsonFileOrders(orders, DATE, pretty);
+    }
+
+    @Benchmark
+    public void flightpathJson() throws IOException {
+        writeFlightpath(jsonSettings);
+    }
+
+    @Benchmark
+    public void flightpathBinary() throws IOException {
+        writeFlightpath(binarySettings);
+    }
+
+    /**
+     * Writes the paths of all Orders into the flightpath file, the way they are written while being planned.
+     *
+     * @param settings    Settings choosing the format of the file.
+     * @throws IOException    When the file cannot be written.
+     */
+    private void writeFlightpath(PlannerSettings settings) throws IOException {
+        try (FlightpathWriter writer = FileGeneration.openFlightpath(DATE, settings)) {
+            for (Map.Entry<String, List<Node>> orderPath : orderPathMap.entrySet()) {
+                writer.writeOrderPath(orderPath.getKey(), orderPath.getValue());
+            }
+        }
+    }
+}
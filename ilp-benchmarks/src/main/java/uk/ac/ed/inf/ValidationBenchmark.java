@@ -0,0 +1,50 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the validation of a day's Orders against the sample Restaurants, with growing numbers of Orders and
+ * validation threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int orderCount;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private List<Order> orders;
+    private OrderValidationStage validationStage;
+
+    @Setup
+    public void setUp() {
+        validationStage = new OrderValidationStage(BenchmarkFixtures.restaurants().values().stream().toList(), parallelism);
+    }
+
+    /**
+     * Validation updates the Orders in place, so every invocation gets freshly generated copies of the same Orders
+     * instead of re-validating the ones already validated by the previous invocation.
+     */
+    @Setup(Level.Invocation)
+    public void freshOrders() {
+        orders = BenchmarkFixtures.orders(orderCount);
+    }
+
+    /**
+     * Validates all the Orders once, so the Orders validated per second are the reported score times orderCount.
+     */
+    @Benchmark
+    public List<Order> validateOrders() {
+        return validationStage.validate(orders);
+    }
+}
@@ -0,0 +1,87 @@
+package uk.ac.ed.inf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * File holding a JSON list, optionally inside some fixed JSON before and after it, which elements can be appended to
+ * without rewriting the file. Every append overwrites the end of the list and the fixed JSON after it with the new
+ * elements, followed by the end of the list and the fixed JSON again, so the file is valid JSON after every append.
+ */
+public class AppendableJsonArray implements Closeable {
+
+    /**
+     * File the list is kept in.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * End of the list followed by the fixed JSON after it.
+     */
+    private final byte[] end;
+
+    /**
+     * Whether the list has any elements yet.
+     */
+    private boolean empty = true;
+
+    /**
+     * Creates the file with an empty list, replacing any existing file.
+     *
+     * @param path      File to be created.
+     * @param before    Fixed JSON before the list.
+     * @param after     Fixed JSON after the list.
+     * @throws IOException    When the file cannot be created.
+     */
+    public AppendableJsonArray(Path path, String before, String after) throws IOException {
+        Files.writeString(path, before + "[]" + after, StandardCharsets.UTF_8);
+        this.file = new RandomAccessFile(path.toFile(), "rw");
+        this.end = ("]" + after).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the file with an empty list, replacing any existing file.
+     *
+     * @param path    File to be created.
+     * @throws IOException    When the file cannot be created.
+     */
+    public AppendableJsonArray(Path path) throws IOException {
+        this(path, "", "");
+    }
+
+    /**
+     * Appends the elements of a JSON list to the list in the file.
+     *
+     * @param list    Compact JSON list, like "[1,2]".
+     * @throws IOException    When the file cannot be written to.
+     */
+    public synchronized void appendAll(byte[] list) throws IOException {
+
+        // an empty list has nothing to append
+        if (list.length <= 2) {
+            return;
+        }
+
+        int elementsLength = list.length - 2;
+        var bytes = new byte[(empty ? 0 : 1) + elementsLength + end.length];
+        int position = 0;
+        if (!empty) {
+            bytes[position++] = ',';
+        }
+        System.arraycopy(list, 1, bytes, position, elementsLength);
+        System.arraycopy(end, 0, bytes, position + elementsLength, end.length);
+
+        file.seek(file.length() - end.length);
+        file.write(bytes);
+        empty = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,213 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plans the Drone's deliveries for a whole range of dates in a single run. The Central Area, No-Fly zones and
+ * Restaurants are fetched once, concurrently, and the routes to the Restaurants are calculated once and shared by every date.
+ * Dates are then planned concurrently on a bounded thread pool, each producing the usual files.
+ */
+public class BatchPlanner {
+
+    /**
+     * Timings and results of planning a single date.
+     *
+     * @param date             Date that was planned.
+     * @param orders           Number of Orders placed for the date.
+     * @param delivered        Number of Orders delivered.
+     * @param moves            Number of moves in the date's flightpath.
+     * @param fetchMillis      Milliseconds spent fetching and validating the Orders.
+     * @param planMillis       Milliseconds spent calculating the Drone's path, including writing the flightpath as it is calculated.
+     * @param writeMillis      Milliseconds spent writing the deliveries and drone files.
+     */
+    public record DateSummary(String date, int orders, int delivered, int moves, long fetchMillis, long planMillis, long writeMillis) {}
+
+    /**
+     * Loader of the data from the REST-server.
+     */
+    private final RestDataLoader loader;
+
+    /**
+     * Settings of the path calculation, shared by every date.
+     */
+    private final PlannerSettings settings;
+
+    /**
+     * Mapping between the name of every participating Restaurant and the Restaurant.
+     */
+    private final Map<String, Restaurant> restaurants;
+
+    /**
+     * Edges of the Central Area.
+     */
+    private final List<LngLat> centralArea;
+
+    /**
+     * Compiled index over the No-Fly zones.
+     */
+    private final NoFlyZoneIndex noFlyZoneIndex;
+
+    /**
+     * Stage validating the Orders of every date, counting their outcomes.
+     */
+    private final OrderValidationStage validationStage;
+
+    /**
+     * Routes to and from the Restaurants, shared by every date.
+     */
+    private final RouteCache routeCache;
+
+    /**
+     * Fetches the Central Area, No-Fly zones and Restaurants from the REST-server, and calculates the routes to all
+     * the Restaurants.
+     *
+     * @param baseURL     Base address of the REST-server, like: "https://website.net/"
+     * @param settings    Settings of the path calculation.
+     */
+    public BatchPlanner(String baseURL, PlannerSettings settings) {
+        this.loader = RestDataLoader.forSettings(baseURL, settings);
+        this.settings = settings;
+
+        CompletableFuture<List<LngLat>> centralAreaFuture = loader.loadCentralArea();
+        CompletableFuture<List<List<LngLat>>> noFlyZonesFuture = loader.loadNoFlyZones();
+        CompletableFuture<Map<String, Restaurant>> restaurantsFuture = loader.loadRestaurants();
+
+        this.centralArea = centralAreaFuture.join();
+        this.noFlyZoneIndex = new NoFlyZoneIndex(noFlyZonesFuture.join());
+        this.routeCache = DroneControl.createRouteCache(centralArea, noFlyZonesFuture.join(), settings);
+        this.restaurants = restaurantsFuture.join();
+        // the menus are indexed once, and the index is shared by the validation of every date
+        this.validationStage = new OrderValidationStage(new MenuIndex(restaurants.values().stream().toList()), settings.getValidationParallelism(), settings.getMetrics());
+
+        DroneControl.calculateRestaurantRoutes(restaurants.values().stream().toList(), centralArea, noFlyZoneIndex, routeCache, settings);
+    }
+
+    /**
+     * Plans every date between two dates (both inclusive), writing the deliveries, flightpath and drone files for each
+     * of them. Dates that fail to be planned are reported and left out of the returned summaries.
+     *
+     * @param startDate    First date to plan.
+     * @param endDate      Last date to plan.
+     * @return             Summaries of the planned dates, in date order.
+     * @throws IllegalStateException    When the calling thread is interrupted while the dates are being planned.
+     */
+    public List<DateSummary> planDates(LocalDate startDate, LocalDate endDate) {
+
+        var dates = new ArrayList<String>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            dates.add(date.toString());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(settings.getDateParallelism(), dates.size())));
+        var results = new ArrayList<Future<DateSummary>>();
+        try {
+            for (String date : dates) {
+                results.add(executor.submit(() -> planDate(date)));
+            }
+
+            var summaries = new ArrayList<DateSummary>();
+            for (int i = 0; i < dates.size(); i++) {
+                try {
+                    summaries.add(results.get(i).get());
+                } catch (ExecutionException e) {
+                    System.out.println("Planning for " + dates.get(i) + " failed. " + e.getCause());
+                }
+            }
+            return summaries;
+
+        } catch (InterruptedException e) {
+            // the dates not yet started are cancelled, and the ones being planned are let finish, so that no files are
+            // written after the batch has failed; an empty result would look like a range with nothing to plan
+            results.forEach(result -> result.cancel(false));
+            awaitTermination(executor);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Planning of the dates was interrupted.", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Shuts an executor down and waits for its running tasks to finish, even when interrupted while waiting.
+     *
+     * @param executor    Executor planning the dates.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        executor.shutdown();
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ignored) {
+                // the interrupt is restored by the caller
+            }
+        }
+    }
+
+    /**
+     * Fetches, validates and plans the Orders for a single date, and writes its files.
+     *
+     * @param date     String of a date.
+     * @return         Summary of the planned date.
+     */
+    private DateSummary planDate(String date) {
+
+        long start = System.currentTimeMillis();
+        long fetchStart = System.nanoTime();
+        List<Order> todaysValidatedOrders = loader.loadOrdersWith(date, CompletableFuture.completedFuture(validationStage)).join();
+        settings.getMetrics().recordFetch(System.nanoTime() - fetchStart);
+        long fetched = System.currentTimeMillis();
+
+        if (settings.getFleetSize() > 1) {
+            List<FleetPlanner.DronePlan> dronePlans = FleetPlanner.planFleet(todaysValidatedOrders, restaurants, centralArea, noFlyZoneIndex, routeCache, settings, date);
+            long planned = System.currentTimeMillis();
+
+            FileGeneration.toFleetDayFiles(todaysValidatedOrders, dronePlans, date, settings);
+            long written = System.currentTimeMillis();
+
+            int delivered = dronePlans.stream().mapToInt(plan -> plan.orderPathMap().size()).sum();
+            int moves = dronePlans.stream().mapToInt(FleetPlanner.DronePlan::moves).sum();
+            return new DateSummary(date, todaysValidatedOrders.size(), delivered, moves, fetched - start, planned - fetched, written - planned);
+        }
+
+        // the flightpath is written while the day is being planned
+        Map<String, List<Node>> orderPathMap;
+        try (FlightpathWriter flightpath = FileGeneration.openFlightpath(date, settings)) {
+            orderPathMap = DroneControl.calculateDronesPath(todaysValidatedOrders, restaurants, centralArea, noFlyZoneIndex, routeCache, settings, flightpath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long planned = System.currentTimeMillis();
+
+        var pathCoordinates = new ArrayList<LngLat>();
+        int moves = 0;
+        for (List<Node> nodes : orderPathMap.values()) {
+            for (Node node : nodes) {
+                pathCoordinates.add(node.getCoordinate());
+            }
+            moves += nodes.size() - 1;
+        }
+
+        FileGeneration.toDayFiles(todaysValidatedOrders, pathCoordinates, date, settings);
+        long written = System.currentTimeMillis();
+
+        return new DateSummary(date, todaysValidatedOrders.size(), orderPathMap.size(), moves, fetched - start, planned - fetched, written - planned);
+    }
+
+    /**
+     * @return    Stage that has validated the Orders of every planned date.
+     */
+    public OrderValidationStage getValidationStage() {
+        return validationStage;
+    }
+}
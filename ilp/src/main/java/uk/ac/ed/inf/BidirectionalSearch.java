@@ -0,0 +1,214 @@
+package uk.ac.ed.inf;
+
+import uk.ac.ed.inf.Exceptions.RestaurantNotAccessibleException;
+
+import java.util.List;
+
+/**
+ * Path calculation that grows one search from the Drone's start and another from the Restaurant, and joins them
+ * where they meet. Useful when the Restaurant is boxed in by No-Fly zones, as the search from the Restaurant finds
+ * the way out of them without the search from the start flooding the area around them.
+ * <p>
+ * The Drone flies the whole path forward, so the part found from the Restaurant is not taken as it is. Starting at
+ * the meeting Node of the search from the start, the moves of the other search are replayed in the opposite
+ * directions, and every replayed move is checked against the No-Fly zones and the Central Area again. A meeting whose
+ * replay fails is ignored, and the searches carry on.
+ * <p>
+ * Both searches are kept in SearchArenas, pooled per thread like the one of the search from the start alone.
+ *
+ * @see uk.ac.ed.inf.SearchArena
+ */
+public class BidirectionalSearch {
+
+    /**
+     * Searches of every thread, created on their first use.
+     */
+    private static final ThreadLocal<BidirectionalSearch> SEARCHES = ThreadLocal.withInitial(BidirectionalSearch::new);
+
+    /**
+     * Search grown from the Drone's start.
+     */
+    private final SearchArena forward = new SearchArena();
+
+    /**
+     * Search grown from the Restaurant.
+     */
+    private final SearchArena backward = new SearchArena();
+
+    /**
+     * Largest number of Nodes in both open lists together during the last search.
+     */
+    private int peakOpenListSize;
+
+    /**
+     * @return    Search of the current thread.
+     */
+    public static BidirectionalSearch forCurrentThread() {
+        return SEARCHES.get();
+    }
+
+    /**
+     * Finds the path between two coordinates, avoiding the No-Fly zones and not coming back to the Central Area once
+     * it has been left. The search is recorded into the given metrics.
+     *
+     * @param startCoor          Coordinates the Drone starts at.
+     * @param endCoor            Coordinates of the Restaurant.
+     * @param centralArea        List of edges of the Central Area.
+     * @param noFlyZones         Compiled index over the zones that the Drone cannot enter.
+     * @param expansionBudget    Number of Nodes that may be expanded by both sides together before the Restaurant is deemed inaccessible.
+     * @param metrics            Registry the search is recorded into.
+     * @return                   List of Nodes defining the path between the two coordinates, including the start but not the end.
+     * @throws RestaurantNotAccessibleException When the search runs out of its expansion budget, or either side runs out of Nodes to expand.
+     */
+    public List<Node> findPath(LngLat startCoor, LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, long expansionBudget, PlannerMetrics metrics) throws RestaurantNotAccessibleException {
+
+        long startNanos = System.nanoTime();
+        boolean found = false;
+        try {
+            List<Node> path = search(startCoor, endCoor, centralArea, noFlyZones, expansionBudget);
+            found = true;
+            return path;
+        } finally {
+            metrics.recordPathSearch(forward.getNodesExpanded() + backward.getNodesExpanded(),
+                    forward.getNoFlySegmentTests() + backward.getNoFlySegmentTests(),
+                    peakOpenListSize, System.nanoTime() - startNanos, found);
+        }
+    }
+
+    /**
+     * Runs the search of findPath. The side which has expanded fewer Nodes is expanded next, so that a side stuck in
+     * a pocket of No-Fly zones does not starve the other one, and every new Node is looked up in the closed set of
+     * the other side.
+     *
+     * @see uk.ac.ed.inf.BidirectionalSearch#findPath(LngLat, LngLat, List, NoFlyZoneIndex, long, PlannerMetrics)
+     */
+    private List<Node> search(LngLat startCoor, LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, long expansionBudget) throws RestaurantNotAccessibleException {
+
+        forward.reset();
+        backward.reset();
+        peakOpenListSize = 0;
+
+        // like in the search from the start alone, the starting Node is not considered to be in the Central Area
+        int start = forward.addNode(startCoor.lng(), startCoor.lat(), startCoor.distanceTo(endCoor), -1, -1, false);
+        forward.closedSetAdd(start);
+        forward.heapAdd(start);
+
+        int restaurant = backward.addNode(endCoor.lng(), endCoor.lat(), endCoor.distanceTo(startCoor), -1, -1, endCoor.inCentralArea(centralArea));
+        backward.closedSetAdd(restaurant);
+        backward.heapAdd(restaurant);
+
+        while (forward.getHeapSize() > 0 && backward.getHeapSize() > 0) {
+
+            // if both sides together have used up the budget, deem Restaurant as inaccessible and move on
+            if (forward.getNodesExpanded() + backward.getNodesExpanded() >= expansionBudget) {
+                throw new RestaurantNotAccessibleException("Restaurant not accessible.");
+            }
+
+            if (forward.getNodesExpanded() <= backward.getNodesExpanded()) {
+                int current = forward.peek();
+                if (LngLat.closeTo(forward.getLng(current), forward.getLat(current), endCoor.lng(), endCoor.lat())) {
+                    return forward.buildPath(current);
+                }
+
+                int firstChild = forward.getSize();
+                // starting node does not need to be verified, like in the search from the start alone
+                forward.expand(current, current != start, false, endCoor, startCoor, centralArea, noFlyZones);
+                forward.heapRemove(current);
+
+                for (int child = firstChild; child < forward.getSize(); child++) {
+                    int meeting = backward.findNodeCloseTo(forward.getLng(child), forward.getLat(child));
+                    if (meeting >= 0 && replay(child, meeting, endCoor, centralArea, noFlyZones, null)) {
+                        return join(child, meeting, startCoor, endCoor, centralArea, noFlyZones);
+                    }
+                }
+            } else {
+                int current = backward.peek();
+                int firstChild = backward.getSize();
+                backward.expand(current, true, true, startCoor, endCoor, centralArea, noFlyZones);
+                backward.heapRemove(current);
+
+                for (int child = firstChild; child < backward.getSize(); child++) {
+                    int meeting = forward.findNodeCloseTo(backward.getLng(child), backward.getLat(child));
+                    if (meeting >= 0 && replay(meeting, child, endCoor, centralArea, noFlyZones, null)) {
+                        return join(meeting, child, startCoor, endCoor, centralArea, noFlyZones);
+                    }
+                }
+            }
+
+            peakOpenListSize = Math.max(peakOpenListSize, forward.getHeapSize() + backward.getHeapSize());
+        }
+
+        // no more Nodes to expand on either side means there is no path to the Restaurant
+        throw new RestaurantNotAccessibleException("Restaurant not accessible.");
+    }
+
+    /**
+     * Creates the Nodes of the path through a meeting of the two searches, whose replay has succeeded.
+     *
+     * @param forwardNode     Position of the meeting Node in the search from the start.
+     * @param backwardNode    Position of the meeting Node in the search from the Restaurant.
+     * @param startCoor       Coordinates the Drone starts at.
+     * @param endCoor         Coordinates of the Restaurant.
+     * @param centralArea     List of edges of the Central Area.
+     * @param noFlyZones      Compiled index over the zones that the Drone cannot enter.
+     * @return                List of Nodes from the start to the first replayed Node close to the Restaurant.
+     */
+    private List<Node> join(int forwardNode, int backwardNode, LngLat startCoor, LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones) {
+
+        List<Node> path = forward.buildPath(forwardNode);
+        int firstReplayed = path.size();
+        replay(forwardNode, backwardNode, endCoor, centralArea, noFlyZones, path);
+
+        // the replayed Nodes are weighted like the Nodes of the search from the start
+        for (Node node : path.subList(firstReplayed, path.size())) {
+            node.setWeight(1.6 * node.getCoordinate().distanceTo(endCoor) - node.getCoordinate().distanceTo(startCoor));
+        }
+        return path;
+    }
+
+    /**
+     * Replays the moves of the search from the Restaurant, from a meeting Node of the search from the start, in the
+     * directions opposite to the ones they were found in. The replay ends at the first Node close to the Restaurant.
+     *
+     * @param forwardNode     Position of the meeting Node in the search from the start.
+     * @param backwardNode    Position of the meeting Node in the search from the Restaurant.
+     * @param endCoor         Coordinates of the Restaurant.
+     * @param centralArea     List of edges of the Central Area.
+     * @param noFlyZones      Compiled index over the zones that the Drone cannot enter.
+     * @param path            List the replayed Nodes are added to, <code>null</code> to only check the replay.
+     * @return                <code>true</code> if every replayed move is valid, and the replay gets close to the Restaurant.
+     */
+    private boolean replay(int forwardNode, int backwardNode, LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, List<Node> path) {
+
+        double lng = forward.getLng(forwardNode);
+        double lat = forward.getLat(forwardNode);
+        boolean inCentralArea = forward.getInCentralArea(forwardNode);
+
+        for (int i = backwardNode; !LngLat.closeTo(lng, lat, endCoor.lng(), endCoor.lat()); i = backward.getParent(i)) {
+
+            // the Restaurant was reached without getting close to it
+            if (backward.getParent(i) < 0) {
+                return false;
+            }
+
+            Compass direction = Compass.getOpposite(backward.getDirection(i));
+            double nextLng = lng + SearchArena.getLngOffset(direction);
+            double nextLat = lat + SearchArena.getLatOffset(direction);
+            boolean nextInCentralArea = LngLat.inArea(nextLng, nextLat, centralArea);
+
+            if (noFlyZones.lineCrossesNoFlyZone(lng, lat, nextLng, nextLat)
+                    || noFlyZones.pointInsideNoFlyZone(nextLng, nextLat)
+                    || nextInCentralArea && !inCentralArea) {
+                return false;
+            }
+
+            if (path != null) {
+                path.add(new Node(new LngLat(nextLng, nextLat), 0.0, direction, 0, nextInCentralArea));
+            }
+            lng = nextLng;
+            lat = nextLat;
+            inCentralArea = nextInCentralArea;
+        }
+        return true;
+    }
+}
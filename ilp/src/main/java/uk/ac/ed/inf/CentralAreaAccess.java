@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +19,11 @@ public class CentralAreaAccess {
      */
     private static CentralAreaAccess instance;
 
+    /**
+     * Object mapper shared by all de-serializations of the Central Area.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * List of LngLat objects representing edges of the Central Area.
      */
@@ -39,20 +45,32 @@ public class CentralAreaAccess {
      * @param url   URL of the REST-service to be accessed.
      */
     private CentralAreaAccess( String url ) {
-        try {
-            var url1 = new URL(url + "centralArea");
-            CentralAreaProperties[] response = new ObjectMapper().readValue(url1, CentralAreaProperties[].class);
-
-            edgesOfCentralArea = new ArrayList<>();
-            for (CentralAreaProperties centralAreaProperties : response) {
-                edgesOfCentralArea.add(new LngLat(centralAreaProperties.longitude, centralAreaProperties.latitude));
-            }
+        try (InputStream response = new URL(url + "centralArea").openStream()) {
+            edgesOfCentralArea = readEdgesOfCentralArea(response);
         } catch (IOException e) {
             // in case a URL is malformed or the server under a given address has not been found it will return empty list
             edgesOfCentralArea = new ArrayList<LngLat>();
         }
     }
 
+    /**
+     * De-serializes the definition of the Central Area, as returned by the REST-service, into a List of its edges.
+     *
+     * @param response      JSON response of the REST-service.
+     * @return              List of LngLat objects representing edges of the Central Area.
+     * @throws IOException  When the response cannot be read or is not a valid definition of the Central Area.
+     */
+    public static List<LngLat> readEdgesOfCentralArea(InputStream response) throws IOException {
+
+        CentralAreaProperties[] properties = MAPPER.readValue(response, CentralAreaProperties[].class);
+
+        var edges = new ArrayList<LngLat>();
+        for (CentralAreaProperties centralAreaProperties : properties) {
+            edges.add(new LngLat(centralAreaProperties.longitude, centralAreaProperties.latitude));
+        }
+        return edges;
+    }
+
     ////////////////////////
     ///      GETTERS     ///
     ////////////////////////
@@ -63,7 +81,7 @@ public class CentralAreaAccess {
      * @param url   URL object. Address of the REST-service, defining the CentralArea edges.
      * @return      Instance of the singleton class.
      */
-    public static CentralAreaAccess getInstance(String url) {
+    public static synchronized CentralAreaAccess getInstance(String url) {
         if (instance == null) {
             instance = new CentralAreaAccess(url);
         }
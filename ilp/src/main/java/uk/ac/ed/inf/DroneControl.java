@@ -2,7 +2,14 @@ package uk.ac.ed.inf;
 
 import uk.ac.ed.inf.Exceptions.RestaurantNotAccessibleException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Class that Calculates the path Drone is supposed to for a given list of Orders.
@@ -17,73 +24,161 @@ public class DroneControl {
     /**
      * Maximum number of moves a Drone can make before running out of battery.
      */
-    private static final int DRONE_MOVES_LIMIT= 2000;
+    static final int DRONE_MOVES_LIMIT= 2000;
 
     /**
-     * System time at the start of path calculation.
+     * Calculates the path for all Valid Orders in a Given Order List.
+     *
+     * @param todaysOrders       List of Validated Orders.
+     * @param restaurants        List of all available Restaurants.
+     * @param centralArea        List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZones         List of lists of edge coordinates defining zones that the Drone cannot enter.
+     * @return                   Map between the Order ID number and a Drone's path for that Order.
      */
-    private static long timeAtStartOfCalculation = 0;
+    public static Map<String, List<Node>> calculateDronesPath(List<Order> todaysOrders, Map<String, Restaurant> restaurants, List<LngLat> centralArea, List<List<LngLat>> noFlyZones) {
+        return calculateDronesPath(todaysOrders, restaurants, centralArea, noFlyZones, new PlannerSettings());
+    }
 
     /**
-     * Calculates the path for all Valid Orders in a Given Order List.
+     * Calculates the path for all Valid Orders in a Given Order List, with the given planner settings.
      *
      * @param todaysOrders       List of Validated Orders.
      * @param restaurants        List of all available Restaurants.
      * @param centralArea        List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
      * @param noFlyZones         List of lists of edge coordinates defining zones that the Drone cannot enter.
+     * @param settings           Settings selecting the implementation of the path calculation.
      * @return                   Map between the Order ID number and a Drone's path for that Order.
      */
-    public static Map<String, List<Node>> calculateDronesPath(List<Order> todaysOrders, Map<String, Restaurant> restaurants, List<LngLat> centralArea, List<List<LngLat>> noFlyZones) {
+    public static Map<String, List<Node>> calculateDronesPath(List<Order> todaysOrders, Map<String, Restaurant> restaurants, List<LngLat> centralArea, List<List<LngLat>> noFlyZones, PlannerSettings settings) {
+        return calculateDronesPath(todaysOrders, restaurants, centralArea, new NoFlyZoneIndex(noFlyZones), createRouteCache(centralArea, noFlyZones, settings), settings);
+    }
 
-        // Arranges the orders by the closest restaurants
-        var orderedOrders = new ArrayList<Order>();
-        List<String> orderedRestaurants = sortRestaurantsByPathLength(restaurants.values().stream().toList(), centralArea, noFlyZones);
+    /**
+     * Creates the route cache for a planning run. When the settings name a route cache file, the cache is kept in
+     * that file, so the routes calculated over the same geometry by earlier runs are reused.
+     *
+     * @param centralArea        List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZones         List of lists of edge coordinates defining zones that the Drone cannot enter.
+     * @param settings           Settings naming the route cache file, and selecting the implementation of the path calculation.
+     * @return                   Route cache, empty unless routes over the same geometry were kept in the file.
+     */
+    public static RouteCache createRouteCache(List<LngLat> centralArea, List<List<LngLat>> noFlyZones, PlannerSettings settings) {
 
-        // Some Orders will have the Restaurant name set to null, but that's okay since they must be invalid if that is the case
-        for(String restaurantName: orderedRestaurants) {
-            orderedOrders.addAll(todaysOrders.stream().filter(order -> restaurantName.equals(order.getRestaurantName())).toList());
+        if (settings.getRouteCacheFile() == null) {
+            return new RouteCache();
+        }
+        // routes found by different searches differ, so the search is part of the key of the routes, and so is the
+        // budget of anytime searches, which keep improving their routes for as long as it lasts; the cache keys the
+        // inaccessible Restaurants by the budget of every search
+        String variant = settings.getSearchType() + (settings.isSymmetryPruning() ? "+SYMMETRY_PRUNING" : "")
+                + (settings.isAnytime() ? "+ANYTIME_" + settings.getExpansionBudget() : "");
+        return new PersistentRouteCache(Path.of(settings.getRouteCacheFile()), DRONE_START_COORDINATES, centralArea, noFlyZones, variant, settings.getExpansionBudget());
+    }
+
+    /**
+     * Calculates the path for all Valid Orders in a Given Order List, reusing an already compiled No-Fly zone index
+     * and any routes already in the given route cache.
+     *
+     * @param todaysOrders       List of Validated Orders.
+     * @param restaurants        List of all available Restaurants.
+     * @param centralArea        List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZoneIndex     Compiled index over the zones that the Drone cannot enter.
+     * @param routeCache         Cache of the routes to and from Restaurants, missing routes are calculated and put into it.
+     * @param settings           Settings selecting the implementation of the path calculation, and the metrics it is recorded into.
+     * @return                   Map between the Order ID number and a Drone's path for that Order.
+     */
+    public static Map<String, List<Node>> calculateDronesPath(List<Order> todaysOrders, Map<String, Restaurant> restaurants, List<LngLat> centralArea, NoFlyZoneIndex noFlyZoneIndex, RouteCache routeCache, PlannerSettings settings) {
+        return calculateDronesPath(todaysOrders, restaurants, centralArea, noFlyZoneIndex, routeCache, settings, null);
+    }
+
+    /**
+     * Calculates the path for all Valid Orders in a Given Order List, writing the path of every Order into the
+     * flightpath as soon as it has been assembled, instead of after the whole day has been planned.
+     *
+     * @param todaysOrders       List of Validated Orders.
+     * @param restaurants        List of all available Restaurants.
+     * @param centralArea        List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZoneIndex     Compiled index over the zones that the Drone cannot enter.
+     * @param routeCache         Cache of the routes to and from Restaurants, missing routes are calculated and put into it.
+     * @param settings           Settings selecting the implementation of the path calculation, and the metrics it is recorded into.
+     * @param flightpath         Writer of the flightpath file, <code>null</code> to only return the paths.
+     * @return                   Map between the Order ID number and a Drone's path for that Order.
+     * @throws UncheckedIOException When the flightpath cannot be written to.
+     */
+    public static Map<String, List<Node>> calculateDronesPath(List<Order> todaysOrders, Map<String, Restaurant> restaurants, List<LngLat> centralArea, NoFlyZoneIndex noFlyZoneIndex, RouteCache routeCache, PlannerSettings settings, FlightpathWriter flightpath) {
+
+        var orderedOrders = new ArrayList<Order>();
+        // the move budget scheduler only hands over the Orders that fit within the moves limit
+        boolean packedWithinLimit = settings.getOrderScheduling() == OrderScheduling.MOVE_BUDGET;
+
+        if (packedWithinLimit) {
+            calculateRestaurantRoutes(restaurants.values().stream().toList(), centralArea, noFlyZoneIndex, routeCache, settings);
+            orderedOrders.addAll(MoveBudgetScheduler.schedule(todaysOrders, restaurants, routeCache, DRONE_MOVES_LIMIT));
+        } else {
+            // Arranges the orders by the closest restaurants, and calculates the route to each of them once
+            List<String> orderedRestaurants = sortRestaurantsByPathLength(restaurants.values().stream().toList(), centralArea, noFlyZoneIndex, routeCache, settings);
+
+            // Some Orders will have the Restaurant name set to null, but that's okay since they must be invalid if that is the case
+            for(String restaurantName: orderedRestaurants) {
+                orderedOrders.addAll(todaysOrders.stream().filter(order -> restaurantName.equals(order.getRestaurantName())).toList());
+            }
         }
 
         // LinkedHashMap to maintain the insertion order (necessary as List of orders is ordered by Restaurant name)
         var pathMap = new LinkedHashMap<String, List<Node>>();
 
-        // starts the timer that then gets put into nodes
+        // moves are counted like Route.moves() for the metrics, while the ranking baseline keeps breaking on the number
+        // of Nodes, as it always has
         int movesUsed = 0;
-        timeAtStartOfCalculation = System.currentTimeMillis();
+        int nodesUsed = 0;
+        // starts the timer that then gets put into nodes
+        long writeNanos = 0;
+        long timeAtStartOfCalculation = System.currentTimeMillis();
 
         // Main loop for Path calculation
         for(Order order: orderedOrders){
-            if(movesUsed > DRONE_MOVES_LIMIT){
+            if(!packedWithinLimit && nodesUsed > DRONE_MOVES_LIMIT){
                 break;
             }
 
             if(order.getOrderOutcome() == OrderOutcome.ValidButNotDelivered){
 
+                long orderStartNanos = System.nanoTime();
                 LngLat restaurantLocation = restaurants.get(order.getRestaurantName()).getLocation();
+                RouteCache.Route route = routeCache.get(restaurantLocation);
 
-                try {
-                    List<Node> pathTo = calculatePathForOrder(restaurantLocation, centralArea, noFlyZones);
-                    // since drone starts at starting point AT, and it always returns the same way, it will always end up exactly back at AT
-                    List<Node> pathFrom = backtrackPath(pathTo);
-
-                    // Assembling the Full path for the order
-                    var orderPath = new ArrayList<Node>();
-
-                    // HOVER operation add to path calculation
-                    orderPath.addAll(pathTo);
-                    orderPath.addAll(pathFrom);
-
-                    order.setOrderOutcome(OrderOutcome.Delivered);
-
-                    movesUsed += orderPath.size();
-                    pathMap.put(order.getOrderNo(), orderPath);
+                // notice that if a Restaurant was inaccessible it would not have been returned in
+                // the list from "orderRestaurantByPathLength" method, hence there should always be a route here
+                if (route == null) {
+                    continue;
+                }
 
-                } catch (RestaurantNotAccessibleException ignored) {
-                    // notice that if a Restaurant was inaccessible it would not have been returned in
-                    // the list from "orderRestaurantByPathLength" method, hence it should never be thrown here
+                // Assembling the Full path for the order, since drone starts at starting point AT, and it always
+                // returns the same way, it will always end up exactly back at AT
+                List<Node> orderPath = route.toOrderPath(System.currentTimeMillis() - timeAtStartOfCalculation);
+
+                order.setOrderOutcome(OrderOutcome.Delivered);
+
+                movesUsed += route.moves();
+                nodesUsed += orderPath.size();
+                pathMap.put(order.getOrderNo(), orderPath);
+                settings.getMetrics().recordOrderPlanning(System.nanoTime() - orderStartNanos);
+
+                if (flightpath != null) {
+                    long writeStartNanos = System.nanoTime();
+                    try {
+                        flightpath.writeOrderPath(order.getOrderNo(), orderPath);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    writeNanos += System.nanoTime() - writeStartNanos;
                 }
             }
         }
+        settings.getMetrics().recordPlanningRun(pathMap.size(), movesUsed, DRONE_MOVES_LIMIT);
+        if (flightpath != null) {
+            settings.getMetrics().recordWrite(writeNanos);
+        }
         return pathMap;
     }
 
@@ -92,79 +187,134 @@ public class DroneControl {
      *
      * @param endCoor        End point for which we need to calculate the path to.
      * @param centralArea    List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
-     * @param noFlyZones     List of lists of edge coordinates defining zones that the Drone cannot enter.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     * @param settings       Settings selecting the implementation of the search, and the metrics the search is recorded into.
+     * @return               List of Node objects defining the path between DRONE_START_COORDINATES and a given location.
+     *                       Ticks of the Nodes are left at 0, they are stamped once the path is assembled for an Order.
+     * @throws RestaurantNotAccessibleException When the algorithm runs out of its expansion budget before being able to find a path to a Restaurant.
+     */
+    static List<Node> calculatePathForOrder(LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, PlannerSettings settings) throws RestaurantNotAccessibleException {
+
+        PlannerMetrics metrics = settings.getMetrics();
+        switch (settings.getSearchType()) {
+            case NODES -> {
+                return calculatePathWithNodes(endCoor, centralArea, noFlyZones, settings);
+            }
+            case BIDIRECTIONAL -> {
+                return BidirectionalSearch.forCurrentThread().findPath(DRONE_START_COORDINATES, endCoor, centralArea, noFlyZones, settings.getExpansionBudget(), metrics);
+            }
+            case VISIBILITY_GRAPH -> {
+                List<Node> path = noFlyZones.getVisibilityGraph().findPath(DRONE_START_COORDINATES, endCoor, centralArea, noFlyZones, metrics);
+                if (path != null) {
+                    return path;
+                }
+                // the moves could not follow the shortest polyline, so the lattice search has to find the path
+                return SearchArena.forCurrentThread().findPath(DRONE_START_COORDINATES, endCoor, centralArea, noFlyZones, settings.getExpansionBudget(), settings.isSymmetryPruning(), settings.isAnytime(), metrics);
+            }
+            default -> {
+                return SearchArena.forCurrentThread().findPath(DRONE_START_COORDINATES, endCoor, centralArea, noFlyZones, settings.getExpansionBudget(), settings.isSymmetryPruning(), settings.isAnytime(), metrics);
+            }
+        }
+    }
+
+    /**
+     * Calculates the path between DRONE_START_COORDINATES and a given location, creating a Node object for every
+     * expanded Node. Kept as the reference for SearchArena, which finds the same paths.
+     *
+     * @param endCoor        End point for which we need to calculate the path to.
+     * @param centralArea    List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     * @param settings       Settings selecting the implementation of the open list, and the metrics the search is recorded into.
      * @return               List of Node objects defining the path between DRONE_START_COORDINATES and a given location.
-     * @throws RestaurantNotAccessibleException When the algorithm runs out of time before being able to find a path to a Restaurant.
+     * @throws RestaurantNotAccessibleException When the algorithm runs out of its expansion budget before being able to find a path to a Restaurant.
      */
-    private static List<Node> calculatePathForOrder(LngLat endCoor, List<LngLat> centralArea, List<List<LngLat>> noFlyZones) throws RestaurantNotAccessibleException {
+    private static List<Node> calculatePathWithNodes(LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, PlannerSettings settings) throws RestaurantNotAccessibleException {
+
+        // the work done is counted locally, and recorded into the metrics once the search is over
+        long startNanos = System.nanoTime();
+        long nodesExpanded = 0;
+        long noFlySegmentTests = 0;
+        int peakOpenListSize = 0;
+        boolean found = false;
 
-        var openList = new PriorityQueue<Node>();
+        OpenList openList = settings.getOpenListType().create();
 
-        // Mapping between the Node and edges to other nodes
-        var edges = new HashMap<Node, List<Node>>();
         // Mapping from a child Node to its parent
         var childTOparent = new HashMap<Node, Node>();
+        // All Nodes added to the graph so far, bucketed by their coordinates
+        var closedSet = new ProximityGrid();
 
-        var start = new Node(DRONE_START_COORDINATES, DRONE_START_COORDINATES.distanceTo(endCoor), null,  System.currentTimeMillis() - timeAtStartOfCalculation, false);
-        var end = new Node(endCoor, null, null, 0, false);
+        var start = new Node(DRONE_START_COORDINATES, DRONE_START_COORDINATES.distanceTo(endCoor), null, 0, false);
+        var end = new Node(endCoor, 0.0, null, 0, false);
 
         openList.add(start);
 
-        long timeSinceStartOfThisPathCalculation = System.currentTimeMillis();
-
-        while(!openList.isEmpty()){
-
-            // if the runtime for this calculation is over 10 seconds, deem Restaurant as inaccessible and move on
-            if(System.currentTimeMillis() - timeSinceStartOfThisPathCalculation > 10000){
-                throw new RestaurantNotAccessibleException("Restaurant not accessible.");
-            }
+        try {
+            while(!openList.isEmpty()){
+
+                // n -> current node in the loop
+                Node currentPos = openList.peek();
+
+                // Ensures that the
+                try{
+                    if(Objects.requireNonNull(currentPos).getCoordinate().closeTo(end.getCoordinate())){
+                        childTOparent.put(end, currentPos);
+                        break;
+                    }
+                } catch (NullPointerException e){
+                    // if there is no more Nodes in the priority queue means the algorithm could not have found the path to the Restaurant
+                    throw new RestaurantNotAccessibleException("Restaurant not accessible.");
+                }
 
-            // n -> current node in the loop
-            Node currentPos = openList.peek();
+                // if this calculation has expanded as many Nodes as its budget allows, deem Restaurant as inaccessible and move on
+                if(nodesExpanded >= settings.getExpansionBudget()){
+                    throw new RestaurantNotAccessibleException("Restaurant not accessible.");
+                }
 
-            // Ensures that the
-            try{
-                if(Objects.requireNonNull(currentPos).getCoordinate().closeTo(end.getCoordinate())){
-                    childTOparent.put(end, currentPos);
-                    break;
+                if (currentPos.equals(start)) {
+                    closedSet.add(start);
                 }
-            } catch (NullPointerException e){
-                // if there is no more Nodes in the priority queue means the algorithm could not have found the path to the Restaurant
-                throw new RestaurantNotAccessibleException("Restaurant not accessible.");
-            }
+                nodesExpanded++;
 
-            edges.put(currentPos, new ArrayList<Node>());
+                for(Compass direction: Compass.values()){
 
-            for(Compass direction: Compass.values()){
+                    LngLat nextCoor = currentPos.getCoordinate().nextPosition(direction);
 
-                LngLat nextCoor = currentPos.getCoordinate().nextPosition(direction);
+                    boolean nextCoorInCentralArea = nextCoor.inCentralArea(centralArea);
 
-                boolean nextCoorInCentralArea = nextCoor.inCentralArea(centralArea);
+                    // starting node does not need to be verified
+                    boolean validMove = currentPos.equals(start);
+                    if (!validMove && !nextCoor.sameCoordinates(childTOparent.get(currentPos).getCoordinate())) {
+                        noFlySegmentTests++;
+                        validMove = !noFlyZones.lineCrossesNoFlyZone(currentPos.getCoordinate(), nextCoor)
+                                && !noFlyZones.pointInsideNoFlyZone(nextCoor)
+                                && !closedSet.containsNodeCloseTo(nextCoor)
+                                && !childCameBackToCentralArea(nextCoorInCentralArea, currentPos.getInCentralArea());
+                    }
 
-                if (currentPos.equals(start) // starting node does not need to be verified
-                        || !nextCoor.sameCoordinates(childTOparent.get(currentPos).getCoordinate())
-                        && !LngLat.lineCrossesNoFlyZone(currentPos.getCoordinate(), nextCoor, noFlyZones)
-                        && !nextCoor.pointInsideNoFlyZone(noFlyZones)
-                        && !coordinateCloseToSomeNode(nextCoor, edges.keySet())
-                        && !childCameBackToCentralArea(nextCoorInCentralArea, currentPos.getInCentralArea())){
+                    if (validMove){
 
-                    Double weight = 1.6 * nextCoor.distanceTo(endCoor) - nextCoor.distanceTo(DRONE_START_COORDINATES);
-                    var nextMove = new Node(nextCoor, weight, direction, System.currentTimeMillis() - timeAtStartOfCalculation, nextCoorInCentralArea);
+                        double weight = 1.6 * nextCoor.distanceTo(endCoor) - nextCoor.distanceTo(DRONE_START_COORDINATES);
+                        var nextMove = new Node(nextCoor, weight, direction, 0, nextCoorInCentralArea);
 
-                    // add Node to the graph, and add undirected edge between it and its parent
-                    edges.put(nextMove, new ArrayList<Node>());
-                    edges.get(currentPos).add(nextMove);
-                    edges.get(nextMove).add(currentPos);
+                        // add Node to the graph
+                        closedSet.add(nextMove);
 
-                    // make a mapping between the new node and its parent
-                    childTOparent.put(nextMove, currentPos);
+                        // make a mapping between the new node and its parent
+                        childTOparent.put(nextMove, currentPos);
 
-                    openList.add(nextMove);
+                        openList.add(nextMove);
+                    }
                 }
-            }
 
-            // this removes the current element n in the current While loop iteration, and prevents it from ever being considered again
-            openList.remove(currentPos);
+                peakOpenListSize = Math.max(peakOpenListSize, openList.size());
+
+                // this removes the current element n in the current While loop iteration, and prevents it from ever being considered again
+                openList.remove(currentPos);
+            }
+            found = childTOparent.containsKey(end);
+        } finally {
+            settings.getMetrics().recordPathSearch(nodesExpanded, noFlySegmentTests, peakOpenListSize, System.nanoTime() - startNanos, found);
         }
 
         // end's parent, not to include actual end Node in the final path
@@ -187,45 +337,121 @@ public class DroneControl {
     }
 
     /**
-     * Orders available Restaurants' names based on how close they are to the DRONE_START_COORDINATES.
+     * Orders available Restaurants' names based on how close they are to the DRONE_START_COORDINATES. The route to
+     * every accessible Restaurant is stored in the given cache.
      *
      * @param restaurants     List of all available Restaurants.
      * @param centralArea     List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
-     * @param noFlyZone       List of lists of Edges defining zones that the Drone cannot enter.
+     * @param noFlyZone       Compiled index over the zones that the Drone cannot enter.
+     * @param routeCache      Cache that the routes to and from each accessible Restaurant are put into.
+     * @param settings        Settings selecting the implementation of the path calculation.
      * @return                Sorted List of Restaurant names. In ascending order, from shortest path to longest.
      */
-    private static List<String> sortRestaurantsByPathLength(List<Restaurant> restaurants, List<LngLat> centralArea, List<List<LngLat>> noFlyZone) {
+    static List<String> sortRestaurantsByPathLength(List<Restaurant> restaurants, List<LngLat> centralArea, NoFlyZoneIndex noFlyZone, RouteCache routeCache, PlannerSettings settings) {
+
+        calculateRestaurantRoutes(restaurants, centralArea, noFlyZone, routeCache, settings);
 
         // Each restaurant is defined by it's path distance
         var orderedRestaurants = new ArrayList<String>();
         var shortestPath = Integer.MAX_VALUE;
 
         for (Restaurant restaurant : restaurants) {
-            String restaurantName = restaurant.getName();
-            LngLat restaurantLocation = restaurant.getLocation();
+            RouteCache.Route route = routeCache.get(restaurant.getLocation());
 
-            try {
-                List<Node> pathToRestaurant = calculatePathForOrder(restaurantLocation, centralArea, noFlyZone);
-                // Approximation of path
-                int pathLength = pathToRestaurant.size() * 2 + 1;
-
-                if (pathLength < shortestPath) {
-                    orderedRestaurants.add(0, restaurantName);
-                    shortestPath = pathToRestaurant.size();
-                } else {
-                    orderedRestaurants.add(restaurantName);
-                }
+            // If the Restaurant is inaccessible it simply won't be added to the final list
+            if (route == null) {
+                continue;
+            }
+
+            // Approximation of path
+            int pathLength = route.pathTo().size() * 2 + 1;
 
-            } catch (RestaurantNotAccessibleException ignored) {
-                // If the Restaurant is inaccessible it simply won't be added to the final list
-                // and this Exception will never be thrown again in "calculateDronesPath" method
+            if (pathLength < shortestPath) {
+                orderedRestaurants.add(0, restaurant.getName());
+                shortestPath = route.pathTo().size();
+            } else {
+                orderedRestaurants.add(restaurant.getName());
             }
         }
         return orderedRestaurants;
     }
 
     /**
-     * Given a list of Nodes, reverses that list and returns it as a new List of Nodes.
+     * Calculates the route to and from every Restaurant which is not yet in the route cache. Routes are independent
+     * of each other, so with a parallelism level above 1 they are calculated concurrently on a ForkJoinPool. Can be
+     * called ahead of the planning runs that share the route cache, so that none of them has to calculate a route.
+     *
+     * @param restaurants     List of all available Restaurants.
+     * @param centralArea     List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZone       Compiled index over the zones that the Drone cannot enter.
+     * @param routeCache      Cache that the routes to and from each accessible Restaurant are put into.
+     * @param settings        Settings selecting the implementation of the path calculation and the parallelism level.
+     * @throws IllegalStateException    When the calculation is interrupted. The interrupt status is kept, and the
+     *                                  routes calculated so far are not saved, as some Restaurants are missing from them.
+     */
+    public static void calculateRestaurantRoutes(List<Restaurant> restaurants, List<LngLat> centralArea, NoFlyZoneIndex noFlyZone, RouteCache routeCache, PlannerSettings settings) {
+
+        List<LngLat> locations = restaurants.stream().map(Restaurant::getLocation).distinct().filter(location -> !routeCache.contains(location)).toList();
+
+        if (locations.isEmpty()) {
+            return;
+        }
+
+        if (settings.getParallelism() <= 1 || locations.size() <= 1) {
+            for (LngLat location : locations) {
+                calculateRestaurantRoute(location, centralArea, noFlyZone, routeCache, settings);
+            }
+        } else {
+            var pool = new ForkJoinPool(Math.min(settings.getParallelism(), locations.size()));
+            try {
+                var tasks = new ArrayList<Callable<Void>>();
+                for (LngLat location : locations) {
+                    tasks.add(() -> {
+                        calculateRestaurantRoute(location, centralArea, noFlyZone, routeCache, settings);
+                        return null;
+                    });
+                }
+                for (Future<Void> result : pool.invokeAll(tasks)) {
+                    result.get();
+                }
+            } catch (InterruptedException e) {
+                // Restaurants whose routes were not calculated would be neither routed nor inaccessible, and their
+                // Orders would silently go undelivered, so the run cannot go on
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Calculation of the routes to the Restaurants was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        // keeps the new routes for later runs, if the cache is kept in a file
+        routeCache.save();
+    }
+
+    /**
+     * Calculates the route to and from a single Restaurant, and stores it in the route cache.
+     *
+     * @param restaurantLocation    Location of the Restaurant.
+     * @param centralArea           List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZone             Compiled index over the zones that the Drone cannot enter.
+     * @param routeCache            Cache that the route to and from the Restaurant is put into.
+     * @param settings              Settings selecting the implementation of the path calculation.
+     */
+    private static void calculateRestaurantRoute(LngLat restaurantLocation, List<LngLat> centralArea, NoFlyZoneIndex noFlyZone, RouteCache routeCache, PlannerSettings settings) {
+        try {
+            List<Node> pathToRestaurant = calculatePathForOrder(restaurantLocation, centralArea, noFlyZone, settings);
+            routeCache.put(restaurantLocation, new RouteCache.Route(pathToRestaurant, backtrackPath(pathToRestaurant)));
+        } catch (RestaurantNotAccessibleException e) {
+            // If the Restaurant is inaccessible it is only recorded as such, so it will not be searched for again
+            routeCache.putInaccessible(restaurantLocation);
+        }
+    }
+
+    /**
+     * Given a list of Nodes, reverses that list and returns it as a new List of Nodes. Ticks of the Nodes are left
+     * at 0, they are stamped once the path is assembled for an Order.
      *
      * @param pathToBacktrack    List of Nodes.
      * @return                   New Reverses List of Nodes.
@@ -239,12 +465,10 @@ public class DroneControl {
         // First Node is the HOVER node over Restaurant
         Node newChild = reversedPath.get(0);
         newChild.setDirectionFromParent(null);
-        newChild.setTicksSinceStartOfCalculation(System.currentTimeMillis() - timeAtStartOfCalculation);
 
         for(int i = 1; i < reversedPath.size()-1; i++){
             newChild = reversedPath.get(i);
             newChild.setDirectionFromParent(Compass.getOpposite(newChild.getDirectionFromParent()));
-            newChild.setTicksSinceStartOfCalculation(System.currentTimeMillis() - timeAtStartOfCalculation);
         }
 
         // We need to set the angle to when moving to Starting point
@@ -254,36 +478,17 @@ public class DroneControl {
             if(secondLastChild.getCoordinate().sameCoordinates(newChild.getCoordinate().nextPosition(direction))){
                 // this sets the direction to Starting point from second last Node in the path
                 secondLastChild.setDirectionFromParent(direction);
-                secondLastChild.setTicksSinceStartOfCalculation(System.currentTimeMillis() - timeAtStartOfCalculation);
                 break;
             }
         }
 
         // Last Node added is the HOVER node over Starting position
-        Node hoverOverSP = new Node(DRONE_START_COORDINATES,0.0,null, System.currentTimeMillis() - timeAtStartOfCalculation, true);
+        Node hoverOverSP = new Node(DRONE_START_COORDINATES,0.0,null, 0, true);
         reversedPath.add(hoverOverSP);
 
         return reversedPath;
     }
 
-    /**
-     * Given a collection of Nodes, checks that no Node's coordinate is close to a given LngLat coordinate.
-     *
-     * @param coordinate       LngLat coordinate.
-     * @param nodes            Collection of Nodes.
-     * @return                 <code>true</code> if some Node in the collection exist with coordinate close to a given coordinate.
-     *
-     * @see uk.ac.ed.inf.Node#closeToLngLat(LngLat)
-     */
-    private static boolean coordinateCloseToSomeNode(LngLat coordinate, Collection<Node> nodes){
-        for (Node node : nodes){
-            if (node.closeToLngLat(coordinate)){
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Checks that Drone's potential path did not come back to Central Area once it has left it.
      *
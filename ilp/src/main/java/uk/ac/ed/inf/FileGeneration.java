@@ -1,5 +1,8 @@
 package uk.ac.ed.inf;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mapbox.geojson.*;
 
@@ -15,28 +18,37 @@ import java.util.*;
 public class FileGeneration {
 
     /**
-     * Given a list of Orders writes each Order's specific details into the file.
+     * Factory of the JSON generators used to stream the files.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Given a list of Orders writes each Order's specific details into the pretty printed file.
      *
      * @param orders           List of Orders.
      */
     public static void toJsonFileOrders(List<Order> orders, String date){
-        try {
-            // create a list of maps
-            var listOfOrders = new ArrayList<Map<String, Object>>();
+        toJsonFileOrders(orders, date, true);
+    }
 
-            for(Order order: orders){
-                var move = new LinkedHashMap<String, Object>();
-                move.put("orderNo", order.getOrderNo());
-                move.put("outcome", order.getOrderOutcome());
-                move.put("costInPence", order.getPriceTotalInPence());
-                listOfOrders.add(move);
+    /**
+     * Given a list of Orders writes each Order's specific details into the file, streaming them one by one.
+     *
+     * @param orders           List of Orders.
+     * @param date             Date of the Orders, used in the name of the file.
+     * @param pretty           <code>true</code> to pretty print the file, <code>false</code> to write it compactly.
+     */
+    public static void toJsonFileOrders(List<Order> orders, String date, boolean pretty){
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(Paths.get("deliveries-" + date + ".json").toFile(), JsonEncoding.UTF8)) {
+            if (pretty) {
+                generator.useDefaultPrettyPrinter();
             }
 
-            // create object mapper instance
-            var mapper = new ObjectMapper();
-
-            // convert map to JSON file
-            mapper.writerWithDefaultPrettyPrinter().writeValue(Paths.get("deliveries-" + date + ".json").toFile(), listOfOrders);
+            generator.writeStartArray();
+            for(Order order: orders){
+                writeOrder(generator, order);
+            }
+            generator.writeEndArray();
 
         } catch (Exception ex) {
             ex.printStackTrace();
@@ -44,53 +56,151 @@ public class FileGeneration {
     }
 
     /**
-     * Given a map between Order's number and a List of Nodes representing a flight
-     * path of the drone for that Order, it writes details about each move between two Nodes into the file.
+     * Writes a single Order's details, as they appear in the deliveries file.
      *
-     * @param orderPathMap      Map between the Order Number and the Flight path (as a List of Nodes) for that Order.
+     * @param generator        Generator to write with.
+     * @param order            Order.
+     * @throws IOException     When the generator cannot write.
      */
-    public static void toJsonFileFlightpath(Map<String, List<Node>> orderPathMap, String date){
-        try {
-            // create a list of maps
-            var listOfMoves = new ArrayList<Map<String, Object>>();
+    static void writeOrder(JsonGenerator generator, Order order) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("orderNo", order.getOrderNo());
+        if (order.getOrderOutcome() == null) {
+            generator.writeNullField("outcome");
+        } else {
+            generator.writeStringField("outcome", order.getOrderOutcome().name());
+        }
+        generator.writeNumberField("costInPence", order.getPriceTotalInPence());
+        generator.writeEndObject();
+    }
 
-            for(String orderNo: orderPathMap.keySet()) {
+    /**
+     * Opens the flightpath file in the format chosen by the settings, so that the paths of the Orders can be written
+     * into it while they are being planned. The file is complete once the writer is closed.
+     *
+     * @param date              Date of the flightpath, used in the name of the file.
+     * @param settings          Settings of the run, choosing the format and whether JSON is pretty printed.
+     * @return                  Writer of the flightpath file.
+     * @throws IOException      When the file cannot be created/opened.
+     */
+    public static FlightpathWriter openFlightpath(String date, PlannerSettings settings) throws IOException {
+        return switch (settings.getFlightpathFormat()) {
+            case JSON -> new FlightpathJsonWriter(Paths.get("flightpath-" + date + ".json").toFile(), settings.isPrettyOutput());
+            case BINARY -> new FlightpathBinaryWriter(Paths.get("flightpath-" + date + ".bin").toFile());
+        };
+    }
 
-                List<Node> orderPath = orderPathMap.get(orderNo);
+    /**
+     * Writes the deliveries and drone files of a single date whose flightpath has already been written while it was
+     * being planned, recording how long writing each of them took.
+     *
+     * @param orders            List of Orders for the date.
+     * @param pathCoordinates   Coordinates of the Drone's whole path for the date.
+     * @param date              Date of the files, used in their names.
+     * @param settings          Settings of the run, choosing the output format and holding the metrics.
+     * @see uk.ac.ed.inf.DroneControl#calculateDronesPath(List, Map, List, NoFlyZoneIndex, RouteCache, PlannerSettings, FlightpathWriter)
+     */
+    public static void toDayFiles(List<Order> orders, List<LngLat> pathCoordinates, String date, PlannerSettings settings){
+        PlannerMetrics metrics = settings.getMetrics();
 
-                for (int i = 0; i < orderPath.size() - 1; i++) {
+        long start = System.nanoTime();
+        toJsonFileOrders(orders, date, settings.isPrettyOutput());
+        long ordersWritten = System.nanoTime();
+        metrics.recordWrite(ordersWritten - start);
 
-                    Node node = orderPath.get(i);
-                    Node nextNode = orderPath.get(i + 1);
-                    var move = new LinkedHashMap<String, Object>();
+        toGeojsonLine(pathCoordinates, date);
+        metrics.recordWrite(System.nanoTime() - ordersWritten);
+    }
 
-                    move.put("orderNo", orderNo);
-                    move.put("fromLongitude", node.getCoordinate().getLng());
-                    move.put("fromLatitude", node.getCoordinate().getLat());
-                    // to accommodate for HOVER operation
-                    if(nextNode.getDirectionFromParent() == null){
-                        move.put("angle", null);
-                    } else{
-                        move.put("angle", nextNode.getDirectionFromParent().angle);
-                    }
-                    move.put("toLongitude", nextNode.getCoordinate().getLng());
-                    move.put("toLatitude", nextNode.getCoordinate().getLat());
-                    move.put("ticksSinceStartOfCalculation", nextNode.getTicksSinceStartOfCalculation());
+    /**
+     * Writes the deliveries file of a single date, and the drone files of every Drone of the fleet, named after the
+     * date and the number of the Drone, like "drone-2023-01-01-drone-2.geojson". The flightpath files have already been
+     * written while the Drones' paths were being planned.
+     *
+     * @param orders            List of Orders for the date.
+     * @param dronePlans        Plans of the Drones of the fleet.
+     * @param date              Date of the files, used in their names.
+     * @param settings          Settings of the run, choosing the output format and holding the metrics.
+     * @see uk.ac.ed.inf.FleetPlanner#planFleet(List, Map, List, NoFlyZoneIndex, RouteCache, PlannerSettings, String)
+     */
+    public static void toFleetDayFiles(List<Order> orders, List<FleetPlanner.DronePlan> dronePlans, String date, PlannerSettings settings){
+        PlannerMetrics metrics = settings.getMetrics();
+
+        long start = System.nanoTime();
+        toJsonFileOrders(orders, date, settings.isPrettyOutput());
+        metrics.recordWrite(System.nanoTime() - start);
 
-                    listOfMoves.add(move);
+        for (FleetPlanner.DronePlan plan : dronePlans) {
+            String name = date + "-drone-" + plan.drone();
+
+            long droneStart = System.nanoTime();
+
+            var pathCoordinates = new ArrayList<LngLat>();
+            for (List<Node> nodes : plan.orderPathMap().values()) {
+                for (Node node : nodes) {
+                    pathCoordinates.add(node.getCoordinate());
                 }
             }
+            toGeojsonLine(pathCoordinates, name);
+            metrics.recordWrite(System.nanoTime() - droneStart);
+        }
+    }
+
+    /**
+     * Writes the metrics of a run into a JSON file and a file in the Prometheus text format.
+     *
+     * @param metrics    Metrics of the run.
+     * @param name       Date or range of dates of the run, used in the names of the files.
+     */
+    public static void toFilesMetrics(PlannerMetrics metrics, String name){
+        try {
+            var mapper = new ObjectMapper();
+            mapper.writerWithDefaultPrettyPrinter().writeValue(Paths.get("metrics-" + name + ".json").toFile(), metrics.toJson());
+
+            // buffered writer will ensure that if file exists it will be overwritten
+            try (var bw = new BufferedWriter(new FileWriter("metrics-" + name + ".prom"))) {
+                bw.write(metrics.toPrometheus());
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Given the summaries of all dates planned in batch mode, writes them into the file together with the timings of
+     * the whole batch.
+     *
+     * @param summaries        Summaries of the planned dates.
+     * @param validationStage  Stage that has validated the Orders of every planned date.
+     * @param startDate        First date of the batch.
+     * @param endDate          Last date of the batch.
+     * @param loadMillis       Milliseconds spent fetching the Central Area, No-Fly zones and Restaurants, and calculating the routes.
+     * @param totalMillis      Milliseconds spent on the whole batch.
+     */
+    public static void toJsonFileBatchSummary(List<BatchPlanner.DateSummary> summaries, OrderValidationStage validationStage, String startDate, String endDate, long loadMillis, long totalMillis){
+        try {
+            var batch = new LinkedHashMap<String, Object>();
+            batch.put("startDate", startDate);
+            batch.put("endDate", endDate);
+            batch.put("loadMillis", loadMillis);
+            batch.put("totalMillis", totalMillis);
+            var validation = new LinkedHashMap<String, Object>();
+            validation.put("orders", validationStage.getValidatedOrders());
+            validation.put("ordersPerSecond", validationStage.getOrdersPerSecond());
+            validation.put("outcomes", validationStage.getOutcomeCounts());
+            batch.put("validation", validation);
+
+            batch.put("dates", summaries);
 
             // create object mapper instance
             var mapper = new ObjectMapper();
 
             // convert map to JSON file
-            mapper.writerWithDefaultPrettyPrinter().writeValue(Paths.get("flightpath-" + date + ".json").toFile(), listOfMoves);
+            mapper.writerWithDefaultPrettyPrinter().writeValue(Paths.get("batch-summary-" + startDate + "-" + endDate + ".json").toFile(), batch);
 
         } catch (Exception ex) {
             ex.printStackTrace();
         }
-
     }
 
     /**
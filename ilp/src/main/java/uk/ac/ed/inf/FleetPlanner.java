@@ -0,0 +1,164 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Plans the deliveries of a day for a fleet of Drones, which all start at the same point and have the same moves limit.
+ * <p>
+ * The routes to the Restaurants are calculated once and shared by every Drone, so a larger fleet does not search for
+ * more paths. The Orders are taken in the same order as by a single Drone, closest Restaurant first, and every Order
+ * is given to the Drone that has used the fewest moves so far, as long as that Drone is still within its limit. With
+ * MOVE_BUDGET scheduling, the MoveBudgetScheduler packs the Orders into the Drones instead. Every Drone's path is then
+ * assembled from its Orders concurrently, just like the path of a single Drone, so a fleet of one delivers exactly
+ * what DroneControl does.
+ *
+ * @see uk.ac.ed.inf.DroneControl#calculateDronesPath(List, Map, List, NoFlyZoneIndex, RouteCache, PlannerSettings)
+ */
+public class FleetPlanner {
+
+    /**
+     * Path planned for a single Drone of the fleet.
+     *
+     * @param drone           Number of the Drone, starting at 1.
+     * @param orderPathMap    Map between the Order ID number and the Drone's path for that Order.
+     * @param moves           Number of moves in the Drone's flightpath.
+     */
+    public record DronePlan(int drone, Map<String, List<Node>> orderPathMap, int moves) {}
+
+    /**
+     * Shares the Valid Orders of a day between the Drones of the fleet, and calculates the path of every Drone.
+     *
+     * @param todaysOrders       List of Validated Orders.
+     * @param restaurants        List of all available Restaurants.
+     * @param centralArea        List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZoneIndex     Compiled index over the zones that the Drone cannot enter.
+     * @param routeCache         Cache of the routes to and from Restaurants, missing routes are calculated and put into it.
+     * @param settings           Settings choosing the size of the fleet and the implementation of the path calculation.
+     * @return                   Plan of every Drone, in the order of their numbers.
+     */
+    public static List<DronePlan> planFleet(List<Order> todaysOrders, Map<String, Restaurant> restaurants, List<LngLat> centralArea, NoFlyZoneIndex noFlyZoneIndex, RouteCache routeCache, PlannerSettings settings) {
+        return planFleet(todaysOrders, restaurants, centralArea, noFlyZoneIndex, routeCache, settings, null);
+    }
+
+    /**
+     * Shares the Valid Orders of a day between the Drones of the fleet, and calculates the path of every Drone. Every
+     * Drone's flightpath file is written while its path is being calculated, named after the date and the number of
+     * the Drone, like "flightpath-2023-01-01-drone-2.json".
+     *
+     * @param todaysOrders       List of Validated Orders.
+     * @param restaurants        List of all available Restaurants.
+     * @param centralArea        List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZoneIndex     Compiled index over the zones that the Drone cannot enter.
+     * @param routeCache         Cache of the routes to and from Restaurants, missing routes are calculated and put into it.
+     * @param settings           Settings choosing the size of the fleet, the implementation of the path calculation and the flightpath format.
+     * @param date               Date of the Orders, used in the names of the flightpath files, <code>null</code> to not write them.
+     * @return                   Plan of every Drone, in the order of their numbers.
+     * @throws IllegalStateException When the calling thread is interrupted while the Drones' paths are being calculated.
+     */
+    public static List<DronePlan> planFleet(List<Order> todaysOrders, Map<String, Restaurant> restaurants, List<LngLat> centralArea, NoFlyZoneIndex noFlyZoneIndex, RouteCache routeCache, PlannerSettings settings, String date) {
+
+        int fleetSize = Math.max(1, settings.getFleetSize());
+        List<List<Order>> assignedOrders = assignOrders(todaysOrders, restaurants, centralArea, noFlyZoneIndex, routeCache, settings, fleetSize);
+
+        // every Order is given to a single Drone, so the Drones' paths are independent of each other
+        var tasks = new ArrayList<Callable<Map<String, List<Node>>>>();
+        for (int i = 0; i < fleetSize; i++) {
+            List<Order> orders = assignedOrders.get(i);
+            if (date == null) {
+                tasks.add(() -> DroneControl.calculateDronesPath(orders, restaurants, centralArea, noFlyZoneIndex, routeCache, settings));
+                continue;
+            }
+            String name = date + "-drone-" + (i + 1);
+            tasks.add(() -> {
+                try (FlightpathWriter flightpath = FileGeneration.openFlightpath(name, settings)) {
+                    return DroneControl.calculateDronesPath(orders, restaurants, centralArea, noFlyZoneIndex, routeCache, settings, flightpath);
+                }
+            });
+        }
+
+        var pool = new ForkJoinPool(Math.max(1, Math.min(settings.getParallelism(), fleetSize)));
+        try {
+            var plans = new ArrayList<DronePlan>(fleetSize);
+            List<Future<Map<String, List<Node>>>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < fleetSize; i++) {
+                Map<String, List<Node>> orderPathMap = results.get(i).get();
+                int moves = 0;
+                for (List<Node> nodes : orderPathMap.values()) {
+                    moves += nodes.size() - 1;
+                }
+                plans.add(new DronePlan(i + 1, orderPathMap, moves));
+            }
+            return plans;
+        } catch (InterruptedException e) {
+            // some Orders may already be Delivered, and an empty plan would leave them without flightpaths
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Calculation of the Drones' paths was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Gives every Valid Order to the Drone that has used the fewest moves so far, counting moves like Route.moves().
+     * A Drone stops being given Orders by the same rule that ends DroneControl's ranking of Restaurants, once its
+     * Nodes so far go over the moves limit, so every Drone delivers all the Orders it is given. With MOVE_BUDGET scheduling, the Orders are
+     * packed by the MoveBudgetScheduler instead.
+     *
+     * @param todaysOrders       List of Validated Orders.
+     * @param restaurants        List of all available Restaurants.
+     * @param centralArea        List of edges of the Central Area.
+     * @param noFlyZoneIndex     Compiled index over the zones that the Drone cannot enter.
+     * @param routeCache         Cache of the routes to and from Restaurants.
+     * @param settings           Settings selecting the implementation of the path calculation.
+     * @param fleetSize          Number of Drones.
+     * @return                   List of the Orders given to every Drone.
+     */
+    private static List<List<Order>> assignOrders(List<Order> todaysOrders, Map<String, Restaurant> restaurants, List<LngLat> centralArea, NoFlyZoneIndex noFlyZoneIndex, RouteCache routeCache, PlannerSettings settings, int fleetSize) {
+
+        if (settings.getOrderScheduling() == OrderScheduling.MOVE_BUDGET) {
+            DroneControl.calculateRestaurantRoutes(restaurants.values().stream().toList(), centralArea, noFlyZoneIndex, routeCache, settings);
+            return MoveBudgetScheduler.schedule(todaysOrders, restaurants, routeCache, DroneControl.DRONE_MOVES_LIMIT, fleetSize);
+        }
+
+        var assignedOrders = new ArrayList<List<Order>>(fleetSize);
+        for (int i = 0; i < fleetSize; i++) {
+            assignedOrders.add(new ArrayList<Order>());
+        }
+        int[] movesUsed = new int[fleetSize];
+
+        List<String> orderedRestaurants = DroneControl.sortRestaurantsByPathLength(restaurants.values().stream().toList(), centralArea, noFlyZoneIndex, routeCache, settings);
+        for (String restaurantName : orderedRestaurants) {
+            RouteCache.Route route = routeCache.get(restaurants.get(restaurantName).getLocation());
+
+            for (Order order : todaysOrders) {
+                if (!restaurantName.equals(order.getRestaurantName()) || order.getOrderOutcome() != OrderOutcome.ValidButNotDelivered) {
+                    continue;
+                }
+
+                int drone = 0;
+                for (int i = 1; i < fleetSize; i++) {
+                    if (movesUsed[i] < movesUsed[drone]) {
+                        drone = i;
+                    }
+                }
+                // the least used Drone is over its limit, so are all the others; every delivered Order has one
+                // more Node than it has moves
+                if (movesUsed[drone] + assignedOrders.get(drone).size() > DroneControl.DRONE_MOVES_LIMIT) {
+                    return assignedOrders;
+                }
+
+                assignedOrders.get(drone).add(order);
+                movesUsed[drone] += route.moves();
+            }
+        }
+        return assignedOrders;
+    }
+}
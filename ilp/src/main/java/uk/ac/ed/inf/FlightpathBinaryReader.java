@@ -0,0 +1,271 @@
+package uk.ac.ed.inf;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a binary flightpath file move by move, straight from a memory-mapped view of the file. Moving to the next
+ * move does not allocate; the details of the current move are available through the getters.
+ *
+ * @see uk.ac.ed.inf.FlightpathBinaryWriter
+ */
+public class FlightpathBinaryReader implements Closeable {
+
+    /**
+     * Compass directions by their ordinal.
+     */
+    private static final Compass[] DIRECTIONS = Compass.values();
+
+    /**
+     * Memory-mapped contents of the file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Order Numbers read so far, by their position in the dictionary.
+     */
+    private final List<String> dictionary = new ArrayList<>();
+
+    /**
+     * <code>true</code> while a block of moves is being read.
+     */
+    private boolean inBlock;
+
+    /**
+     * <code>true</code> once the end of the file has been read.
+     */
+    private boolean finished;
+
+    /**
+     * Order Number of the current move.
+     */
+    private String orderNo;
+
+    /**
+     * Coordinates the current move starts at.
+     */
+    private double fromLongitude, fromLatitude;
+
+    /**
+     * Direction of the current move, <code>null</code> for HOVER.
+     */
+    private Compass direction;
+
+    /**
+     * Coordinates the current move ends at.
+     */
+    private double toLongitude, toLatitude;
+
+    /**
+     * Milliseconds that have passed since the start of Drone's path calculation for the day, at the current move.
+     */
+    private long ticks;
+
+    /**
+     * Maps the file into memory and checks its header.
+     *
+     * @param file    Binary flightpath file.
+     * @throws IOException    When the file cannot be opened or is not a binary flightpath file of a known version.
+     */
+    public FlightpathBinaryReader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        byte[] magic = new byte[FlightpathBinaryWriter.MAGIC.length];
+        try {
+            buffer.get(magic);
+            if (!Arrays.equals(magic, FlightpathBinaryWriter.MAGIC)) {
+                throw new IOException(file + " is not a binary flightpath file.");
+            }
+            int version = buffer.get();
+            if (version != FlightpathBinaryWriter.VERSION) {
+                throw new IOException(file + " has unsupported version " + version + ".");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException(file + " is not a binary flightpath file.", e);
+        }
+    }
+
+    /**
+     * Advances to the next move.
+     *
+     * @return    <code>true</code> if there was a next move, <code>false</code> at the end of the file.
+     * @throws IOException    When the file is truncated or corrupted.
+     */
+    public boolean next() throws IOException {
+        try {
+            while (!finished) {
+                if (!inBlock) {
+                    startBlock();
+                    continue;
+                }
+
+                int directionByte = buffer.get();
+                if (directionByte == FlightpathBinaryWriter.END_OF_BLOCK) {
+                    inBlock = false;
+                    continue;
+                }
+                if (directionByte < 0 || directionByte > FlightpathBinaryWriter.HOVER) {
+                    throw new IOException("Unknown direction " + directionByte + " at position " + (buffer.position() - 1) + ".");
+                }
+
+                fromLongitude = toLongitude;
+                fromLatitude = toLatitude;
+                direction = directionByte == FlightpathBinaryWriter.HOVER ? null : DIRECTIONS[directionByte];
+                toLongitude = Double.longBitsToDouble(readSignedVarLong() + Double.doubleToRawLongBits(fromLongitude + FlightpathBinaryWriter.LNG_OFFSETS[directionByte]));
+                toLatitude = Double.longBitsToDouble(readSignedVarLong() + Double.doubleToRawLongBits(fromLatitude + FlightpathBinaryWriter.LAT_OFFSETS[directionByte]));
+                ticks += readSignedVarLong();
+                return true;
+            }
+            return false;
+
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Binary flightpath file is truncated.", e);
+        }
+    }
+
+    /**
+     * Reads the tag of the next block, and the coordinates it starts at.
+     *
+     * @throws IOException    When the tag refers to an unknown Order Number.
+     */
+    private void startBlock() throws IOException {
+
+        long tag = readVarLong();
+        if (tag == 0) {
+            finished = true;
+            return;
+        }
+
+        int position = (int) (tag - 1);
+        if (position == dictionary.size()) {
+            byte[] bytes = new byte[(int) readVarLong()];
+            buffer.get(bytes);
+            dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+        } else if (position > dictionary.size()) {
+            throw new IOException("Unknown Order Number at position " + position + " of the dictionary.");
+        }
+
+        orderNo = dictionary.get(position);
+        toLongitude = buffer.getDouble();
+        toLatitude = buffer.getDouble();
+        inBlock = true;
+    }
+
+    /**
+     * Reads a non-negative varint.
+     *
+     * @return    Value of the varint.
+     * @throws IOException    When the varint is longer than a long.
+     */
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint at position " + buffer.position() + ".");
+    }
+
+    /**
+     * Reads a zig-zag varint.
+     *
+     * @return    Value of the varint.
+     * @throws IOException    When the varint is longer than a long.
+     */
+    private long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes every move of a binary flightpath file into a JSON flightpath file, exactly as FileGeneration would have
+     * written them.
+     *
+     * @param binaryFile    Binary flightpath file.
+     * @param jsonFile      JSON flightpath file to be created/written to.
+     * @param pretty        <code>true</code> to pretty print the JSON file, <code>false</code> to write it compactly.
+     * @throws IOException    When either of the files cannot be read/written.
+     */
+    public static void toJson(File binaryFile, File jsonFile, boolean pretty) throws IOException {
+        try (var reader = new FlightpathBinaryReader(binaryFile);
+             var writer = new FlightpathJsonWriter(jsonFile, pretty)) {
+            while (reader.next()) {
+                writer.writeMove(reader.orderNo, reader.fromLongitude, reader.fromLatitude, reader.direction,
+                        reader.toLongitude, reader.toLatitude, reader.ticks);
+            }
+        }
+    }
+
+    /**
+     * Converts a binary flightpath file into a pretty printed JSON flightpath file.
+     *
+     * @param args    Path of the binary flightpath file, and path of the JSON file to be created/written to.
+     */
+    public static void main(String[] args) {
+
+        if (args.length != 2) {
+            System.out.println("Usage: FlightpathBinaryReader <binary flightpath file> <JSON flightpath file>");
+            System.exit(1);
+        }
+        try {
+            toJson(new File(args[0]), new File(args[1]), true);
+        } catch (IOException e) {
+            System.out.println("File cannot be converted. " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Nothing to release, the mapping is released once the reader is garbage collected.
+     */
+    @Override
+    public void close() {
+    }
+
+
+    ////////////////////////
+    ///      GETTERS     ///
+    ////////////////////////
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public double getFromLongitude() {
+        return fromLongitude;
+    }
+
+    public double getFromLatitude() {
+        return fromLatitude;
+    }
+
+    public Compass getDirection() {
+        return direction;
+    }
+
+    public double getToLongitude() {
+        return toLongitude;
+    }
+
+    public double getToLatitude() {
+        return toLatitude;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+}
@@ -0,0 +1,221 @@
+package uk.ac.ed.inf;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the flightpath in a compact binary format, holding exactly the same moves as the JSON flightpath file.
+ * <p>
+ * The file starts with the MAGIC bytes and the VERSION, followed by blocks of consecutive moves of the same Order, each
+ * move starting where the previous one ended. Every block starts with a varint tag, <code>0</code> ending the file and
+ * any other value being the position of the Order Number in the dictionary plus one. A position equal to the size of
+ * the dictionary adds a new Order Number, written as its varint length and UTF-8 bytes. The tag is followed by the
+ * coordinates the block starts at, as two 8 byte doubles, and by the moves. Every move is the ordinal of its Compass
+ * direction (HOVER for no direction), the differences between the bits of the coordinates it ends at and the bits of
+ * the coordinates predicted by its direction, and the difference of its ticks from the previous move's ticks, all as
+ * zig-zag varints. The block ends with the END_OF_BLOCK byte in place of a direction.
+ * <p>
+ * As the Drone always moves by exactly one step, the coordinate differences are almost always <code>0</code>, making
+ * a typical move 4 bytes long.
+ *
+ * @see uk.ac.ed.inf.FlightpathBinaryReader
+ */
+public class FlightpathBinaryWriter implements FlightpathWriter {
+
+    /**
+     * Bytes every binary flightpath file starts with.
+     */
+    public static final byte[] MAGIC = {'P', 'D', 'F', 'P'};
+
+    /**
+     * Version of the format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Direction byte of a HOVER move.
+     */
+    static final int HOVER = Compass.values().length;
+
+    /**
+     * Direction byte ending a block of moves.
+     */
+    static final int END_OF_BLOCK = HOVER + 1;
+
+    /**
+     * Longitude offsets of a single move in every Compass direction, by the direction's ordinal.
+     */
+    static final double[] LNG_OFFSETS = new double[HOVER + 1];
+
+    /**
+     * Latitude offsets of a single move in every Compass direction, by the direction's ordinal.
+     */
+    static final double[] LAT_OFFSETS = new double[HOVER + 1];
+
+    static {
+        // offsets from the origin are exactly the terms LngLat adds when moving, so predictions match it bit for bit
+        var origin = new LngLat(0, 0);
+        for (Compass direction : Compass.values()) {
+            LngLat offset = origin.nextPosition(direction);
+            LNG_OFFSETS[direction.ordinal()] = offset.lng();
+            LAT_OFFSETS[direction.ordinal()] = offset.lat();
+        }
+    }
+
+    /**
+     * Stream writing into the file.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Mapping between the Order Numbers written so far and their positions in the dictionary.
+     */
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    /**
+     * Order Number of the currently open block, <code>null</code> if no block is open.
+     */
+    private String blockOrderNo;
+
+    /**
+     * Longitude the previous move ended at.
+     */
+    private double lastLng;
+
+    /**
+     * Latitude the previous move ended at.
+     */
+    private double lastLat;
+
+    /**
+     * Ticks of the previous move.
+     */
+    private long lastTicks;
+
+    /**
+     * Opens the file and writes the header.
+     *
+     * @param file      File to be created/written to.
+     * @throws IOException    When the file cannot be created/opened.
+     */
+    public FlightpathBinaryWriter(File file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Writes a single move of the Drone. A new block is started whenever the Order changes or the move does not start
+     * where the previous one ended.
+     *
+     * @param orderNo          Order Number.
+     * @param fromLongitude    Longitude the move starts at.
+     * @param fromLatitude     Latitude the move starts at.
+     * @param direction        Direction of the move, <code>null</code> for HOVER.
+     * @param toLongitude      Longitude the move ends at.
+     * @param toLatitude       Latitude the move ends at.
+     * @param ticks            Milliseconds that have passed since the start of Drone's path calculation for the day.
+     * @throws IOException    When the file cannot be written to.
+     */
+    @Override
+    public void writeMove(String orderNo, double fromLongitude, double fromLatitude, Compass direction,
+                          double toLongitude, double toLatitude, long ticks) throws IOException {
+
+        if (!orderNo.equals(blockOrderNo)
+                || Double.doubleToRawLongBits(fromLongitude) != Double.doubleToRawLongBits(lastLng)
+                || Double.doubleToRawLongBits(fromLatitude) != Double.doubleToRawLongBits(lastLat)) {
+            startBlock(orderNo, fromLongitude, fromLatitude);
+        }
+
+        int directionByte = direction == null ? HOVER : direction.ordinal();
+        out.writeByte(directionByte);
+        writeSignedVarLong(Double.doubleToRawLongBits(toLongitude) - Double.doubleToRawLongBits(fromLongitude + LNG_OFFSETS[directionByte]));
+        writeSignedVarLong(Double.doubleToRawLongBits(toLatitude) - Double.doubleToRawLongBits(fromLatitude + LAT_OFFSETS[directionByte]));
+        writeSignedVarLong(ticks - lastTicks);
+
+        lastLng = toLongitude;
+        lastLat = toLatitude;
+        lastTicks = ticks;
+    }
+
+    /**
+     * Ends the open block and starts a new one.
+     *
+     * @param orderNo          Order Number of the block.
+     * @param fromLongitude    Longitude the block starts at.
+     * @param fromLatitude     Latitude the block starts at.
+     * @throws IOException    When the file cannot be written to.
+     */
+    private void startBlock(String orderNo, double fromLongitude, double fromLatitude) throws IOException {
+
+        if (blockOrderNo != null) {
+            out.writeByte(END_OF_BLOCK);
+        }
+
+        Integer position = dictionary.get(orderNo);
+        if (position == null) {
+            position = dictionary.size();
+            dictionary.put(orderNo, position);
+            writeVarLong(position + 1);
+            byte[] bytes = orderNo.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        } else {
+            writeVarLong(position + 1);
+        }
+
+        out.writeDouble(fromLongitude);
+        out.writeDouble(fromLatitude);
+
+        blockOrderNo = orderNo;
+        lastLng = fromLongitude;
+        lastLat = fromLatitude;
+    }
+
+    /**
+     * Writes a non-negative value as a varint, 7 bits per byte with the highest bit marking that more bytes follow.
+     *
+     * @param value    Non-negative value.
+     * @throws IOException    When the file cannot be written to.
+     */
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Writes a value as a zig-zag varint, so that values close to <code>0</code> take a single byte.
+     *
+     * @param value    Any value.
+     * @throws IOException    When the file cannot be written to.
+     */
+    private void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Ends the open block and the file, and closes it.
+     *
+     * @throws IOException    When the file cannot be written to.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockOrderNo != null) {
+                out.writeByte(END_OF_BLOCK);
+            }
+            writeVarLong(0);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package uk.ac.ed.inf;
+
+/**
+ * Formats the flightpath file can be written in.
+ *
+ * @see uk.ac.ed.inf.FileGeneration#openFlightpath(String, PlannerSettings)
+ */
+public enum FlightpathFormat {
+
+    /**
+     * "flightpath-YYYY-MM-DD.json", a list of JSON objects, one per move.
+     */
+    JSON,
+
+    /**
+     * "flightpath-YYYY-MM-DD.bin", the compact binary format, convertible back to JSON by FlightpathBinaryReader.
+     */
+    BINARY
+}
@@ -0,0 +1,99 @@
+package uk.ac.ed.inf;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the flightpath file move by move through a streaming JSON generator, so that paths can be written as soon as
+ * they are produced, without building an intermediate object for every move. Produces the same JSON as serializing
+ * a list of moves with an ObjectMapper.
+ */
+public class FlightpathJsonWriter implements FlightpathWriter {
+
+    /**
+     * Factory of the JSON generators, shared by all writers.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Generator writing into the file.
+     */
+    private final JsonGenerator generator;
+
+    /**
+     * Opens the file and starts the list of moves.
+     *
+     * @param file      File to be created/written to.
+     * @param pretty    <code>true</code> to pretty print the file, <code>false</code> to write it compactly.
+     * @throws IOException    When the file cannot be created/opened.
+     */
+    public FlightpathJsonWriter(File file, boolean pretty) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(file, JsonEncoding.UTF8);
+        if (pretty) {
+            generator.useDefaultPrettyPrinter();
+        }
+        generator.writeStartArray();
+    }
+
+    /**
+     * Starts the list of moves in a stream, written compactly. The stream is closed with the writer.
+     *
+     * @param out    Stream to write to.
+     * @throws IOException    When the stream cannot be written to.
+     */
+    public FlightpathJsonWriter(OutputStream out) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        generator.writeStartArray();
+    }
+
+    /**
+     * Writes a single move of the Drone.
+     *
+     * @param orderNo          Order Number.
+     * @param fromLongitude    Longitude the move starts at.
+     * @param fromLatitude     Latitude the move starts at.
+     * @param direction        Direction of the move, <code>null</code> for HOVER.
+     * @param toLongitude      Longitude the move ends at.
+     * @param toLatitude       Latitude the move ends at.
+     * @param ticks            Milliseconds that have passed since the start of Drone's path calculation for the day.
+     * @throws IOException    When the file cannot be written to.
+     */
+    @Override
+    public void writeMove(String orderNo, double fromLongitude, double fromLatitude, Compass direction,
+                          double toLongitude, double toLatitude, long ticks) throws IOException {
+
+        generator.writeStartObject();
+        generator.writeStringField("orderNo", orderNo);
+        generator.writeNumberField("fromLongitude", fromLongitude);
+        generator.writeNumberField("fromLatitude", fromLatitude);
+        // to accommodate for HOVER operation
+        if (direction == null) {
+            generator.writeNullField("angle");
+        } else {
+            generator.writeNumberField("angle", direction.angle);
+        }
+        generator.writeNumberField("toLongitude", toLongitude);
+        generator.writeNumberField("toLatitude", toLatitude);
+        generator.writeNumberField("ticksSinceStartOfCalculation", ticks);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Ends the list of moves and closes the file.
+     *
+     * @throws IOException    When the file cannot be written to.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            generator.writeEndArray();
+        } finally {
+            generator.close();
+        }
+    }
+}
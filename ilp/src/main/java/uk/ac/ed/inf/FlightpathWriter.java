@@ -0,0 +1,48 @@
+package uk.ac.ed.inf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writer of a flightpath file, which moves are written into as soon as they are produced, so the Drone's path can be
+ * written Order by Order while it is being planned.
+ *
+ * @see uk.ac.ed.inf.FlightpathJsonWriter
+ * @see uk.ac.ed.inf.FlightpathBinaryWriter
+ */
+public interface FlightpathWriter extends Closeable {
+
+    /**
+     * Writes every move between two consecutive Nodes of an Order's path.
+     *
+     * @param orderNo      Order Number.
+     * @param orderPath    Flight path for the Order, as a List of Nodes.
+     * @throws IOException    When the file cannot be written to.
+     */
+    default void writeOrderPath(String orderNo, List<Node> orderPath) throws IOException {
+
+        for (int i = 0; i < orderPath.size() - 1; i++) {
+
+            LngLat from = orderPath.get(i).getCoordinate();
+            Node nextNode = orderPath.get(i + 1);
+            writeMove(orderNo, from.getLng(), from.getLat(), nextNode.getDirectionFromParent(),
+                    nextNode.getCoordinate().getLng(), nextNode.getCoordinate().getLat(), nextNode.getTicksSinceStartOfCalculation());
+        }
+    }
+
+    /**
+     * Writes a single move of the Drone.
+     *
+     * @param orderNo          Order Number.
+     * @param fromLongitude    Longitude the move starts at.
+     * @param fromLatitude     Latitude the move starts at.
+     * @param direction        Direction of the move, <code>null</code> for HOVER.
+     * @param toLongitude      Longitude the move ends at.
+     * @param toLatitude       Latitude the move ends at.
+     * @param ticks            Milliseconds that have passed since the start of Drone's path calculation for the day.
+     * @throws IOException    When the file cannot be written to.
+     */
+    void writeMove(String orderNo, double fromLongitude, double fromLatitude, Compass direction,
+                   double toLongitude, double toLatitude, long ticks) throws IOException;
+}
@@ -0,0 +1,205 @@
+package uk.ac.ed.inf;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans the Orders of a day one at a time, as they arrive, instead of all at once.
+ * <p>
+ * The routes to all the Restaurants are calculated when the planner is created, so accepting an Order only validates
+ * it against the menus, looks up its route and appends to the files. A Valid Order is delivered if the moves of its
+ * round trip still fit into the Drone's moves left, so the Drone never goes over its moves limit. Orders that do not
+ * fit, or whose Restaurant is inaccessible, are left ValidButNotDelivered. Orders placed for another date are
+ * refused, and left out of the files.
+ * <p>
+ * The deliveries, flightpath and drone files of the day are created empty with the planner, and every accepted
+ * Order is appended to them without rewriting them, so they are valid after every Order. They are written compactly,
+ * whatever the settings say, and the flightpath is always written as JSON.
+ *
+ * @see uk.ac.ed.inf.AppendableJsonArray
+ */
+public class IncrementalPlanner implements Closeable {
+
+    /**
+     * Factory of the JSON generators used to serialize the appended elements.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Mapping between the name of every participating Restaurant and the Restaurant.
+     */
+    private final Map<String, Restaurant> restaurants;
+
+    /**
+     * Routes to and from the Restaurants.
+     */
+    private final RouteCache routeCache;
+
+    /**
+     * Stage validating the Orders, counting their outcomes.
+     */
+    private final OrderValidationStage validationStage;
+
+    /**
+     * Settings of the run, holding the metrics.
+     */
+    private final PlannerSettings settings;
+
+    /**
+     * Date of the Orders planned by the planner.
+     */
+    private final String date;
+
+    /**
+     * Files of the day, appended to with every Order.
+     */
+    private final AppendableJsonArray deliveries, flightpath, drone;
+
+    /**
+     * Drone file of an empty path, split around the empty list of coordinates.
+     */
+    private final String droneBefore, droneAfter;
+
+    /**
+     * Milliseconds since the epoch when the planner was created, the ticks of the Nodes are counted from it.
+     */
+    private final long timeAtStartOfCalculation = System.currentTimeMillis();
+
+    /**
+     * Number of moves the Drone has left.
+     */
+    private int movesLeft = DroneControl.DRONE_MOVES_LIMIT;
+
+    /**
+     * Number of Orders delivered so far.
+     */
+    private int delivered;
+
+    /**
+     * Calculates the routes to all the Restaurants, and creates the empty files of the day.
+     *
+     * @param restaurants    Mapping between the name of every participating Restaurant and the Restaurant.
+     * @param centralArea    List of edges of the Central Area, which the drone cannot leave once entered on the way back from the Restaurant.
+     * @param noFlyZones     List of lists of edge coordinates defining zones that the Drone cannot enter.
+     * @param date           Date of the Orders, in the ISO 8601 format, used in the names of the files.
+     * @param settings       Settings selecting the implementation of the path calculation, and the metrics it is recorded into.
+     * @throws IOException   When the files cannot be created.
+     */
+    public IncrementalPlanner(Map<String, Restaurant> restaurants, List<LngLat> centralArea, List<List<LngLat>> noFlyZones, String date, PlannerSettings settings) throws IOException {
+        this.restaurants = restaurants;
+        this.settings = settings;
+        this.date = date;
+        this.routeCache = DroneControl.createRouteCache(centralArea, noFlyZones, settings);
+        this.validationStage = new OrderValidationStage(new MenuIndex(restaurants.values().stream().toList()), 1, settings.getMetrics());
+
+        DroneControl.calculateRestaurantRoutes(restaurants.values().stream().toList(), centralArea, new NoFlyZoneIndex(noFlyZones), routeCache, settings);
+
+        // the coordinates are formatted by GeoJson itself, like in the drone file of the whole day
+        String emptyDrone = lineToGeojson(new ArrayList<Point>());
+        int coordinates = emptyDrone.indexOf("[]");
+        this.droneBefore = emptyDrone.substring(0, coordinates);
+        this.droneAfter = emptyDrone.substring(coordinates + 2);
+
+        this.deliveries = new AppendableJsonArray(Path.of("deliveries-" + date + ".json"));
+        this.flightpath = new AppendableJsonArray(Path.of("flightpath-" + date + ".json"));
+        this.drone = new AppendableJsonArray(Path.of("drone-" + date + ".geojson"), droneBefore, droneAfter);
+    }
+
+    /**
+     * Validates and plans a single Order, and appends it to the files of the day.
+     *
+     * @param order    De-serialized Order.
+     * @return         Outcome of the Order, Delivered if the Drone delivers it.
+     * @throws IOException                 When the files cannot be written to.
+     * @throws IllegalArgumentException    When the Order is placed for another date than the planner's. The Order is
+     *                                     left out of the files.
+     */
+    public synchronized OrderOutcome accept(Order order) throws IOException, IllegalArgumentException {
+
+        if (!date.equals(order.getOrderDate())) {
+            throw new IllegalArgumentException("Order " + order.getOrderNo() + " is placed for " + order.getOrderDate() + ", not for " + date + ".");
+        }
+
+        long startNanos = System.nanoTime();
+        validationStage.validate(order);
+
+        if (order.getOrderOutcome() == OrderOutcome.ValidButNotDelivered) {
+            RouteCache.Route route = routeCache.get(restaurants.get(order.getRestaurantName()).getLocation());
+
+            if (route != null && route.moves() <= movesLeft) {
+                List<Node> orderPath = route.toOrderPath(System.currentTimeMillis() - timeAtStartOfCalculation);
+                order.setOrderOutcome(OrderOutcome.Delivered);
+                movesLeft -= route.moves();
+                delivered++;
+
+                var flightpathOut = new ByteArrayOutputStream();
+                try (var writer = new FlightpathJsonWriter(flightpathOut)) {
+                    writer.writeOrderPath(order.getOrderNo(), orderPath);
+                }
+                flightpath.appendAll(flightpathOut.toByteArray());
+
+                var points = new ArrayList<Point>();
+                for (Node node : orderPath) {
+                    points.add(Point.fromLngLat(node.getCoordinate().getLng(), node.getCoordinate().getLat()));
+                }
+                String line = lineToGeojson(points);
+                drone.appendAll(line.substring(droneBefore.length(), line.length() - droneAfter.length()).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        var deliveryOut = new ByteArrayOutputStream();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(deliveryOut, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            FileGeneration.writeOrder(generator, order);
+            generator.writeEndArray();
+        }
+        deliveries.appendAll(deliveryOut.toByteArray());
+
+        settings.getMetrics().recordOrderPlanning(System.nanoTime() - startNanos);
+        return order.getOrderOutcome();
+    }
+
+    /**
+     * @return    Number of moves the Drone has left.
+     */
+    public synchronized int getMovesLeft() {
+        return movesLeft;
+    }
+
+    /**
+     * Records the Drone's path for the day into the metrics, and closes the files of the day, which already hold
+     * every accepted Order.
+     *
+     * @throws IOException    When a file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        settings.getMetrics().recordPlanningRun(delivered, DroneControl.DRONE_MOVES_LIMIT - movesLeft, DroneControl.DRONE_MOVES_LIMIT);
+        try (deliveries; flightpath; drone) {
+            // every file is closed, even if closing another one fails
+        }
+    }
+
+    /**
+     * @param points    Coordinates of a path.
+     * @return          Drone file of the path, as written by FileGeneration.
+     * @see uk.ac.ed.inf.FileGeneration#toGeojsonLine(List, String)
+     */
+    private static String lineToGeojson(List<Point> points) {
+        return FeatureCollection.fromFeature(Feature.fromGeometry(LineString.fromLngLats(points))).toJson();
+    }
+}
@@ -0,0 +1,164 @@
+package uk.ac.ed.inf;
+
+import java.util.Arrays;
+
+/**
+ * Open list backed by a binary Min Heap over primitive double weights, in which every Node knows its own position.
+ * Poll, remove and weight updates therefore all take O(log n) time.
+ * <p>
+ * Sifting follows exactly the same steps as java.util.PriorityQueue, so Nodes with equal weights leave the open list
+ * in the same order as they would from PriorityQueueOpenList, and the calculated paths do not depend on the choice
+ * between the two.
+ */
+public class IndexedHeapOpenList implements OpenList {
+
+    /**
+     * Initial capacity of the heap.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Nodes in heap order.
+     */
+    private Node[] nodes = new Node[INITIAL_CAPACITY];
+
+    /**
+     * Weights of the Nodes, at the same positions as in the "nodes" array.
+     */
+    private double[] weights = new double[INITIAL_CAPACITY];
+
+    /**
+     * Number of Nodes in the heap.
+     */
+    private int size = 0;
+
+    @Override
+    public void add(Node node) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        siftUp(size++, node, node.getWeight());
+    }
+
+    @Override
+    public Node peek() {
+        return size == 0 ? null : nodes[0];
+    }
+
+    @Override
+    public Node poll() {
+        if (size == 0) {
+            return null;
+        }
+        Node result = nodes[0];
+        removeAt(0);
+        return result;
+    }
+
+    @Override
+    public boolean remove(Node node) {
+        int i = node.getOpenListIndex();
+        if (i < 0 || i >= size || nodes[i] != node) {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    @Override
+    public void updateWeight(Node node, double weight) {
+        int i = node.getOpenListIndex();
+        node.setWeight(weight);
+        if (i < 0 || i >= size || nodes[i] != node) {
+            add(node);
+            return;
+        }
+        siftDown(i, node, weight);
+        if (nodes[i] == node) {
+            siftUp(i, node, weight);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes the Node at a given position of the heap, the last Node of the heap takes its place.
+     *
+     * @param i     Position of the Node to be removed.
+     */
+    private void removeAt(int i) {
+        nodes[i].setOpenListIndex(-1);
+        int s = --size;
+        if (s == i) {
+            nodes[i] = null;
+        } else {
+            Node moved = nodes[s];
+            double movedWeight = weights[s];
+            nodes[s] = null;
+            siftDown(i, moved, movedWeight);
+            if (nodes[i] == moved) {
+                siftUp(i, moved, movedWeight);
+            }
+        }
+    }
+
+    /**
+     * Inserts a Node at position k, moving it up the heap until it is larger or equal to its parent.
+     *
+     * @param k         Position to insert the Node at.
+     * @param node      Node to be inserted.
+     * @param weight    Weight of the Node.
+     */
+    private void siftUp(int k, Node node, double weight) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (Double.compare(weight, weights[parent]) >= 0) {
+                break;
+            }
+            place(k, nodes[parent], weights[parent]);
+            k = parent;
+        }
+        place(k, node, weight);
+    }
+
+    /**
+     * Inserts a Node at position k, moving it down the heap until it is smaller or equal to its children.
+     *
+     * @param k         Position to insert the Node at.
+     * @param node      Node to be inserted.
+     * @param weight    Weight of the Node.
+     */
+    private void siftDown(int k, Node node, double weight) {
+        int half = size >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int right = child + 1;
+            if (right < size && Double.compare(weights[child], weights[right]) > 0) {
+                child = right;
+            }
+            if (Double.compare(weight, weights[child]) <= 0) {
+                break;
+            }
+            place(k, nodes[child], weights[child]);
+            k = child;
+        }
+        place(k, node, weight);
+    }
+
+    /**
+     * Puts a Node at a given position of the heap, and records that position in the Node.
+     *
+     * @param k         Position in the heap.
+     * @param node      Node to be placed.
+     * @param weight    Weight of the Node.
+     */
+    private void place(int k, Node node, double weight) {
+        nodes[k] = node;
+        weights[k] = weight;
+        node.setOpenListIndex(k);
+    }
+}
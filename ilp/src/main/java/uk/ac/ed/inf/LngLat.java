@@ -19,7 +19,7 @@ public record LngLat(@JsonProperty("longitude") double lng, @JsonProperty("latit
     /**
      * Constant representing the distance of a single move.
      */
-    private static final Double MOVE_DISTANCE = 0.00015;
+    public static final double MOVE_DISTANCE = 0.00015;
 
     /**
      * Constant representing move tolerance. If a point is within this constant's distance away from another it's considered to be close.
@@ -80,7 +80,19 @@ public record LngLat(@JsonProperty("longitude") double lng, @JsonProperty("latit
      * @return             Double value type. Pythagorean distance between itself and the supplied coordinate.
      */
     public double distanceTo( LngLat coordinate ){
-        return Math.sqrt(Math.pow(this.lng - coordinate.lng(),2) + Math.pow(this.lat - coordinate.lat(),2));
+        return distance(this.lng, this.lat, coordinate.lng(), coordinate.lat());
+    }
+
+    /** Measures the pythagorean distance between two points given by their coordinates.
+     *
+     * @param lng          Longitude of the first point.
+     * @param lat          Latitude of the first point.
+     * @param otherLng     Longitude of the second point.
+     * @param otherLat     Latitude of the second point.
+     * @return             Pythagorean distance between the two points.
+     */
+    public static double distance(double lng, double lat, double otherLng, double otherLat){
+        return Math.sqrt(Math.pow(lng - otherLng,2) + Math.pow(lat - otherLat,2));
     }
 
     /** Verifies that the distance between itself and the supplied coordinate is strictly less than the MOVE_TOLERANCE.
@@ -93,6 +105,18 @@ public record LngLat(@JsonProperty("longitude") double lng, @JsonProperty("latit
         return this.distanceTo(coordinate) < MOVE_TOLERANCE;
     }
 
+    /** Verifies that the distance between two points given by their coordinates is strictly less than the MOVE_TOLERANCE.
+     *
+     * @param lng          Longitude of the first point.
+     * @param lat          Latitude of the first point.
+     * @param otherLng     Longitude of the second point.
+     * @param otherLat     Latitude of the second point.
+     * @return             <code>true</code> if the distance between the points is strictly less than 0.00015.
+     */
+    public static boolean closeTo(double lng, double lat, double otherLng, double otherLat) {
+        return distance(lng, lat, otherLng, otherLat) < MOVE_TOLERANCE;
+    }
+
     /** Calculates the next position of the drone based on the compass direction provided.
      *
      * @param direction    Enum type object. Compass direction.
@@ -125,13 +149,25 @@ public record LngLat(@JsonProperty("longitude") double lng, @JsonProperty("latit
      * @param edgesOfArea  List of LngLat coordinates defining a polygon Area.
      * @return             true when the point is within the polygon area.
      */
-    private boolean inArea(List<LngLat> edgesOfArea){
+    public boolean inArea(List<LngLat> edgesOfArea){
+        return inArea(this.lng, this.lat, edgesOfArea);
+    }
+
+    /**
+     * Check if a point given by its coordinates falls within a polygon Area defined by a given List of edges.
+     *
+     * @param lng          Longitude of the point.
+     * @param lat          Latitude of the point.
+     * @param edgesOfArea  List of LngLat coordinates defining a polygon Area.
+     * @return             true when the point is within the polygon area.
+     */
+    public static boolean inArea(double lng, double lat, List<LngLat> edgesOfArea){
 
         boolean inside = false;
         int len = edgesOfArea.size();
         // counts how many times point passes through some line in the polygon
         for (int i = 0; i < len; i++) {
-            if (pointIntersectsEdge(edgesOfArea.get(i), edgesOfArea.get((i + 1) % len), this.lng, this.lat))
+            if (pointIntersectsEdge(edgesOfArea.get(i), edgesOfArea.get((i + 1) % len), lng, lat))
                 inside = !inside;
         }
         return inside;
@@ -188,17 +224,36 @@ public record LngLat(@JsonProperty("longitude") double lng, @JsonProperty("latit
      * @return          <code>true</code> if the lines intersect.
      */
     public static boolean lineIntersection(LngLat one, LngLat two, LngLat three, LngLat four){
+        return lineIntersection(one, two, three.lng, three.lat, four.lng, four.lat);
+    }
+
+    /**
+     * Checks whether a path between two points given by their coordinates intersects with an Edge (defined by two
+     * points) of a No-Fly zone.
+     *
+     * @param one           Point defining the first point of an edge of a No-Fly Zone.
+     * @param two           Point defining the second point of an edge of a No-Fly Zone.
+     * @param threeLng      Longitude of the first point of a path between two Nodes.
+     * @param threeLat      Latitude of the first point of a path between two Nodes.
+     * @param fourLng       Longitude of the second point of a path between two Nodes.
+     * @param fourLat       Latitude of the second point of a path between two Nodes.
+     *
+     * @return          <code>true</code> if the lines intersect.
+     *
+     * @see uk.ac.ed.inf.LngLat#lineIntersection(LngLat, LngLat, LngLat, LngLat)
+     */
+    public static boolean lineIntersection(LngLat one, LngLat two, double threeLng, double threeLat, double fourLng, double fourLat){
 
         // Line 1 => one and two
         // Line 2 => three and four
 
-        double t = ((one.lng - three.lng)*(three.lat - four.lat) - (one.lat - three.lat)*(three.lng - four.lng))
+        double t = ((one.lng - threeLng)*(threeLat - fourLat) - (one.lat - threeLat)*(threeLng - fourLng))
                    /
-                   ((one.lng - two.lng)*(three.lat - four.lat) - (one.lat - two.lat)*(three.lng - four.lng));
+                   ((one.lng - two.lng)*(threeLat - fourLat) - (one.lat - two.lat)*(threeLng - fourLng));
 
-        double u = ((one.lng - three.lng)*(one.lat - two.lat) - (one.lat - three.lat)*(one.lng - two.lng))
+        double u = ((one.lng - threeLng)*(one.lat - two.lat) - (one.lat - threeLat)*(one.lng - two.lng))
                    /
-                   ((one.lng - two.lng)*(three.lat - four.lat) - (one.lat - two.lat)*(three.lng - four.lng));
+                   ((one.lng - two.lng)*(threeLat - fourLat) - (one.lat - two.lat)*(threeLng - fourLng));
 
         return (0 <= t) && (t <= 1) && (0 <= u) && (u <= 1);
     }
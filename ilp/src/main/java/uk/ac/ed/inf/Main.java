@@ -2,10 +2,14 @@ package uk.ac.ed.inf;
 
 import uk.ac.ed.inf.Exceptions.DateOutOfBoundsException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Main class of the PizzaDronz application.
@@ -32,25 +36,178 @@ public class Main {
      */
     private static boolean isValidDate(String date) throws DateTimeParseException {
 
-        LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
-        return (LocalDate.parse(date).isEqual(DATE_START) || LocalDate.parse(date).isAfter(DATE_START)) &&
-                (LocalDate.parse(date).isEqual(DATE_END) || LocalDate.parse(date).isBefore(DATE_END));
+        LocalDate parsedDate = LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
+        return !parsedDate.isBefore(DATE_START) && !parsedDate.isAfter(DATE_END);
     }
 
     /**
-     * Main method of the Application.
+     * Reads the optional planner settings given after the date and the URL, in the "--name=value" format.
+     *
      * @param args    User input.
+     * @return        Planner settings, with defaults for anything not supplied.
+     *
+     * @throws IllegalArgumentException    Is thrown when a setting is unknown or its value is invalid, or when
+     *                                      "--open-list" is given without "--search=NODES", the only search using it.
+     */
+    private static PlannerSettings parsePlannerSettings(String[] args) throws IllegalArgumentException {
+
+        var settings = new PlannerSettings();
+        boolean openListChosen = false;
+        for (int i = 2; i < args.length; i++) {
+            String[] setting = args[i].split("=", 2);
+            if (setting.length != 2) {
+                throw new IllegalArgumentException("Setting " + args[i] + " is not in the --name=value format.");
+            }
+            switch (setting[0]) {
+                case "--parallelism" -> settings.setParallelism(Integer.parseInt(setting[1]));
+                case "--open-list" -> settings.setOpenListType(OpenListType.valueOf(setting[1]));
+                case "--date-parallelism" -> settings.setDateParallelism(Integer.parseInt(setting[1]));
+                case "--validation-parallelism" -> settings.setValidationParallelism(Integer.parseInt(setting[1]));
+                case "--scheduling" -> settings.setOrderScheduling(OrderScheduling.valueOf(setting[1]));
+                case "--fleet-size" -> settings.setFleetSize(Integer.parseInt(setting[1]));
+                case "--pretty-output" -> settings.setPrettyOutput(parseBoolean(setting[1]));
+                case "--flightpath-format" -> settings.setFlightpathFormat(FlightpathFormat.valueOf(setting[1]));
+                case "--search" -> settings.setSearchType(SearchType.valueOf(setting[1]));
+                case "--symmetry-pruning" -> settings.setSymmetryPruning(parseBoolean(setting[1]));
+                case "--expansion-budget" -> settings.setExpansionBudget(Long.parseLong(setting[1]));
+                case "--anytime" -> settings.setAnytime(parseBoolean(setting[1]));
+                case "--route-cache" -> settings.setRouteCacheFile(setting[1]);
+                case "--snapshot-dir" -> settings.setSnapshotDirectory(setting[1]);
+                case "--snapshot-mode" -> settings.setSnapshotMode(SnapshotMode.valueOf(setting[1]));
+                case "--incremental" -> settings.setIncremental(parseBoolean(setting[1]));
+                case "--metrics" -> settings.setMetricsOutput(parseBoolean(setting[1]));
+                default -> throw new IllegalArgumentException("Unknown setting " + setting[0] + ".");
+            }
+            // the open list is only used by the NODES search, so it must not be silently ignored by the others
+            if (setting[0].equals("--open-list")) {
+                openListChosen = true;
+            }
+        }
+        if (openListChosen && settings.getSearchType() != SearchType.NODES) {
+            throw new IllegalArgumentException("Setting --open-list only applies to --search=NODES.");
+        }
+        return settings;
+    }
+
+    /**
+     * Strictly parses a boolean setting.
+     *
+     * @param value    Value of the setting.
+     * @return         <code>true</code> or <code>false</code>.
+     *
+     * @throws IllegalArgumentException    Is thrown when the value is neither "true" nor "false".
+     */
+    private static boolean parseBoolean(String value) throws IllegalArgumentException {
+
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("Value " + value + " is neither true nor false.");
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Batch mode of the Application. Plans every date in a range in one run, and writes a summary of the timings for
+     * every date besides the usual files.
+     *
+     * @param startDate    First date to plan.
+     * @param endDate      Last date to plan.
+     * @param baseURL      URL of the REST-server.
+     * @param settings     Planner settings.
+     */
+    private static void planDateRange(String startDate, String endDate, String baseURL, PlannerSettings settings) {
+
+        long start = System.currentTimeMillis();
+        BatchPlanner batchPlanner = null;
+        try {
+            batchPlanner = new BatchPlanner(baseURL, settings);
+        } catch (CompletionException e) {
+            System.out.println("Data cannot be loaded from the REST-server or the snapshots.");
+            System.exit(1);
+        }
+        long loaded = System.currentTimeMillis();
+
+        List<BatchPlanner.DateSummary> summaries = batchPlanner.planDates(LocalDate.parse(startDate), LocalDate.parse(endDate));
+        FileGeneration.toJsonFileBatchSummary(summaries, batchPlanner.getValidationStage(), startDate, endDate, loaded - start, System.currentTimeMillis() - start);
+        if (settings.isMetricsOutput()) {
+            FileGeneration.toFilesMetrics(settings.getMetrics(), startDate + "-" + endDate);
+        }
+    }
+
+    /**
+     * Incremental mode of the Application. Fetches the Central Area, No-Fly zones and Restaurants, and then plans the
+     * Orders read from the standard input, one JSON Order per line, as they arrive. The outcome of every Order is
+     * printed as soon as it has been planned, and the files of the date grow with every Order. Lines that are not
+     * Orders, and Orders placed for another date, are reported and skipped.
+     *
+     * @param date        Date of the Orders.
+     * @param baseURL     URL of the REST-server.
+     * @param settings    Planner settings.
+     */
+    private static void planIncrementally(String date, String baseURL, PlannerSettings settings) {
+
+        var loader = RestDataLoader.forSettings(baseURL, settings);
+        CompletableFuture<List<LngLat>> centralArea = loader.loadCentralArea();
+        CompletableFuture<List<List<LngLat>>> noFlyZones = loader.loadNoFlyZones();
+        CompletableFuture<Map<String, Restaurant>> restaurants = loader.loadRestaurants();
+
+        Map<String, Restaurant> restaurantMap = null;
+        List<LngLat> centralAreaList = null;
+        List<List<LngLat>> noFlyZoneList = null;
+        try {
+            restaurantMap = restaurants.join();
+            centralAreaList = centralArea.join();
+            noFlyZoneList = noFlyZones.join();
+        } catch (CompletionException e) {
+            System.out.println("Data cannot be loaded from the REST-server or the snapshots.");
+            System.exit(1);
+        }
+
+        try (var planner = new IncrementalPlanner(restaurantMap, centralAreaList, noFlyZoneList, date, settings)) {
+            System.out.println("Ready for the Orders of " + date + ".");
+
+            Order.readOrderStream(System.in, order -> {
+                try {
+                    long start = System.nanoTime();
+                    OrderOutcome outcome = planner.accept(order);
+                    System.out.printf("Order %s: %s in %.3f ms, %d moves left.%n", order.getOrderNo(), outcome, (System.nanoTime() - start) / 1e6, planner.getMovesLeft());
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage() + " It is skipped.");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Incremental planning stopped. " + e.getMessage());
+        }
+
+        if (settings.isMetricsOutput()) {
+            FileGeneration.toFilesMetrics(settings.getMetrics(), date);
+        }
+    }
+
+    /**
+     * Main method of the Application.
+     * @param args    User input. A date or a range of dates like "2023-01-01..2023-01-31", the URL of the REST-server,
+     *                and optionally planner settings such as "--parallelism=4", "--metrics=true" or "--route-cache=routes.bin".
+     *                "--open-list=PRIORITY_QUEUE" chooses the open list of the NODES search, so it has to be given together
+     *                with "--search=NODES", as the default ARENA search has its own open list.
      */
 
     public static void main(String[] args) {
 
-        // Date to complete all the order on, and URL of the Rest Server
+        // Date to complete all the order on (or a range of dates, like "2023-01-01..2023-01-31"), and URL of the Rest Server
         String date = args[0];
         String baseURL = args[1];
+        String[] dateRange = date.split("\\.\\.", 2);
 
         try {
-            if (!isValidDate(date)) {
-                throw new DateOutOfBoundsException("Date out of bounds");
+            for (String rangeDate : dateRange) {
+                if (!isValidDate(rangeDate)) {
+                    throw new DateOutOfBoundsException("Date out of bounds");
+                }
+            }
+            if (dateRange.length == 2 && LocalDate.parse(dateRange[0]).isAfter(LocalDate.parse(dateRange[1]))) {
+                throw new DateOutOfBoundsException("Date range ends before it starts");
             }
         } catch (NullPointerException e) {
             System.out.println("Date has not been supplied.");
@@ -74,15 +231,84 @@ public class Main {
         }
 
 
-        // Accessing the Server for all the necessary data
-        CentralAreaAccess centralAreaInstance = CentralAreaAccess.getInstance(baseURL);
-        NoFlyZonesAccess noFlyZonesInstance = NoFlyZonesAccess.getInstance(baseURL);
-        Map<String, Restaurant> availableRestaurants = Restaurant.getRestaurantsFromRestServer(baseURL);
-        List<Order> todaysValidatedOrders = Order.getOrdersByDate(baseURL, date, availableRestaurants.values().stream().toList());
+        PlannerSettings settings = null;
+        try {
+            settings = parsePlannerSettings(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid planner settings. " + e.getMessage());
+            System.exit(1);
+        }
 
 
-        // Returns a Map between an Order Number and a path for that Order (Only Valid Delivered orders will appear in the Map)
-        Map<String, List<Node>> orderPathMap = DroneControl.calculateDronesPath(todaysValidatedOrders, availableRestaurants, centralAreaInstance.getEdgesOfCentralArea(), noFlyZonesInstance.getNoFlyZones());
+        if (dateRange.length == 2) {
+            if (settings.isIncremental()) {
+                System.out.println("Incremental mode plans a single date.");
+                System.exit(1);
+            }
+            planDateRange(dateRange[0], dateRange[1], baseURL, settings);
+            return;
+        }
+
+        if (settings.isIncremental()) {
+            planIncrementally(date, baseURL, settings);
+            return;
+        }
+
+
+        // Accessing the Server for all the necessary data, all requests are sent at once and Orders are validated
+        // as soon as they and the Restaurants have arrived
+        long fetchStart = System.nanoTime();
+        var loader = RestDataLoader.forSettings(baseURL, settings);
+        CompletableFuture<List<LngLat>> centralArea = loader.loadCentralArea();
+        CompletableFuture<List<List<LngLat>>> noFlyZones = loader.loadNoFlyZones();
+        CompletableFuture<Map<String, Restaurant>> restaurants = loader.loadRestaurants();
+        int validationParallelism = settings.getValidationParallelism();
+        PlannerMetrics metrics = settings.getMetrics();
+        // the menus are indexed once, as soon as the Restaurants have arrived, and the index serves every Order
+        CompletableFuture<OrderValidationStage> validationStage = restaurants.thenApply(restaurantMap ->
+                new OrderValidationStage(new MenuIndex(restaurantMap.values().stream().toList()), validationParallelism, metrics));
+        CompletableFuture<List<Order>> orders = loader.loadOrdersWith(date, validationStage);
+
+        // With a snapshot store, data that can be taken neither from the server nor from a snapshot ends the run,
+        // rather than planning a day of no deliveries
+        Map<String, Restaurant> availableRestaurants = null;
+        List<Order> todaysValidatedOrders = null;
+        List<LngLat> centralAreaList = null;
+        List<List<LngLat>> noFlyZoneList = null;
+        try {
+            availableRestaurants = restaurants.join();
+            todaysValidatedOrders = orders.join();
+            centralAreaList = centralArea.join();
+            noFlyZoneList = noFlyZones.join();
+        } catch (CompletionException e) {
+            System.out.println("Data cannot be loaded from the REST-server or the snapshots.");
+            System.exit(1);
+        }
+        metrics.recordFetch(System.nanoTime() - fetchStart);
+
+
+        // A fleet shares the day's Orders between its Drones, and every Drone gets its own flightpath and drone files
+        if (settings.getFleetSize() > 1) {
+            List<FleetPlanner.DronePlan> dronePlans = FleetPlanner.planFleet(todaysValidatedOrders, availableRestaurants, centralAreaList,
+                    new NoFlyZoneIndex(noFlyZoneList), DroneControl.createRouteCache(centralAreaList, noFlyZoneList, settings), settings, date);
+            FileGeneration.toFleetDayFiles(todaysValidatedOrders, dronePlans, date, settings);
+            if (settings.isMetricsOutput()) {
+                FileGeneration.toFilesMetrics(metrics, date);
+            }
+            return;
+        }
+
+
+        // Returns a Map between an Order Number and a path for that Order (Only Valid Delivered orders will appear in the Map),
+        // the path of every Order is written into the flightpath file as soon as it has been planned
+        Map<String, List<Node>> orderPathMap = null;
+        try (FlightpathWriter flightpath = FileGeneration.openFlightpath(date, settings)) {
+            orderPathMap = DroneControl.calculateDronesPath(todaysValidatedOrders, availableRestaurants, centralAreaList, new NoFlyZoneIndex(noFlyZoneList),
+                    DroneControl.createRouteCache(centralAreaList, noFlyZoneList, settings), settings, flightpath);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Flightpath file cannot be created/written.");
+            System.exit(1);
+        }
 
 
         // Extracting coordinates of flightpath
@@ -94,9 +320,10 @@ public class Main {
         }
 
         // Generating the necessary files for the date
-        FileGeneration.toJsonFileOrders(todaysValidatedOrders, date);
-        FileGeneration.toJsonFileFlightpath(orderPathMap, date);
-        FileGeneration.toGeojsonLine(pathCoordinates, date);
+        FileGeneration.toDayFiles(todaysValidatedOrders, pathCoordinates, date, settings);
+        if (settings.isMetricsOutput()) {
+            FileGeneration.toFilesMetrics(metrics, date);
+        }
     }
 
 }
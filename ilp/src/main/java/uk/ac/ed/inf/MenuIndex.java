@@ -0,0 +1,131 @@
+package uk.ac.ed.inf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over the menus of all participating Restaurants, built once and shared by the validation of every Order.
+ * Maps the name of every pizza to the Restaurants that sell it and their prices, so that the Restaurant and the price
+ * of an Order can be resolved with a few hash lookups per item.
+ */
+public class MenuIndex {
+
+    /**
+     * Restaurants that sell a pizza, and the price of the pizza in each of them.
+     *
+     * @param restaurants    Positions of the Restaurants in the list the index was built from, in ascending order.
+     * @param prices         Prices in pence of the pizza, at the same positions as in the "restaurants" array.
+     */
+    private record Suppliers(int[] restaurants, int[] prices) {
+
+        /**
+         * Finds the price of the pizza in a given Restaurant.
+         *
+         * @param restaurant    Position of the Restaurant.
+         * @return              Position of the Restaurant in the "restaurants" array, negative if it does not sell the pizza.
+         */
+        int indexOf(int restaurant) {
+            return Arrays.binarySearch(restaurants, restaurant);
+        }
+    }
+
+    /**
+     * Participating Restaurants, in the order the index was built from.
+     */
+    private final List<Restaurant> restaurants;
+
+    /**
+     * Mapping between the name of every pizza and the Restaurants that sell it.
+     */
+    private final Map<String, Suppliers> suppliers = new HashMap<>();
+
+    /**
+     * Builds the index over the menus of the given Restaurants. When a Restaurant lists the same pizza more than once,
+     * its first price is used.
+     *
+     * @param restaurants    List of participating Restaurants.
+     */
+    public MenuIndex(List<Restaurant> restaurants) {
+        this.restaurants = restaurants;
+
+        for (int r = 0; r < restaurants.size(); r++) {
+            for (Menu menuItem : restaurants.get(r).getMenuItems()) {
+                Suppliers current = suppliers.get(menuItem.getName());
+                if (current == null) {
+                    suppliers.put(menuItem.getName(), new Suppliers(new int[]{r}, new int[]{menuItem.getPriceInPence()}));
+                } else if (current.restaurants[current.restaurants.length - 1] != r) {
+                    int length = current.restaurants.length;
+                    int[] restaurantPositions = Arrays.copyOf(current.restaurants, length + 1);
+                    int[] prices = Arrays.copyOf(current.prices, length + 1);
+                    restaurantPositions[length] = r;
+                    prices[length] = menuItem.getPriceInPence();
+                    suppliers.put(menuItem.getName(), new Suppliers(restaurantPositions, prices));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a pizza is on the menu of any participating Restaurant.
+     *
+     * @param pizza    Name of a pizza.
+     * @return         <code>true</code> if some Restaurant sells the pizza.
+     */
+    public boolean contains(String pizza) {
+        return suppliers.containsKey(pizza);
+    }
+
+    /**
+     * Finds the first Restaurant, in the order the index was built from, whose menu contains all the given pizzas.
+     *
+     * @param pizzas    Names of pizzas.
+     * @return          Position of the Restaurant, -1 if no single Restaurant sells all the pizzas.
+     */
+    public int findRestaurant(String[] pizzas) {
+
+        Suppliers first = suppliers.get(pizzas[0]);
+        if (first == null) {
+            return -1;
+        }
+
+        // candidates are the Restaurants selling the first pizza, tried in ascending order
+        for (int restaurant : first.restaurants) {
+            boolean sellsAll = true;
+            for (int i = 1; i < pizzas.length && sellsAll; i++) {
+                Suppliers other = suppliers.get(pizzas[i]);
+                sellsAll = other != null && other.indexOf(restaurant) >= 0;
+            }
+            if (sellsAll) {
+                return restaurant;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the price of a pizza in a given Restaurant.
+     *
+     * @param restaurant    Position of the Restaurant, as returned by findRestaurant.
+     * @param pizza         Name of a pizza.
+     * @return              Price of the pizza in pence. 0 if the Restaurant does not sell it.
+     */
+    public int getPrice(int restaurant, String pizza) {
+
+        Suppliers pizzaSuppliers = suppliers.get(pizza);
+        if (pizzaSuppliers == null) {
+            return 0;
+        }
+        int index = pizzaSuppliers.indexOf(restaurant);
+        return index < 0 ? 0 : pizzaSuppliers.prices[index];
+    }
+
+    /**
+     * @param restaurant    Position of the Restaurant, as returned by findRestaurant.
+     * @return              The Restaurant.
+     */
+    public Restaurant getRestaurant(int restaurant) {
+        return restaurants.get(restaurant);
+    }
+}
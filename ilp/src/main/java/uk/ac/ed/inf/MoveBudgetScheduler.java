@@ -0,0 +1,90 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses the Valid Orders that the Drones of a day deliver, so that as many Orders as possible are delivered
+ * without any Drone's moves going over the moves limit.
+ * <p>
+ * Every Order from a Restaurant costs the moves of the round trip along the Restaurant's route, and every delivered
+ * Order counts the same. Packing the most Orders into the limit is then a knapsack whose items all have the same
+ * value, and taking the cheapest Orders first solves it exactly: any packing with more Orders would have to contain
+ * more of the cheapest ones. With several Drones, every Order, cheapest first, is given to the Drone with the most
+ * moves left, and the packing stops at the first Order that does not fit into it.
+ *
+ * @see uk.ac.ed.inf.OrderScheduling#MOVE_BUDGET
+ */
+public class MoveBudgetScheduler {
+
+    /**
+     * Chooses the Orders a single Drone delivers.
+     *
+     * @param todaysOrders    List of Validated Orders.
+     * @param restaurants     Mapping between the name of every participating Restaurant and the Restaurant.
+     * @param routeCache      Cache holding the route to every accessible Restaurant.
+     * @param movesLimit      Maximum number of moves the Drone can make.
+     * @return                List of the Orders to deliver, in the order they are delivered in.
+     */
+    public static List<Order> schedule(List<Order> todaysOrders, Map<String, Restaurant> restaurants, RouteCache routeCache, int movesLimit) {
+        return schedule(todaysOrders, restaurants, routeCache, movesLimit, 1).get(0);
+    }
+
+    /**
+     * Chooses the Orders every Drone of a fleet delivers.
+     *
+     * @param todaysOrders    List of Validated Orders.
+     * @param restaurants     Mapping between the name of every participating Restaurant and the Restaurant.
+     * @param routeCache      Cache holding the route to every accessible Restaurant.
+     * @param movesLimit      Maximum number of moves every Drone can make.
+     * @param drones          Number of Drones.
+     * @return                List of the Orders to deliver by every Drone, in the order they are delivered in.
+     */
+    public static List<List<Order>> schedule(List<Order> todaysOrders, Map<String, Restaurant> restaurants, RouteCache routeCache, int movesLimit, int drones) {
+
+        // Orders that are valid and from an accessible Restaurant, with the moves of their round trips
+        var orders = new ArrayList<Order>();
+        var costs = new ArrayList<Integer>();
+        for (Order order : todaysOrders) {
+            if (order.getOrderOutcome() != OrderOutcome.ValidButNotDelivered) {
+                continue;
+            }
+            RouteCache.Route route = routeCache.get(restaurants.get(order.getRestaurantName()).getLocation());
+            if (route != null) {
+                orders.add(order);
+                costs.add(route.moves());
+            }
+        }
+
+        // the sort is stable, so Orders of the same cost keep the order they were placed in
+        var byCost = new ArrayList<Integer>();
+        for (int i = 0; i < orders.size(); i++) {
+            byCost.add(i);
+        }
+        byCost.sort(Comparator.comparing(costs::get));
+
+        var scheduled = new ArrayList<List<Order>>(drones);
+        for (int i = 0; i < drones; i++) {
+            scheduled.add(new ArrayList<Order>());
+        }
+        int[] movesUsed = new int[drones];
+
+        for (int i : byCost) {
+            int drone = 0;
+            for (int d = 1; d < drones; d++) {
+                if (movesUsed[d] < movesUsed[drone]) {
+                    drone = d;
+                }
+            }
+            // every later Order costs at least as much, so none of them fits either
+            if (movesUsed[drone] + costs.get(i) > movesLimit) {
+                break;
+            }
+            scheduled.get(drone).add(orders.get(i));
+            movesUsed[drone] += costs.get(i);
+        }
+        return scheduled;
+    }
+}
@@ -0,0 +1,293 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled index over the No-Fly zones, used to answer collision queries during path calculation while only looking
+ * at the edges and zones near the queried coordinates. Every query gives exactly the same result as the
+ * corresponding method on LngLat, which tests every edge of every zone.
+ * <p>
+ * Edges are bucketed into a uniform grid of square cells, each edge being stored in every cell its bounding box
+ * overlaps. Every zone additionally keeps its own bounding box.
+ *
+ * @see uk.ac.ed.inf.LngLat#lineCrossesNoFlyZone(LngLat, LngLat, List)
+ * @see uk.ac.ed.inf.LngLat#pointInsideNoFlyZone(List)
+ */
+public class NoFlyZoneIndex {
+
+    /**
+     * Default side length of a single cell of the edge grid, equal to four Drone moves.
+     */
+    public static final double DEFAULT_CELL_SIZE = 0.0006;
+
+    /**
+     * Margin added around a queried line before looking up the cells, so that an edge which the intersection test
+     * reports through rounding, just outside the line's bounding box, is still visited.
+     */
+    private static final double QUERY_MARGIN = 1e-9;
+
+    /**
+     * Side length of a single cell of the edge grid.
+     */
+    private final double cellSize;
+
+    /**
+     * First points of all edges of all No-Fly zones.
+     */
+    private final LngLat[] edgeStarts;
+
+    /**
+     * Second points of all edges of all No-Fly zones, at the same positions as in the "edgeStarts" array.
+     */
+    private final LngLat[] edgeEnds;
+
+    /**
+     * Keys of the cells that some edge overlaps, in an open addressing hash table whose size is a power of two.
+     * Looking a cell up does not box its key.
+     */
+    private final long[] cellKeys;
+
+    /**
+     * Positions of the edges that overlap every cell, at the same positions as in the "cellKeys" array. <code>null</code> for empty slots.
+     */
+    private final int[][] cellEdges;
+
+    /**
+     * No-Fly zones, as lists of their edge coordinates.
+     */
+    private final List<List<LngLat>> noFlyZones;
+
+    /**
+     * Bounding boxes of the No-Fly zones, as {minLng, minLat, maxLng, maxLat}, at the same positions as in the "noFlyZones" list.
+     */
+    private final double[][] zoneBounds;
+
+    /**
+     * Visibility graph over the No-Fly zones, built on its first use.
+     */
+    private volatile VisibilityGraph visibilityGraph;
+
+    /**
+     * Compiles the index over a list of No-Fly zones, with the default cell size.
+     *
+     * @param noFlyZones    List of lists of edge coordinates defining zones that the Drone cannot enter.
+     */
+    public NoFlyZoneIndex(List<List<LngLat>> noFlyZones) {
+        this(noFlyZones, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Compiles the index over a list of No-Fly zones.
+     *
+     * @param noFlyZones    List of lists of edge coordinates defining zones that the Drone cannot enter.
+     * @param cellSize      Side length of a single cell of the edge grid.
+     */
+    public NoFlyZoneIndex(List<List<LngLat>> noFlyZones, double cellSize) {
+        this.cellSize = cellSize;
+        this.noFlyZones = noFlyZones;
+        this.zoneBounds = new double[noFlyZones.size()][];
+
+        var starts = new ArrayList<LngLat>();
+        var ends = new ArrayList<LngLat>();
+        var cellLists = new HashMap<Long, List<Integer>>();
+
+        for (int z = 0; z < noFlyZones.size(); z++) {
+            List<LngLat> noFlyZone = noFlyZones.get(z);
+            double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+            // edges are taken in the same way as in LngLat, the last point connecting back to the first one
+            int len = noFlyZone.size();
+            for (int i = 0; i < len; i++) {
+                LngLat one = noFlyZone.get(i);
+                LngLat two = noFlyZone.get((i + 1) % len);
+
+                bounds[0] = Math.min(bounds[0], one.lng());
+                bounds[1] = Math.min(bounds[1], one.lat());
+                bounds[2] = Math.max(bounds[2], one.lng());
+                bounds[3] = Math.max(bounds[3], one.lat());
+
+                int edge = starts.size();
+                starts.add(one);
+                ends.add(two);
+
+                for (int x = cellIndex(Math.min(one.lng(), two.lng())); x <= cellIndex(Math.max(one.lng(), two.lng())); x++) {
+                    for (int y = cellIndex(Math.min(one.lat(), two.lat())); y <= cellIndex(Math.max(one.lat(), two.lat())); y++) {
+                        cellLists.computeIfAbsent(cellKey(x, y), k -> new ArrayList<>()).add(edge);
+                    }
+                }
+            }
+            zoneBounds[z] = bounds;
+        }
+
+        this.edgeStarts = starts.toArray(new LngLat[0]);
+        this.edgeEnds = ends.toArray(new LngLat[0]);
+        int capacity = Integer.highestOneBit(Math.max(1, cellLists.size()) * 2) * 2;
+        this.cellKeys = new long[capacity];
+        this.cellEdges = new int[capacity][];
+        for (Map.Entry<Long, List<Integer>> entry : cellLists.entrySet()) {
+            int slot = findSlot(entry.getKey());
+            cellKeys[slot] = entry.getKey();
+            cellEdges[slot] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Check whether line between two given LngLat points crosses any of the No-Fly zones' edges. Only the edges in
+     * the cells overlapping the line are tested.
+     *
+     * @param pointOne      First point that defines a line.
+     * @param pointTwo      Second point that defines a line.
+     * @return              <code>true</code> if the line defined by the two points crosses any of the No-Fly zones' edges.
+     *
+     * @see uk.ac.ed.inf.LngLat#lineCrossesNoFlyZone(LngLat, LngLat, List)
+     */
+    public boolean lineCrossesNoFlyZone(LngLat pointOne, LngLat pointTwo) {
+        return lineCrossesNoFlyZone(pointOne.lng(), pointOne.lat(), pointTwo.lng(), pointTwo.lat());
+    }
+
+    /**
+     * Check whether line between two points given by their coordinates crosses any of the No-Fly zones' edges.
+     *
+     * @param oneLng        Longitude of the first point that defines a line.
+     * @param oneLat        Latitude of the first point that defines a line.
+     * @param twoLng        Longitude of the second point that defines a line.
+     * @param twoLat        Latitude of the second point that defines a line.
+     * @return              <code>true</code> if the line defined by the two points crosses any of the No-Fly zones' edges.
+     */
+    public boolean lineCrossesNoFlyZone(double oneLng, double oneLat, double twoLng, double twoLat) {
+
+        int minX = cellIndex(Math.min(oneLng, twoLng) - QUERY_MARGIN);
+        int maxX = cellIndex(Math.max(oneLng, twoLng) + QUERY_MARGIN);
+        int minY = cellIndex(Math.min(oneLat, twoLat) - QUERY_MARGIN);
+        int maxY = cellIndex(Math.max(oneLat, twoLat) + QUERY_MARGIN);
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                int[] edges = cellEdges[findSlot(cellKey(x, y))];
+                if (edges == null) {
+                    continue;
+                }
+                for (int edge : edges) {
+                    if (LngLat.lineIntersection(edgeStarts[edge], edgeEnds[edge], oneLng, oneLat, twoLng, twoLat)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifies whether a LngLat point falls within any of the No-Fly zones. Zones are skipped when the point is
+     * below, above or to the right of their bounding box, as the ray cast in LngLat can never cross one of their
+     * edges then.
+     *
+     * @param point         LngLat point.
+     * @return              <code>true</code> if the point falls within a No-Fly zone.
+     *
+     * @see uk.ac.ed.inf.LngLat#pointInsideNoFlyZone(List)
+     */
+    public boolean pointInsideNoFlyZone(LngLat point) {
+        return pointInsideNoFlyZone(point.lng(), point.lat());
+    }
+
+    /**
+     * Verifies whether a point given by its coordinates falls within any of the No-Fly zones.
+     *
+     * @param lng           Longitude of the point.
+     * @param lat           Latitude of the point.
+     * @return              <code>true</code> if the point falls within a No-Fly zone.
+     */
+    public boolean pointInsideNoFlyZone(double lng, double lat) {
+
+        for (int z = 0; z < zoneBounds.length; z++) {
+            double[] bounds = zoneBounds[z];
+            if (lat < bounds[1] || lat > bounds[3] || lng >= bounds[2]) {
+                continue;
+            }
+            if (LngLat.inArea(lng, lat, noFlyZones.get(z))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether any No-Fly zone edge may be near a point, by looking up the cells overlapping the square of side
+     * 2 * radius around it.
+     *
+     * @param lng           Longitude of the point.
+     * @param lat           Latitude of the point.
+     * @param radius        Half the side length of the square around the point.
+     * @return              <code>true</code> if some edge overlaps a cell that the square overlaps.
+     */
+    public boolean hasEdgesNear(double lng, double lat, double radius) {
+
+        for (int x = cellIndex(lng - radius); x <= cellIndex(lng + radius); x++) {
+            for (int y = cellIndex(lat - radius); y <= cellIndex(lat + radius); y++) {
+                if (cellEdges[findSlot(cellKey(x, y))] != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the visibility graph over the No-Fly zones, building it the first time it is needed.
+     *
+     * @return    Visibility graph over the No-Fly zones.
+     */
+    public VisibilityGraph getVisibilityGraph() {
+        VisibilityGraph graph = visibilityGraph;
+        if (graph == null) {
+            synchronized (this) {
+                graph = visibilityGraph;
+                if (graph == null) {
+                    graph = new VisibilityGraph(noFlyZones);
+                    visibilityGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Finds the slot of the hash table holding a cell, or the empty slot where it would be put.
+     *
+     * @param key    Key of the cell.
+     * @return       Position of the slot.
+     */
+    private int findSlot(long key) {
+        int mask = cellKeys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (cellEdges[slot] != null && cellKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Index of the cell along one axis that a given value falls in.
+     *
+     * @param value     Longitude or Latitude value.
+     * @return          Index of the cell.
+     */
+    private int cellIndex(double value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    /**
+     * Combines the two indices of a cell into a single key.
+     *
+     * @param x     Index of the cell along the Longitude axis.
+     * @param y     Index of the cell along the Latitude axis.
+     * @return      Key of the cell.
+     */
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +19,11 @@ public class NoFlyZonesAccess {
      */
     private static NoFlyZonesAccess instance;
 
+    /**
+     * Object mapper shared by all de-serializations of the No-Fly zones.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * List of lists of edges of different No-Fly zones.
      */
@@ -38,31 +44,43 @@ public class NoFlyZonesAccess {
      */
     private NoFlyZonesAccess(String baseServerURL) {
 
-        try {
-            var serverAddress = new URL(baseServerURL + "noFlyZones");
-            NoFlyZoneProperties[] response = new ObjectMapper().readValue(serverAddress, NoFlyZoneProperties[].class);
-            noFlyZones = new ArrayList<>();
+        try (InputStream response = new URL(baseServerURL + "noFlyZones").openStream()) {
+            noFlyZones = readNoFlyZones(response);
+        } catch(IOException ex){
+            // in case a URL is malformed or the server under a given address has not been found it will return empty list
+            noFlyZones = new ArrayList<List<LngLat>>();
+        }
+    }
 
-            for (NoFlyZoneProperties noFlyZoneProperties : response) {
+    /**
+     * De-serializes the definitions of the No-Fly zones, as returned by the REST-service, into a List of their edges.
+     *
+     * @param response      JSON response of the REST-service.
+     * @return              List of lists of edges of different No-Fly zones.
+     * @throws IOException  When the response cannot be read or is not a valid definition of the No-Fly zones.
+     */
+    public static List<List<LngLat>> readNoFlyZones(InputStream response) throws IOException {
 
-                // number of edges for i'th no fly zone
-                int z = noFlyZoneProperties.coordinates.length;
-                // list of edge coordinates list for i'th no fly zone
-                List<LngLat> lnglatcoors = new ArrayList<>();
+        NoFlyZoneProperties[] properties = MAPPER.readValue(response, NoFlyZoneProperties[].class);
+        var noFlyZones = new ArrayList<List<LngLat>>();
 
-                // adding list of edges to a list
-                for (int j = 0; j < z; j++) {
-                    double lng = noFlyZoneProperties.coordinates[j][0];
-                    double lat = noFlyZoneProperties.coordinates[j][1];
-                    lnglatcoors.add(new LngLat(lng, lat));
-                }
+        for (NoFlyZoneProperties noFlyZoneProperties : properties) {
 
-                noFlyZones.add(lnglatcoors);
+            // number of edges for i'th no fly zone
+            int z = noFlyZoneProperties.coordinates.length;
+            // list of edge coordinates list for i'th no fly zone
+            List<LngLat> lnglatcoors = new ArrayList<>();
+
+            // adding list of edges to a list
+            for (int j = 0; j < z; j++) {
+                double lng = noFlyZoneProperties.coordinates[j][0];
+                double lat = noFlyZoneProperties.coordinates[j][1];
+                lnglatcoors.add(new LngLat(lng, lat));
             }
-        } catch(IOException ex){
-            // in case a URL is malformed or the server under a given address has not been found it will return empty list
-            noFlyZones = new ArrayList<List<LngLat>>();
+
+            noFlyZones.add(lnglatcoors);
         }
+        return noFlyZones;
     }
 
 
@@ -77,7 +95,7 @@ public class NoFlyZonesAccess {
      * @param baseServerURL  String of the Base REST server address, like: "https://website.net/"
      * @return               Instance of this class.
      */
-    public static NoFlyZonesAccess getInstance( String baseServerURL ){
+    public static synchronized NoFlyZonesAccess getInstance( String baseServerURL ){
         if (instance == null) {
             instance = new NoFlyZonesAccess(baseServerURL);
         }
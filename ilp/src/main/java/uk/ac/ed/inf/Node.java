@@ -12,7 +12,7 @@ public class Node implements Comparable<Node> {
     /**
      * Constant that dictates the minimum allowed distance between two Nodes' coordinates.
      */
-    private static final double PROXIMITY_CONSTANT = 0.000075;
+    public static final double PROXIMITY_CONSTANT = 0.000075;
 
     /**
      * LngLat coordinate of a Node on the Drone's path
@@ -22,7 +22,7 @@ public class Node implements Comparable<Node> {
     /**
      * Weight represents a result of a weight function in calculatePathForOrder. The smaller, the closer the Node is to Restaurant's location.
      */
-    private Double weight;
+    private double weight;
 
     /**
      * Compass direction of current Node, in relation to the Node that came before in the Path.
@@ -40,7 +40,12 @@ public class Node implements Comparable<Node> {
      */
     private boolean inCentralArea;
 
-    public Node(LngLat coordinate, Double weight, Compass directionFromParent, long ticksSinceStartOfCalculation, boolean inCentralArea){
+    /**
+     * Position of the Node in an IndexedHeapOpenList, -1 when the Node is not in one.
+     */
+    private int openListIndex = -1;
+
+    public Node(LngLat coordinate, double weight, Compass directionFromParent, long ticksSinceStartOfCalculation, boolean inCentralArea){
         this.coordinate = coordinate;
         this.weight = weight;
         this.directionFromParent = directionFromParent;
@@ -90,7 +95,7 @@ public class Node implements Comparable<Node> {
         this.coordinate = coordinate;
     }
 
-    public void setWeight(Double weight) {
+    public void setWeight(double weight) {
         this.weight = weight;
     }
 
@@ -106,6 +111,10 @@ public class Node implements Comparable<Node> {
         this.inCentralArea = inCentralArea;
     }
 
+    void setOpenListIndex(int openListIndex) {
+        this.openListIndex = openListIndex;
+    }
+
     ////////////////////////
     ///      GETTERS     ///
     ////////////////////////
@@ -114,7 +123,7 @@ public class Node implements Comparable<Node> {
         return coordinate;
     }
 
-    public Double getWeight() {
+    public double getWeight() {
         return weight;
     }
 
@@ -127,4 +136,8 @@ public class Node implements Comparable<Node> {
     }
 
     public boolean getInCentralArea(){ return this.inCentralArea; }
+
+    int getOpenListIndex() {
+        return openListIndex;
+    }
 }
@@ -0,0 +1,59 @@
+package uk.ac.ed.inf;
+
+/**
+ * Open list of the path calculation. Holds the Nodes that are yet to be expanded, ordered by their weight so that the
+ * Node with the smallest weight is always expanded next.
+ *
+ * @see uk.ac.ed.inf.OpenListType
+ */
+public interface OpenList {
+
+    /**
+     * Adds a Node to the open list.
+     *
+     * @param node     Node to be added.
+     */
+    void add(Node node);
+
+    /**
+     * Returns the Node with the smallest weight, without removing it.
+     *
+     * @return         Node with the smallest weight, <code>null</code> if the open list is empty.
+     */
+    Node peek();
+
+    /**
+     * Removes and returns the Node with the smallest weight.
+     *
+     * @return         Node with the smallest weight, <code>null</code> if the open list is empty.
+     */
+    Node poll();
+
+    /**
+     * Removes a given Node from the open list.
+     *
+     * @param node     Node to be removed.
+     * @return         <code>true</code> if the Node was in the open list.
+     */
+    boolean remove(Node node);
+
+    /**
+     * Changes the weight of a Node which is already in the open list, and moves it to its new position.
+     *
+     * @param node     Node in the open list.
+     * @param weight   New weight of the Node.
+     */
+    void updateWeight(Node node, double weight);
+
+    /**
+     * @return         Number of Nodes in the open list.
+     */
+    int size();
+
+    /**
+     * @return         <code>true</code> if there are no Nodes in the open list.
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
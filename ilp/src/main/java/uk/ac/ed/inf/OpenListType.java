@@ -0,0 +1,29 @@
+package uk.ac.ed.inf;
+
+/**
+ * Enum of the available open list implementations used in path calculation.
+ */
+public enum OpenListType {
+
+    /**
+     * Open list backed by java.util.PriorityQueue.
+     */
+    PRIORITY_QUEUE,
+
+    /**
+     * Open list backed by an indexed binary heap over primitive weights.
+     */
+    INDEXED_HEAP;
+
+    /**
+     * Creates a new, empty open list of this type.
+     *
+     * @return      New open list.
+     */
+    public OpenList create() {
+        return switch (this) {
+            case PRIORITY_QUEUE -> new PriorityQueueOpenList();
+            case INDEXED_HEAP -> new IndexedHeapOpenList();
+        };
+    }
+}
@@ -1,18 +1,23 @@
 package uk.ac.ed.inf;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import uk.ac.ed.inf.Exceptions.*;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URL;
-import java.time.LocalDate;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-
-import static java.util.List.of;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Represents an Order taken by the customer. Additionally, used to pull Orders from a REST-server and de-serialize them, and validate individual Order object.
@@ -24,6 +29,11 @@ public class Order {
      */
     private static final int DELIVERY_FEE = 100;
 
+    /**
+     * Object mapper shared by all de-serializations of Orders.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * Unique Order Number for the Order.
      */
@@ -93,19 +103,8 @@ public class Order {
      */
     public static List<Order> getOrdersByDate(String baseServerURL, String date, List<Restaurant> restaurants){
 
-        try {
-            var url = new URL(baseServerURL + "orders/" + date);
-            Order[] response = new ObjectMapper().readValue(url, Order[].class);
-            var rawOrderList = new ArrayList<Order>(Arrays.asList(response));
-
-            // "ValidButNotDelivered" is set as the Default case for all Orders
-            for(Order order: rawOrderList){
-                order.orderOutcome = OrderOutcome.ValidButNotDelivered;
-            }
-
-            // Validates orders, will update all "ValidButNotDelivered" in case an order is Invalid
-            return validateOrders(restaurants, rawOrderList);
-
+        try (InputStream response = new URL(baseServerURL + "orders/" + date).openStream()) {
+            return readOrders(response, restaurants);
         } catch (IOException e) {
             // In case an Exception was caught it will return an empty list of type Order.
             return new ArrayList<Order>();
@@ -113,26 +112,111 @@ public class Order {
     }
 
     /**
-     * Finds and returns the price of a given pizza from a given menu.
+     * De-serializes the Orders, as returned by the REST-service, into a List of type Order and validates them. The
+     * menus are indexed for this response alone, so a run reading several responses should build one
+     * OrderValidationStage and read them all with it instead.
+     *
+     * @param response       JSON response of the REST-service.
+     * @param restaurants    List of participating restaurants.
+     * @return               An ArrayList object of type Order.
+     * @throws IOException   When the response cannot be read or is not a valid list of Orders.
+     */
+    public static List<Order> readOrders(InputStream response, List<Restaurant> restaurants) throws IOException {
+        return readOrders(response, new OrderValidationStage(restaurants, 1));
+    }
+
+    /**
+     * De-serializes the Orders, as returned by the REST-service, into a List of type Order and validates them with a
+     * validation stage while the response is being read.
      *
-     * @param menu            Menu of a Restaurant object.
-     * @param pizza           Name of a pizza.
-     * @return                Price of a corresponding pizza in the Menu. 0 otherwise.
+     * @param response           JSON response of the REST-service.
+     * @param validationStage    Stage validating the Orders against the participating restaurants.
+     * @return                   An ArrayList object of type Order, in the order of the response.
+     * @throws IOException       When the response cannot be read or is not a valid list of Orders.
      */
-    private static int getMenuItemPrice(Menu[] menu, String pizza) {
+    public static List<Order> readOrders(InputStream response, OrderValidationStage validationStage) throws IOException {
 
-        for (Menu value : menu) {
-            if (value.getName().equals(pizza)) {
-                return value.getPriceInPence();
+        var orders = new ArrayList<Order>();
+        streamOrders(response, validationStage, orders::add);
+        return orders;
+    }
+
+    /**
+     * De-serializes the Orders, as returned by the REST-service, one at a time while the response is being read.
+     * Every Order is validated by the stage and handed to the consumer, so only the Orders the stage is currently
+     * validating are held in memory here. The same stage, and its index over the menus, serves every response.
+     *
+     * @param response           JSON response of the REST-service.
+     * @param validationStage    Stage validating the Orders against the participating restaurants.
+     * @param consumer           Receives every validated Order, in the order of the response.
+     * @throws IOException       When the response cannot be read or is not a valid list of Orders. Orders read before
+     *                           the problem was found may already have been handed to the consumer.
+     * @see uk.ac.ed.inf.OrderValidationStage#validate(OrderValidationStage.OrderSource, Consumer)
+     */
+    public static void streamOrders(InputStream response, OrderValidationStage validationStage, Consumer<Order> consumer) throws IOException {
+        validationStage.validate(orders -> parseOrders(response, orders), consumer);
+    }
+
+    /**
+     * De-serializes a stream of single Orders, one JSON Order per line, handing every Order to the consumer as soon as
+     * its line has been read, without validating it. A line that is not an Order is reported and skipped, and blank
+     * lines are ignored. Reading ends with the stream.
+     *
+     * @param in          Stream of JSON Orders, one per line, not wrapped in a list.
+     * @param consumer    Receives every de-serialized Order, in the order of the stream.
+     * @throws IOException   When the stream cannot be read.
+     */
+    public static void readOrderStream(InputStream in, Consumer<Order> consumer) throws IOException {
+
+        var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            Order order;
+            try {
+                order = MAPPER.readValue(line, Order.class);
+            } catch (JsonProcessingException e) {
+                // a single malformed Order does not end the stream
+                System.out.println("Line " + lineNumber + " is not an Order, it is skipped. " + e.getOriginalMessage());
+                continue;
+            }
+            if (order == null) {
+                System.out.println("Line " + lineNumber + " is not an Order, it is skipped.");
+                continue;
+            }
+            consumer.accept(order);
+        }
+    }
+
+    /**
+     * De-serializes the Orders, as returned by the REST-service, one at a time while the response is being read,
+     * without validating them.
+     *
+     * @param response       JSON response of the REST-service.
+     * @param consumer       Receives every de-serialized Order, in the order of the response.
+     * @throws IOException   When the response cannot be read or is not a valid list of Orders.
+     */
+    private static void parseOrders(InputStream response, Consumer<Order> consumer) throws IOException {
+
+        try (JsonParser parser = MAPPER.getFactory().createParser(response)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected a list of Orders");
+            }
+
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                consumer.accept(MAPPER.readValue(parser, Order.class));
             }
         }
-        // returns 0 in case Pizza not found
-        return 0;
     }
 
     /** Calculates the cost of a particular order, given a list of names of menu items.
      *
-     * @param restaurants    Array of participating restaurants.
+     * @param menuIndex      Index over the menus of the participating restaurants.
      * @return               Integer representing a total price in pence of the order, based on the Order's items specified,
      *                       with a constant delivery charge of £1 added.
      *
@@ -141,7 +225,7 @@ public class Order {
      * @throws TooManyItemsInOrderException      When the order contains more than 4 items.
      * @throws PizzaNotFoundException            When some item in the Order does not appear in any Restaurant's menu.
      */
-    private int getDeliveryCost(List<Restaurant> restaurants) throws InvalidPizzaCombinationException, NoItemsInOrderException, TooManyItemsInOrderException, PizzaNotFoundException {
+    private int getDeliveryCost(MenuIndex menuIndex) throws InvalidPizzaCombinationException, NoItemsInOrderException, TooManyItemsInOrderException, PizzaNotFoundException {
 
         if(this.orderItems.length == 0){
             throw new NoItemsInOrderException("No pizzas in the order.");
@@ -151,78 +235,38 @@ public class Order {
             throw new TooManyItemsInOrderException("Too many items in the order.");
         }
 
-        // this checks whether all order items are in some Restaurant's menu
-
-        Restaurant orderRestaurant = null;
-        // all available items across all restaurants
-        var allAvailableItems = new HashSet<String>();
-        List<String> orderItems = of(this.orderItems);
-
-        for (Restaurant restaurant: restaurants){
-
-            // Names of Restaurant's Menu items
-            var menuNames = new HashSet<String>();
-
-            Arrays.stream(restaurant.getMenuItems()).toList().forEach(menuItem -> menuNames.add(menuItem.getName()));
-            Arrays.stream(restaurant.getMenuItems()).toList().forEach(menuItem -> allAvailableItems.add(menuItem.getName()));
-
-            // checks if given Restaurant's menu contains all items in the order
-            if (menuNames.containsAll(orderItems)) {
-                orderRestaurant = restaurant;
-                break;
-            }
-        }
+        // finds the first Restaurant whose menu contains all order items
+        int orderRestaurant = menuIndex.findRestaurant(this.orderItems);
 
         // If Order's items are not available in any one Restaurant, check if all of them exist from the pool of all
         // available Menu items across all restaurants
-        if (orderRestaurant == null){
-            if (allAvailableItems.containsAll(orderItems)){
-                throw new InvalidPizzaCombinationException("Order across multiple restaurants.");
-            } else {
-                throw new PizzaNotFoundException("Pizza not found");
+        if (orderRestaurant < 0){
+            for (String orderItem : this.orderItems) {
+                if (!menuIndex.contains(orderItem)) {
+                    throw new PizzaNotFoundException("Pizza not found");
+                }
             }
+            throw new InvalidPizzaCombinationException("Order across multiple restaurants.");
         }
 
         int totalPrice = 0;
 
         for (String orderItem : this.orderItems) {
-            int itemPrice = getMenuItemPrice(orderRestaurant.getMenuItems(), orderItem);
+            int itemPrice = menuIndex.getPrice(orderRestaurant, orderItem);
             totalPrice += itemPrice;
         }
 
         // only when all ordered items are valid and come from the same restaurant is the Restaurant name assigned to Order.
-        this.restaurantName = orderRestaurant.getName();
+        this.restaurantName = menuIndex.getRestaurant(orderRestaurant).getName();
         return totalPrice + DELIVERY_FEE;
     }
 
-    /**
-     * Verifies that a given expiry date is after the Order's date. Essentially verifies that the expiry date on the order is valid.
-     *
-     * @param expiryDate      Expiry date of a payment card.
-     * @param orderDate       Date of the order.
-     * @return                true when expiry date of the card is after the order's date (Card is valid)
-     */
-    private static boolean isCardExpiryAfterOrderDate(String expiryDate, String orderDate){
-
-        // verifies that expiryDate is in correct format
-        if(! expiryDate.matches("\\b(0[1-9]|1[0-2])+/+([0-9][0-9])\\b")){
-            return false;
-        }
-
-        int mm = Integer.parseInt(expiryDate.charAt(0) + "" + expiryDate.charAt(1));
-        int yyyy = Integer.parseInt("20" + expiryDate.charAt(3) + "" + expiryDate.charAt(4));
-        LocalDate expiry = LocalDate.of(yyyy, mm, 1);
-
-        return LocalDate.parse(orderDate).isBefore(expiry);
-
-    }
-
     /**
      * Verifies that the order number of the Order is valid.
      */
     private void isValidOrderNumber() {
 
-        boolean isValid = this.orderNo.length() == 8;
+        boolean isValid = OrderValidator.isValidOrderNumber(this.orderNo);
         if (!isValid){
             this.orderOutcome = OrderOutcome.Invalid;
         }
@@ -233,7 +277,7 @@ public class Order {
      */
     private void isValidCreditCardNumber() {
 
-        boolean isValid = this.creditCardNumber.length() == 16;
+        boolean isValid = OrderValidator.isValidCreditCardNumber(this.creditCardNumber);
         if (!isValid){
             this.orderOutcome = OrderOutcome.InvalidCardNumber;
         }
@@ -241,10 +285,12 @@ public class Order {
 
     /**
      * Verifies that the expiry date of the credit card used to pay for the Order is valid.
+     *
+     * @param orderDateMonths    Mapping between the order dates seen so far and their months.
      */
-    private void isValidCreditCardExpiry() {
+    private void isValidCreditCardExpiry(Map<String, Integer> orderDateMonths) {
 
-        boolean isValid = isCardExpiryAfterOrderDate(this.creditCardExpiry, this.orderDate);
+        boolean isValid = OrderValidator.isCardExpiryAfterOrderDate(this.creditCardExpiry, this.orderDate, orderDateMonths);
         if (!isValid){
             this.orderOutcome = OrderOutcome.InvalidExpiryDate;
         }
@@ -255,7 +301,7 @@ public class Order {
      */
     private void isValidCVV() {
 
-        boolean isValid = this.cvv.length() == 3;
+        boolean isValid = OrderValidator.isValidCVV(this.cvv);
         if (!isValid){
             this.orderOutcome = OrderOutcome.InvalidCvv;
         }
@@ -264,11 +310,13 @@ public class Order {
     /**
      * Verifies that the provided price for the Order is equal to the combined price of the all items listed
      * in a Restaurant's menu.
+     *
+     * @param menuIndex       Index over the menus of the participating Restaurants.
      */
-    private void isValidPrice(List<Restaurant> restaurants) {
+    private void isValidPrice(MenuIndex menuIndex) {
 
         try {
-            boolean isValid = this.priceTotalInPence == getDeliveryCost(restaurants);
+            boolean isValid = this.priceTotalInPence == getDeliveryCost(menuIndex);
             if (!isValid) {
                 this.orderOutcome = OrderOutcome.InvalidTotal;
             }
@@ -284,24 +332,22 @@ public class Order {
     }
 
     /**
-     * Validates all the order from a list. For each order, ensures the Order is valid; Items exist in some one given Restaurant, Valid card was used, Order
-     * components are Valid.
+     * Validates the Order; Items exist in some one given Restaurant, Valid card was used, Order components are Valid.
      *
-     * @param restaurants       List of available participating Restaurants.
-     * @param orders            List of Orders.
-     * @return                  List of Validated Orders.
+     * @param menuIndex          Index over the menus of the available participating Restaurants.
+     * @param orderDateMonths    Mapping between the order dates seen so far and their months, shared by the Orders
+     *                           validated together.
      */
-    private static List<Order> validateOrders(List<Restaurant> restaurants, List<Order> orders) {
+    void validate(MenuIndex menuIndex, Map<String, Integer> orderDateMonths) {
 
-        for(Order order: orders){
+        // "ValidButNotDelivered" is set as the Default case, and updated in case the Order is Invalid
+        this.orderOutcome = OrderOutcome.ValidButNotDelivered;
 
-            order.isValidOrderNumber();
-            order.isValidPrice(restaurants);
-            order.isValidCVV();
-            order.isValidCreditCardNumber();
-            order.isValidCreditCardExpiry();
-        }
-        return orders;
+        isValidOrderNumber();
+        isValidPrice(menuIndex);
+        isValidCVV();
+        isValidCreditCardNumber();
+        isValidCreditCardExpiry(orderDateMonths);
     }
 
 
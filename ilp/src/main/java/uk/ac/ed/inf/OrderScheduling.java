@@ -0,0 +1,21 @@
+package uk.ac.ed.inf;
+
+/**
+ * Enum of the available ways of choosing which Valid Orders a Drone delivers, and in which order.
+ *
+ * @see uk.ac.ed.inf.DroneControl#calculateDronesPath(java.util.List, java.util.Map, java.util.List, NoFlyZoneIndex, RouteCache, PlannerSettings)
+ */
+public enum OrderScheduling {
+
+    /**
+     * Orders grouped by the Restaurants ranked by their path lengths, delivered until the moves used go over the
+     * moves limit. The last delivered Order may take the Drone over the limit.
+     */
+    RESTAURANT_RANKING,
+
+    /**
+     * Orders packed by the MoveBudgetScheduler, cheapest round trip first, so that as many Orders as possible are
+     * delivered without the Drone's moves ever going over the limit.
+     */
+    MOVE_BUDGET
+}
@@ -0,0 +1,299 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Validates lists of Orders against the participating Restaurants. Orders are independent of each other and the
+ * Restaurants' menus are indexed once and only read afterwards, so with a parallelism level above 1 the Orders are
+ * validated concurrently on a ForkJoinPool. Every Order is validated in place, so the results are the same and in
+ * the same order as when validating one Order after another.
+ * <p>
+ * Responses of the REST-service are validated while they are being parsed, in chunks when the parallelism level is
+ * above 1, so a response is never held in full before its validation starts.
+ * <p>
+ * A single stage can be shared by the validation of several lists, for example of several dates. It counts the
+ * Orders of every outcome and the wall-clock time spent validating across all of them, so the Orders per second show
+ * the speedup of validating on several threads.
+ */
+public class OrderValidationStage {
+
+    /**
+     * Functional interface for a source of Orders which hands every Order on as soon as it has been read, like a
+     * response of the REST-service being parsed.
+     */
+    @FunctionalInterface
+    public interface OrderSource {
+        void forEachOrder(Consumer<Order> consumer) throws IOException;
+    }
+
+    /**
+     * Number of Orders read from a source before they are validated together on the pool.
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * Index over the menus of the participating Restaurants, shared by every Order.
+     */
+    private final MenuIndex menuIndex;
+
+    /**
+     * Mapping between the order dates seen by this stage and their months, so every distinct date is parsed once.
+     */
+    private final Map<String, Integer> orderDateMonths = new ConcurrentHashMap<>();
+
+    /**
+     * Number of threads that Orders are validated on. 1 validates them one after another.
+     */
+    private final int parallelism;
+
+    /**
+     * Number of validated Orders of every outcome.
+     */
+    private final Map<OrderOutcome, LongAdder> outcomeCounts = new EnumMap<>(OrderOutcome.class);
+
+    /**
+     * Number of validated Orders.
+     */
+    private final LongAdder validatedOrders = new LongAdder();
+
+    /**
+     * Wall-clock nanoseconds spent validating lists and sources of Orders.
+     */
+    private final LongAdder validationNanos = new LongAdder();
+
+    /**
+     * Registry the validation of every list of Orders is recorded into.
+     */
+    private final PlannerMetrics metrics;
+
+    /**
+     * Creates a stage validating against the given Restaurants.
+     *
+     * @param restaurants    List of participating restaurants.
+     * @param parallelism    Number of threads that Orders are validated on.
+     */
+    public OrderValidationStage(List<Restaurant> restaurants, int parallelism) {
+        this(restaurants, parallelism, new PlannerMetrics());
+    }
+
+    /**
+     * Creates a stage validating against the given Restaurants, recording into the given metrics.
+     *
+     * @param restaurants    List of participating restaurants.
+     * @param parallelism    Number of threads that Orders are validated on.
+     * @param metrics        Registry the validation of every list of Orders is recorded into.
+     */
+    public OrderValidationStage(List<Restaurant> restaurants, int parallelism, PlannerMetrics metrics) {
+        this(new MenuIndex(restaurants), parallelism, metrics);
+    }
+
+    /**
+     * Creates a stage validating against an index over the menus which has already been built with the Restaurants,
+     * recording into the given metrics.
+     *
+     * @param menuIndex      Index over the menus of the participating restaurants.
+     * @param parallelism    Number of threads that Orders are validated on.
+     * @param metrics        Registry the validation of every list of Orders is recorded into.
+     */
+    public OrderValidationStage(MenuIndex menuIndex, int parallelism, PlannerMetrics metrics) {
+        this.menuIndex = menuIndex;
+        this.parallelism = parallelism;
+        this.metrics = metrics;
+        for (OrderOutcome outcome : OrderOutcome.values()) {
+            outcomeCounts.put(outcome, new LongAdder());
+        }
+    }
+
+    /**
+     * Validates a list of Orders, updating the outcome of every Order in it.
+     *
+     * @param orders    List of de-serialized Orders.
+     * @return          The same list, with every Order validated.
+     * @throws IllegalStateException    When the calling thread is interrupted while the Orders are being validated.
+     */
+    public List<Order> validate(List<Order> orders) {
+
+        long start = System.nanoTime();
+
+        if (parallelism <= 1 || orders.size() <= 1) {
+            for (Order order : orders) {
+                validate(order);
+            }
+        } else {
+            var pool = new ForkJoinPool(parallelism);
+            try {
+                // a parallel stream started inside a ForkJoinPool runs on that pool
+                pool.submit(() -> IntStream.range(0, orders.size()).parallel().forEach(i -> validate(orders.get(i)))).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Validation of the Orders was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        long nanos = System.nanoTime() - start;
+        validationNanos.add(nanos);
+        metrics.recordValidation(orders.size(), nanos);
+        return orders;
+    }
+
+    /**
+     * Validates the Orders of a source while it is being read. One after another, every Order is validated as soon as
+     * it has been read and handed to the consumer. With a parallelism level above 1, the Orders are gathered into
+     * chunks of CHUNK_SIZE, and every full chunk is validated on the pool while the next one is being read, so at
+     * most a few chunks per thread are held here at any time. Either way, the wall-clock time from the first Order
+     * read to the last one handed over is counted, without the time spent reading the source while no Order is being
+     * validated.
+     *
+     * @param source      Source of de-serialized Orders.
+     * @param consumer    Receives every validated Order, in the order of the source, always on the calling thread.
+     * @throws IOException    When the source cannot be read. Orders read before the problem was found may already
+     *                        have been handed to the consumer.
+     * @throws IllegalStateException    When the calling thread is interrupted while waiting for a chunk.
+     */
+    public void validate(OrderSource source, Consumer<Order> consumer) throws IOException {
+
+        // only the calling thread reads and updates these, the pool threads only validate
+        long[] nanos = {0};
+        int[] orders = {0};
+        try {
+            if (parallelism <= 1) {
+                source.forEachOrder(order -> {
+                    long start = System.nanoTime();
+                    validate(order);
+                    nanos[0] += System.nanoTime() - start;
+                    orders[0]++;
+                    consumer.accept(order);
+                });
+                return;
+            }
+
+            var pool = new ForkJoinPool(parallelism);
+            // chunks are handed to the consumer in the order they were read, whichever finishes first
+            var pending = new ArrayDeque<Future<List<Order>>>();
+            var chunk = new ArrayList<Order>(CHUNK_SIZE);
+            // end of the last stretch of wall-clock time counted, reading while chunks are validated counts as well
+            long[] counted = {System.nanoTime()};
+            try {
+                source.forEachOrder(order -> {
+                    long start = System.nanoTime();
+                    if (!pending.isEmpty()) {
+                        nanos[0] += start - counted[0];
+                    }
+                    chunk.add(order);
+                    orders[0]++;
+                    if (chunk.size() == CHUNK_SIZE) {
+                        pending.add(pool.submit(validateChunk(List.copyOf(chunk))));
+                        chunk.clear();
+                        while (pending.size() > 2 * parallelism || (!pending.isEmpty() && pending.peek().isDone())) {
+                            handOver(pending.poll(), consumer);
+                        }
+                    }
+                    counted[0] = System.nanoTime();
+                    nanos[0] += counted[0] - start;
+                });
+                long start = System.nanoTime();
+                if (!pending.isEmpty()) {
+                    nanos[0] += start - counted[0];
+                }
+                if (!chunk.isEmpty()) {
+                    pending.add(pool.submit(validateChunk(List.copyOf(chunk))));
+                }
+                while (!pending.isEmpty()) {
+                    handOver(pending.poll(), consumer);
+                }
+                nanos[0] += System.nanoTime() - start;
+            } finally {
+                pool.shutdown();
+            }
+        } finally {
+            validationNanos.add(nanos[0]);
+            metrics.recordValidation(orders[0], nanos[0]);
+        }
+    }
+
+    /**
+     * @param chunk    Chunk of de-serialized Orders.
+     * @return         Task validating every Order of the chunk, returning the chunk.
+     */
+    private Callable<List<Order>> validateChunk(List<Order> chunk) {
+        return () -> {
+            for (Order order : chunk) {
+                validate(order);
+            }
+            return chunk;
+        };
+    }
+
+    /**
+     * Waits for a chunk to be validated and hands its Orders to the consumer.
+     *
+     * @param validatedChunk    Future of a chunk being validated.
+     * @param consumer          Receives every validated Order of the chunk.
+     * @throws IllegalStateException    When the calling thread is interrupted while waiting.
+     */
+    private static void handOver(Future<List<Order>> validatedChunk, Consumer<Order> consumer) {
+        try {
+            validatedChunk.get().forEach(consumer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Validation of the Orders was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Validates a single Order and counts its outcome.
+     *
+     * @param order    De-serialized Order.
+     */
+    public void validate(Order order) {
+
+        order.validate(menuIndex, orderDateMonths);
+        outcomeCounts.get(order.getOrderOutcome()).increment();
+        validatedOrders.increment();
+    }
+
+    /**
+     * @return    Number of Orders validated so far by every outcome, in the order of the OrderOutcome enum.
+     */
+    public Map<OrderOutcome, Long> getOutcomeCounts() {
+        var counts = new EnumMap<OrderOutcome, Long>(OrderOutcome.class);
+        for (Map.Entry<OrderOutcome, LongAdder> count : outcomeCounts.entrySet()) {
+            counts.put(count.getKey(), count.getValue().sum());
+        }
+        return counts;
+    }
+
+    /**
+     * @return    Number of Orders validated so far.
+     */
+    public long getValidatedOrders() {
+        return validatedOrders.sum();
+    }
+
+    /**
+     * @return    Orders validated per second of wall-clock time spent validating, 0 if no time has been spent yet.
+     */
+    public double getOrdersPerSecond() {
+        long nanos = validationNanos.sum();
+        return nanos == 0 ? 0 : validatedOrders.sum() * 1e9 / nanos;
+    }
+}
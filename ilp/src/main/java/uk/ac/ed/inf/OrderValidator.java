@@ -0,0 +1,128 @@
+package uk.ac.ed.inf;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Hand-written checks of the individual components of an Order. None of the checks allocate, and with a cache of the
+ * order dates, like the one kept by every OrderValidationStage, every distinct order date is parsed only once.
+ */
+public class OrderValidator {
+
+    /**
+     * Length of a valid Order Number.
+     */
+    private static final int ORDER_NUMBER_LENGTH = 8;
+
+    /**
+     * Length of a valid Credit card number.
+     */
+    private static final int CARD_NUMBER_LENGTH = 16;
+
+    /**
+     * Length of a valid CVV.
+     */
+    private static final int CVV_LENGTH = 3;
+
+    /**
+     * @param orderNo    Order Number.
+     * @return           <code>true</code> if the Order Number has the right length.
+     */
+    public static boolean isValidOrderNumber(String orderNo) {
+        return orderNo.length() == ORDER_NUMBER_LENGTH;
+    }
+
+    /**
+     * @param creditCardNumber    Number of the Credit card.
+     * @return                    <code>true</code> if the Credit card number has the right length.
+     */
+    public static boolean isValidCreditCardNumber(String creditCardNumber) {
+        return creditCardNumber.length() == CARD_NUMBER_LENGTH;
+    }
+
+    /**
+     * @param cvv    CVV of the Credit card.
+     * @return       <code>true</code> if the CVV has the right length.
+     */
+    public static boolean isValidCVV(String cvv) {
+        return cvv.length() == CVV_LENGTH;
+    }
+
+    /**
+     * Verifies that a given expiry date, in the MM/YY format, is after the Order's date. That is, that the Order was
+     * placed before the first day of the expiry month.
+     *
+     * @param expiryDate      Expiry date of a payment card.
+     * @param orderDate       Date of the order, in the ISO 8601 format.
+     * @return                <code>true</code> when expiry date of the card is after the order's date (Card is valid).
+     */
+    public static boolean isCardExpiryAfterOrderDate(String expiryDate, String orderDate) {
+
+        int expiryMonth = parseExpiryMonth(expiryDate);
+        if (expiryMonth < 0) {
+            return false;
+        }
+        return parseMonth(orderDate) < expiryMonth;
+    }
+
+    /**
+     * Verifies that a given expiry date, in the MM/YY format, is after the Order's date, parsing the order date only
+     * the first time it is seen.
+     *
+     * @param expiryDate         Expiry date of a payment card.
+     * @param orderDate          Date of the order, in the ISO 8601 format.
+     * @param orderDateMonths    Mapping between the order dates seen so far and their months, updated with new dates.
+     * @return                   <code>true</code> when expiry date of the card is after the order's date (Card is valid).
+     */
+    public static boolean isCardExpiryAfterOrderDate(String expiryDate, String orderDate, Map<String, Integer> orderDateMonths) {
+
+        int expiryMonth = parseExpiryMonth(expiryDate);
+        if (expiryMonth < 0) {
+            return false;
+        }
+        return orderDateMonths.computeIfAbsent(orderDate, OrderValidator::parseMonth) < expiryMonth;
+    }
+
+    /**
+     * Parses an expiry date in the MM/YY format, the year being in the 2000s.
+     *
+     * @param expiryDate      Expiry date of a payment card.
+     * @return                Month of the expiry date counted as <code>year * 12 + month - 1</code>, -1 when it is not in the MM/YY format.
+     */
+    private static int parseExpiryMonth(String expiryDate) {
+
+        if (expiryDate.length() != 5 || expiryDate.charAt(2) != '/') {
+            return -1;
+        }
+        int m1 = digit(expiryDate.charAt(0));
+        int m2 = digit(expiryDate.charAt(1));
+        int y1 = digit(expiryDate.charAt(3));
+        int y2 = digit(expiryDate.charAt(4));
+        if (m1 < 0 || m2 < 0 || y1 < 0 || y2 < 0) {
+            return -1;
+        }
+
+        int month = m1 * 10 + m2;
+        if (month < 1 || month > 12) {
+            return -1;
+        }
+        return (2000 + y1 * 10 + y2) * 12 + month - 1;
+    }
+
+    /**
+     * @param date    Date in the ISO 8601 format.
+     * @return        Month of the date counted as <code>year * 12 + month - 1</code>.
+     */
+    private static Integer parseMonth(String date) {
+        LocalDate parsed = LocalDate.parse(date);
+        return parsed.getYear() * 12 + parsed.getMonthValue() - 1;
+    }
+
+    /**
+     * @param c    A character.
+     * @return     Value of the character if it is an ASCII digit, -1 otherwise.
+     */
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+}
@@ -0,0 +1,343 @@
+package uk.ac.ed.inf;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Route cache kept in a file between runs. The Central Area and the No-Fly zones rarely change from one day to the
+ * next, so the routes calculated by one run are written into the file, and the next run over the same geometry takes
+ * them from there instead of calculating them again.
+ * <p>
+ * Every route in the file is keyed by the Drone's start, the Restaurant's location and a hash of the Central Area, the
+ * No-Fly zones and the variant of the path calculation that found it. Only routes whose key matches the current run
+ * are loaded, so a change to the geometry makes the routes over the old geometry be calculated again, without having
+ * to delete the file. Routes of other keys are kept in the file, up to MAX_ENTRIES routes.
+ * <p>
+ * Restaurants found to be inaccessible are written as routes with empty paths, keyed by a hash that also includes the
+ * expansion budget of the search. A later run over the same geometry and budget does not search for them again, while
+ * a run given a different budget searches for them anew.
+ * <p>
+ * The file starts with the MAGIC bytes, the VERSION and the number of routes. Every route is the key (the hash as an
+ * 8 byte long, and the coordinates of the start and of the Restaurant as 8 byte doubles), followed by the path to the
+ * Restaurant and the path back, each as its number of Nodes and the Nodes. Every Node is its coordinates and weight as
+ * 8 byte doubles, the ordinal of its direction from its parent (-1 for none) and whether it is in the Central Area.
+ * The file is memory-mapped when it is loaded, and replaced as a whole when it is saved, so a run reading it never
+ * sees a file half written by another run.
+ */
+public final class PersistentRouteCache extends RouteCache {
+
+    /**
+     * Bytes every route cache file starts with.
+     */
+    public static final byte[] MAGIC = {'P', 'D', 'R', 'C'};
+
+    /**
+     * Version of the format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Largest number of routes kept in the file.
+     */
+    private static final int MAX_ENTRIES = 1024;
+
+    /**
+     * Number of bytes of a single Node in the file.
+     */
+    private static final int NODE_BYTES = 3 * Double.BYTES + 2;
+
+    /**
+     * File the routes are kept in.
+     */
+    private final Path file;
+
+    /**
+     * Coordinates the Drone starts at.
+     */
+    private final LngLat start;
+
+    /**
+     * Hash of the Central Area, the No-Fly zones and the variant of the path calculation.
+     */
+    private final long geometryHash;
+
+    /**
+     * Hash of the geometry and the variant of the path calculation, together with the expansion budget, keying the
+     * inaccessible Restaurants.
+     */
+    private final long inaccessibleHash;
+
+    /**
+     * Routes of other keys read from the file, as they were written, to be written back when saving.
+     */
+    private final List<byte[]> otherEntries = new ArrayList<>();
+
+    /**
+     * Whether routes or inaccessible Restaurants have been put into the cache since it was loaded.
+     */
+    private volatile boolean modified;
+
+    /**
+     * Creates the cache, loading the routes of the current key from the file. A missing or unreadable file leaves
+     * the cache empty.
+     *
+     * @param file               File the routes are kept in.
+     * @param start              Coordinates the Drone starts at.
+     * @param centralArea        List of edges of the Central Area.
+     * @param noFlyZones         List of lists of edge coordinates defining zones that the Drone cannot enter.
+     * @param variant            Name of the variant of the path calculation, as different variants may find different routes.
+     * @param expansionBudget    Largest number of Nodes a search expands, as a larger budget may reach a Restaurant found to be inaccessible.
+     */
+    public PersistentRouteCache(Path file, LngLat start, List<LngLat> centralArea, List<List<LngLat>> noFlyZones, String variant, long expansionBudget) {
+        this.file = file;
+        this.start = start;
+        this.geometryHash = geometryHash(centralArea, noFlyZones, variant);
+        this.inaccessibleHash = geometryHash(centralArea, noFlyZones, variant + "+INACCESSIBLE_" + expansionBudget);
+        load();
+    }
+
+    /**
+     * Hashes the geometry that the routes are calculated over.
+     *
+     * @param centralArea    List of edges of the Central Area.
+     * @param noFlyZones     List of lists of edge coordinates defining zones that the Drone cannot enter.
+     * @param variant        Name of the variant of the path calculation.
+     * @return               First 8 bytes of the SHA-256 digest of the geometry and the variant.
+     */
+    public static long geometryHash(List<LngLat> centralArea, List<List<LngLat>> noFlyZones, String variant) {
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        var buffer = ByteBuffer.allocate(2 * Double.BYTES);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(centralArea.size()).array());
+        for (LngLat point : centralArea) {
+            digest.update(buffer.clear().putDouble(point.lng()).putDouble(point.lat()).array());
+        }
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(noFlyZones.size()).array());
+        for (List<LngLat> noFlyZone : noFlyZones) {
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(noFlyZone.size()).array());
+            for (LngLat point : noFlyZone) {
+                digest.update(buffer.clear().putDouble(point.lng()).putDouble(point.lat()).array());
+            }
+        }
+        digest.update(variant.getBytes(StandardCharsets.UTF_8));
+
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    @Override
+    public void put(LngLat restaurantLocation, Route route) {
+        super.put(restaurantLocation, route);
+        modified = true;
+    }
+
+    @Override
+    public void putInaccessible(LngLat restaurantLocation) {
+        super.putInaccessible(restaurantLocation);
+        modified = true;
+    }
+
+    /**
+     * Writes the routes and inaccessible Restaurants of the current key into the file, followed by the routes of other
+     * keys read from it, unless nothing has been put into the cache since it was loaded. The file is written under a temporary name and then
+     * moved over the old one.
+     */
+    @Override
+    public synchronized void save() {
+
+        if (!modified) {
+            return;
+        }
+
+        Path temp = null;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+            Map<LngLat, Route> routes = getRoutes();
+            Set<LngLat> inaccessible = getInaccessible();
+            int others = Math.max(0, Math.min(otherEntries.size(), MAX_ENTRIES - routes.size() - inaccessible.size()));
+
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.write(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(routes.size() + inaccessible.size() + others);
+
+                for (Map.Entry<LngLat, Route> entry : routes.entrySet()) {
+                    out.writeLong(geometryHash);
+                    out.writeDouble(start.lng());
+                    out.writeDouble(start.lat());
+                    out.writeDouble(entry.getKey().lng());
+                    out.writeDouble(entry.getKey().lat());
+                    writeNodes(out, entry.getValue().pathTo());
+                    writeNodes(out, entry.getValue().pathFrom());
+                }
+                for (LngLat restaurantLocation : inaccessible) {
+                    out.writeLong(inaccessibleHash);
+                    out.writeDouble(start.lng());
+                    out.writeDouble(start.lat());
+                    out.writeDouble(restaurantLocation.lng());
+                    out.writeDouble(restaurantLocation.lat());
+                    writeNodes(out, List.of());
+                    writeNodes(out, List.of());
+                }
+                for (int i = 0; i < others; i++) {
+                    out.write(otherEntries.get(i));
+                }
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+        } catch (IOException e) {
+            System.out.println("Route cache file cannot be written. " + e.getMessage());
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+                // the temporary file is only left behind
+            }
+        }
+    }
+
+    /**
+     * Reads the file, putting the valid routes and the inaccessible Restaurants of the current key into the cache and
+     * keeping the other routes as they were written. Nothing is put into the cache or kept until the whole file has
+     * been read, so a damaged file leaves the cache empty rather than holding the routes read before the damage.
+     */
+    private void load() {
+
+        var routes = new LinkedHashMap<LngLat, Route>();
+        var inaccessible = new ArrayList<LngLat>();
+        var others = new ArrayList<byte[]>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || buffer.get() != VERSION) {
+                System.out.println("Route cache file is not in the expected format, routes will be calculated again.");
+                return;
+            }
+
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int entryStart = buffer.position();
+                long hash = buffer.getLong();
+                double startLng = buffer.getDouble();
+                double startLat = buffer.getDouble();
+                var restaurantLocation = new LngLat(buffer.getDouble(), buffer.getDouble());
+
+                boolean currentStart = startLng == start.lng() && startLat == start.lat();
+                if (!currentStart || (hash != geometryHash && hash != inaccessibleHash)) {
+                    skipNodes(buffer);
+                    skipNodes(buffer);
+                    byte[] entry = new byte[buffer.position() - entryStart];
+                    buffer.get(entryStart, entry);
+                    others.add(entry);
+                    continue;
+                }
+
+                List<Node> pathTo = readNodes(buffer);
+                List<Node> pathFrom = readNodes(buffer);
+                if (hash == inaccessibleHash) {
+                    if (pathTo.isEmpty() && pathFrom.isEmpty()) {
+                        inaccessible.add(restaurantLocation);
+                    }
+                } else if (!pathTo.isEmpty() && !pathFrom.isEmpty()
+                        && pathTo.get(0).getCoordinate().sameCoordinates(start)
+                        && pathTo.get(pathTo.size() - 1).getCoordinate().closeTo(restaurantLocation)) {
+                    routes.put(restaurantLocation, new Route(pathTo, pathFrom));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // the first run with this file, every route is calculated
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.out.println("Route cache file cannot be read, routes will be calculated again.");
+            return;
+        }
+
+        routes.forEach(super::put);
+        inaccessible.forEach(super::putInaccessible);
+        otherEntries.addAll(others);
+    }
+
+    /**
+     * Writes a path as its number of Nodes and the Nodes.
+     *
+     * @param out     Stream to write to.
+     * @param path    List of Nodes.
+     * @throws IOException    When the file cannot be written to.
+     */
+    private static void writeNodes(DataOutputStream out, List<Node> path) throws IOException {
+        out.writeInt(path.size());
+        for (Node node : path) {
+            out.writeDouble(node.getCoordinate().lng());
+            out.writeDouble(node.getCoordinate().lat());
+            out.writeDouble(node.getWeight());
+            out.writeByte(node.getDirectionFromParent() == null ? -1 : node.getDirectionFromParent().ordinal());
+            out.writeBoolean(node.getInCentralArea());
+        }
+    }
+
+    /**
+     * Reads a path written by writeNodes.
+     *
+     * @param buffer    Buffer positioned at the number of Nodes.
+     * @return          List of Nodes, with their ticks at 0.
+     */
+    private static List<Node> readNodes(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        if (size < 0 || (long) size * NODE_BYTES > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        Compass[] directions = Compass.values();
+        var path = new ArrayList<Node>(size);
+        for (int i = 0; i < size; i++) {
+            var coordinate = new LngLat(buffer.getDouble(), buffer.getDouble());
+            double weight = buffer.getDouble();
+            byte direction = buffer.get();
+            boolean inCentralArea = buffer.get() != 0;
+            path.add(new Node(coordinate, weight, direction < 0 ? null : directions[direction], 0, inCentralArea));
+        }
+        return path;
+    }
+
+    /**
+     * Moves past a path written by writeNodes.
+     *
+     * @param buffer    Buffer positioned at the number of Nodes.
+     */
+    private static void skipNodes(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        if (size < 0 || (long) size * NODE_BYTES > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        buffer.position(buffer.position() + size * NODE_BYTES);
+    }
+}
@@ -0,0 +1,378 @@
+package uk.ac.ed.inf;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the metrics of path planning runs: how much work the path searches did, how long the individual stages
+ * took and how much of the Drone's battery was used. Recording only updates striped counters, so it can be done from
+ * any number of threads at once with little overhead. A registry can be shared by several runs, for example by every
+ * date of a batch, in which case the metrics add up.
+ * <p>
+ * The metrics can be exported as a JSON summary or in the Prometheus text exposition format.
+ */
+public class PlannerMetrics {
+
+    /**
+     * Prefix of the names of all metrics.
+     */
+    private static final String PREFIX = "pizzadronz_";
+
+    /**
+     * Histogram of durations, with fixed buckets from 100 microseconds to 10 seconds.
+     */
+    public static class Histogram {
+
+        /**
+         * Upper bounds of the buckets in seconds. Durations above the last bound are only counted in the total count.
+         */
+        private static final double[] BOUNDS = {0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10};
+
+        /**
+         * Number of durations falling into every bucket (not cumulative).
+         */
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length];
+
+        /**
+         * Number of recorded durations.
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * Sum of the recorded durations in seconds.
+         */
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Records a single duration.
+         *
+         * @param nanos    Duration in nanoseconds.
+         */
+        public void record(long nanos) {
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                if (seconds <= BOUNDS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(seconds);
+        }
+
+        /**
+         * @return    Summary of the histogram, with cumulative bucket counts keyed by their upper bounds.
+         */
+        private Map<String, Object> toJson() {
+            var cumulative = new LinkedHashMap<String, Long>();
+            long total = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                total += buckets[i].sum();
+                cumulative.put(formatBound(BOUNDS[i]), total);
+            }
+
+            var histogram = new LinkedHashMap<String, Object>();
+            histogram.put("count", count.sum());
+            histogram.put("sumSeconds", sum.sum());
+            histogram.put("buckets", cumulative);
+            return histogram;
+        }
+
+        /**
+         * Appends the histogram in the Prometheus text format.
+         *
+         * @param out     Text to append to.
+         * @param name    Name of the metric, without the prefix.
+         * @param help    Description of the metric.
+         */
+        private void toPrometheus(StringBuilder out, String name, String help) {
+            header(out, name, "histogram", help);
+            long total = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                total += buckets[i].sum();
+                out.append(PREFIX).append(name).append("_bucket{le=\"").append(formatBound(BOUNDS[i])).append("\"} ").append(total).append('\n');
+            }
+            out.append(PREFIX).append(name).append("_bucket{le=\"+Inf\"} ").append(count.sum()).append('\n');
+            out.append(PREFIX).append(name).append("_sum ").append(sum.sum()).append('\n');
+            out.append(PREFIX).append(name).append("_count ").append(count.sum()).append('\n');
+        }
+
+        /**
+         * @param bound    Upper bound of a bucket in seconds.
+         * @return         Shortest text of the bound.
+         */
+        private static String formatBound(double bound) {
+            return BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    /**
+     * Number of path searches that found a path.
+     */
+    private final LongAdder pathsFound = new LongAdder();
+
+    /**
+     * Number of path searches after which the Restaurant was deemed inaccessible.
+     */
+    private final LongAdder pathsNotFound = new LongAdder();
+
+    /**
+     * Number of visibility graph searches whose moves could not follow the polyline, so the route was searched for
+     * again on the lattice.
+     */
+    private final LongAdder visibilityGraphFallbacks = new LongAdder();
+
+    /**
+     * Number of Nodes expanded by all path searches.
+     */
+    private final LongAdder nodesExpanded = new LongAdder();
+
+    /**
+     * Number of moves tested against the No-Fly zones by all path searches.
+     */
+    private final LongAdder noFlySegmentTests = new LongAdder();
+
+    /**
+     * Largest size the open list reached in any path search.
+     */
+    private final LongAccumulator peakOpenListSize = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Durations of the path searches to single Restaurants.
+     */
+    private final Histogram routeCalculation = new Histogram();
+
+    /**
+     * Durations of assembling the path for single Orders.
+     */
+    private final Histogram orderPlanning = new Histogram();
+
+    /**
+     * Number of validated Orders.
+     */
+    private final LongAdder ordersValidated = new LongAdder();
+
+    /**
+     * Wall-clock durations of validating lists of Orders.
+     */
+    private final Histogram orderValidation = new Histogram();
+
+    /**
+     * Durations of fetching the Orders for a day.
+     */
+    private final Histogram fetch = new Histogram();
+
+    /**
+     * Durations of writing single output files.
+     */
+    private final Histogram write = new Histogram();
+
+    /**
+     * Number of planned days.
+     */
+    private final LongAdder planningRuns = new LongAdder();
+
+    /**
+     * Number of delivered Orders.
+     */
+    private final LongAdder ordersDelivered = new LongAdder();
+
+    /**
+     * Number of moves in the Drone's paths, one between every two Nodes of every Order's path, as in Route.moves().
+     */
+    private final LongAdder movesUsed = new LongAdder();
+
+    /**
+     * Largest number of Nodes in the Drone's paths for a single day.
+     */
+    private final LongAccumulator peakMovesUsed = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Maximum number of moves a Drone can make in a day.
+     */
+    private volatile long movesLimit;
+
+    /**
+     * Records a single path search.
+     *
+     * @param expanded         Number of expanded Nodes.
+     * @param segmentTests     Number of moves tested against the No-Fly zones.
+     * @param peakOpenList     Largest size of the open list.
+     * @param nanos            Duration of the search in nanoseconds.
+     * @param found            <code>true</code> if a path was found.
+     */
+    public void recordPathSearch(long expanded, long segmentTests, int peakOpenList, long nanos, boolean found) {
+        (found ? pathsFound : pathsNotFound).increment();
+        nodesExpanded.add(expanded);
+        noFlySegmentTests.add(segmentTests);
+        peakOpenListSize.accumulate(peakOpenList);
+        routeCalculation.record(nanos);
+    }
+
+    /**
+     * Records a visibility graph search which found no path the Drone can follow. Its work is counted, but not its
+     * outcome, as the route is searched for again on the lattice, and that search records the outcome.
+     *
+     * @param expanded         Number of vertices settled on the graph.
+     * @param segmentTests     Number of moves tested against the No-Fly zones.
+     */
+    public void recordVisibilityGraphFallback(long expanded, long segmentTests) {
+        visibilityGraphFallbacks.increment();
+        nodesExpanded.add(expanded);
+        noFlySegmentTests.add(segmentTests);
+    }
+
+    /**
+     * Records assembling the path for a single Order.
+     *
+     * @param nanos    Duration in nanoseconds.
+     */
+    public void recordOrderPlanning(long nanos) {
+        orderPlanning.record(nanos);
+    }
+
+    /**
+     * Records validating a list of Orders.
+     *
+     * @param orders    Number of validated Orders.
+     * @param nanos     Wall-clock duration in nanoseconds, however many threads the Orders were validated on.
+     */
+    public void recordValidation(int orders, long nanos) {
+        ordersValidated.add(orders);
+        orderValidation.record(nanos);
+    }
+
+    /**
+     * Records fetching the Orders for a day.
+     *
+     * @param nanos    Duration in nanoseconds.
+     */
+    public void recordFetch(long nanos) {
+        fetch.record(nanos);
+    }
+
+    /**
+     * Records writing a single output file.
+     *
+     * @param nanos    Duration in nanoseconds.
+     */
+    public void recordWrite(long nanos) {
+        write.record(nanos);
+    }
+
+    /**
+     * Records the Drone's path for a day.
+     *
+     * @param delivered     Number of delivered Orders.
+     * @param moves         Number of moves in the Drone's paths, one between every two Nodes of every Order's path.
+     * @param limit         Maximum number of moves a Drone can make in a day.
+     */
+    public void recordPlanningRun(int delivered, int moves, int limit) {
+        planningRuns.increment();
+        ordersDelivered.add(delivered);
+        movesUsed.add(moves);
+        peakMovesUsed.accumulate(moves);
+        movesLimit = limit;
+    }
+
+    /**
+     * @return    Summary of all metrics, keyed by their names without the prefix.
+     */
+    public Map<String, Object> toJson() {
+        var metrics = new LinkedHashMap<String, Object>();
+        metrics.put("path_searches_found", pathsFound.sum());
+        metrics.put("path_searches_not_accessible", pathsNotFound.sum());
+        metrics.put("visibility_graph_fallbacks", visibilityGraphFallbacks.sum());
+        metrics.put("nodes_expanded", nodesExpanded.sum());
+        metrics.put("no_fly_segment_tests", noFlySegmentTests.sum());
+        metrics.put("open_list_peak_size", peakOpenListSize.get());
+        metrics.put("route_calculation_seconds", routeCalculation.toJson());
+        metrics.put("order_planning_seconds", orderPlanning.toJson());
+        metrics.put("orders_validated", ordersValidated.sum());
+        metrics.put("order_validation_seconds", orderValidation.toJson());
+        metrics.put("fetch_seconds", fetch.toJson());
+        metrics.put("write_seconds", write.toJson());
+        metrics.put("planning_runs", planningRuns.sum());
+        metrics.put("orders_delivered", ordersDelivered.sum());
+        metrics.put("moves_used", movesUsed.sum());
+        metrics.put("moves_used_peak", peakMovesUsed.get());
+        metrics.put("moves_limit", movesLimit);
+        return metrics;
+    }
+
+    /**
+     * @return    All metrics in the Prometheus text exposition format.
+     */
+    public String toPrometheus() {
+        var out = new StringBuilder();
+
+        header(out, "path_searches_total", "counter", "Path searches to Restaurants, by whether a path was found.");
+        out.append(PREFIX).append("path_searches_total{result=\"found\"} ").append(pathsFound.sum()).append('\n');
+        out.append(PREFIX).append("path_searches_total{result=\"not_accessible\"} ").append(pathsNotFound.sum()).append('\n');
+        counter(out, "visibility_graph_fallbacks_total", "Visibility graph searches that fell back to the lattice search.", visibilityGraphFallbacks.sum());
+        counter(out, "nodes_expanded_total", "Nodes expanded by the path searches.", nodesExpanded.sum());
+        counter(out, "no_fly_segment_tests_total", "Moves tested against the No-Fly zones.", noFlySegmentTests.sum());
+        gauge(out, "open_list_peak_size", "Largest size the open list reached in any path search.", peakOpenListSize.get());
+        routeCalculation.toPrometheus(out, "route_calculation_seconds", "Duration of the path searches to single Restaurants.");
+        orderPlanning.toPrometheus(out, "order_planning_seconds", "Duration of assembling the path for single Orders.");
+        counter(out, "orders_validated_total", "Validated Orders.", ordersValidated.sum());
+        orderValidation.toPrometheus(out, "order_validation_seconds", "Duration of validating the Orders for a day.");
+        fetch.toPrometheus(out, "fetch_seconds", "Duration of fetching the Orders for a day.");
+        write.toPrometheus(out, "write_seconds", "Duration of writing single output files.");
+        counter(out, "planning_runs_total", "Planned days.", planningRuns.sum());
+        counter(out, "orders_delivered_total", "Delivered Orders.", ordersDelivered.sum());
+        counter(out, "moves_used_total", "Moves in the Drone's paths, as counted against the moves limit.", movesUsed.sum());
+        gauge(out, "moves_used_peak", "Largest number of moves used in a single day.", peakMovesUsed.get());
+        gauge(out, "moves_limit", "Maximum number of moves a Drone can make in a day.", movesLimit);
+        return out.toString();
+    }
+
+    /**
+     * Appends the HELP and TYPE lines of a metric.
+     *
+     * @param out     Text to append to.
+     * @param name    Name of the metric, without the prefix.
+     * @param type    Prometheus type of the metric.
+     * @param help    Description of the metric.
+     */
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Appends a counter.
+     *
+     * @param out      Text to append to.
+     * @param name     Name of the metric, without the prefix.
+     * @param help     Description of the metric.
+     * @param value    Value of the metric.
+     */
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Appends a gauge.
+     *
+     * @param out      Text to append to.
+     * @param name     Name of the metric, without the prefix.
+     * @param help     Description of the metric.
+     * @param value    Value of the metric.
+     */
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, "gauge", help);
+        out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+}
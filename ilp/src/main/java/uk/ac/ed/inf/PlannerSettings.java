@@ -0,0 +1,262 @@
+package uk.ac.ed.inf;
+
+/**
+ * Settings of a single path planning run. Allows different implementations of the path calculation to be
+ * selected and compared against each other.
+ *
+ * @see uk.ac.ed.inf.DroneControl#calculateDronesPath(java.util.List, java.util.Map, java.util.List, java.util.List, PlannerSettings)
+ */
+public class PlannerSettings {
+
+    /**
+     * Default number of Nodes a single path calculation may expand before the Restaurant is deemed inaccessible.
+     */
+    public static final long DEFAULT_EXPANSION_BUDGET = 1_000_000;
+
+    /**
+     * Implementation of the open list used in path calculation. Only the NODES search keeps its open list in an
+     * OpenList, the other searches have their own, so the open list only takes effect with SearchType.NODES.
+     */
+    private OpenListType openListType = OpenListType.INDEXED_HEAP;
+
+    /**
+     * Number of threads that routes to different Restaurants are calculated on. 1 calculates them one after another.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of dates that are planned concurrently in batch mode.
+     */
+    private int dateParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of threads that Orders are validated on. 1 validates them one after another.
+     */
+    private int validationParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Way of choosing which Valid Orders a Drone delivers, and in which order.
+     */
+    private OrderScheduling orderScheduling = OrderScheduling.RESTAURANT_RANKING;
+
+    /**
+     * Number of Drones the Orders of a day are shared between. With more than one, every Drone gets its own
+     * flightpath and drone files.
+     */
+    private int fleetSize = 1;
+
+    /**
+     * Whether the deliveries and flightpath files are pretty printed, or written compactly.
+     */
+    private boolean prettyOutput = true;
+
+    /**
+     * Format the flightpath file is written in.
+     */
+    private FlightpathFormat flightpathFormat = FlightpathFormat.JSON;
+
+    /**
+     * Implementation of the path calculation to a Restaurant.
+     */
+    private SearchType searchType = SearchType.ARENA;
+
+    /**
+     * Whether the search in a SearchArena prunes the children of Nodes in open sky. Does not apply to the other search types.
+     */
+    private boolean symmetryPruning = false;
+
+    /**
+     * Number of Nodes a single path calculation may expand before the Restaurant is deemed inaccessible.
+     */
+    private long expansionBudget = DEFAULT_EXPANSION_BUDGET;
+
+    /**
+     * Whether the search in a SearchArena spends the rest of its expansion budget on finding shorter paths, once it
+     * has found one. Does not apply to the other search types.
+     */
+    private boolean anytime = false;
+
+    /**
+     * File the routes to the Restaurants are kept in between runs, <code>null</code> to calculate them on every run.
+     */
+    private String routeCacheFile = null;
+
+    /**
+     * Directory the last good responses of the REST-service are kept in, <code>null</code> to keep none.
+     */
+    private String snapshotDirectory = null;
+
+    /**
+     * Whether requests are sent to the REST-service, or all data is taken from the snapshots.
+     */
+    private SnapshotMode snapshotMode = SnapshotMode.ONLINE;
+
+    /**
+     * Whether the Orders of a single date are read one at a time from the standard input and planned as they arrive,
+     * instead of being fetched from the REST-service.
+     */
+    private boolean incremental = false;
+
+    /**
+     * Registry the metrics of the run are recorded into.
+     */
+    private PlannerMetrics metrics = new PlannerMetrics();
+
+    /**
+     * Whether the metrics are written into files once the run is over.
+     */
+    private boolean metricsOutput = false;
+
+
+    ////////////////////////
+    ///      SETTERS     ///
+    ////////////////////////
+
+    public void setOpenListType(OpenListType openListType) {
+        this.openListType = openListType;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setDateParallelism(int dateParallelism) {
+        this.dateParallelism = dateParallelism;
+    }
+
+    public void setValidationParallelism(int validationParallelism) {
+        this.validationParallelism = validationParallelism;
+    }
+
+    public void setOrderScheduling(OrderScheduling orderScheduling) {
+        this.orderScheduling = orderScheduling;
+    }
+
+    public void setFleetSize(int fleetSize) {
+        this.fleetSize = fleetSize;
+    }
+
+    public void setPrettyOutput(boolean prettyOutput) {
+        this.prettyOutput = prettyOutput;
+    }
+
+    public void setFlightpathFormat(FlightpathFormat flightpathFormat) {
+        this.flightpathFormat = flightpathFormat;
+    }
+
+    public void setSearchType(SearchType searchType) {
+        this.searchType = searchType;
+    }
+
+    public void setSymmetryPruning(boolean symmetryPruning) {
+        this.symmetryPruning = symmetryPruning;
+    }
+
+    public void setExpansionBudget(long expansionBudget) {
+        this.expansionBudget = expansionBudget;
+    }
+
+    public void setAnytime(boolean anytime) {
+        this.anytime = anytime;
+    }
+
+    public void setRouteCacheFile(String routeCacheFile) {
+        this.routeCacheFile = routeCacheFile;
+    }
+
+    public void setSnapshotDirectory(String snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    public void setSnapshotMode(SnapshotMode snapshotMode) {
+        this.snapshotMode = snapshotMode;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setMetrics(PlannerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setMetricsOutput(boolean metricsOutput) {
+        this.metricsOutput = metricsOutput;
+    }
+
+    ////////////////////////
+    ///      GETTERS     ///
+    ////////////////////////
+
+    public OpenListType getOpenListType() {
+        return openListType;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getDateParallelism() {
+        return dateParallelism;
+    }
+
+    public int getValidationParallelism() {
+        return validationParallelism;
+    }
+
+    public OrderScheduling getOrderScheduling() {
+        return orderScheduling;
+    }
+
+    public int getFleetSize() {
+        return fleetSize;
+    }
+
+    public boolean isPrettyOutput() {
+        return prettyOutput;
+    }
+
+    public FlightpathFormat getFlightpathFormat() {
+        return flightpathFormat;
+    }
+
+    public SearchType getSearchType() {
+        return searchType;
+    }
+
+    public boolean isSymmetryPruning() {
+        return symmetryPruning;
+    }
+
+    public long getExpansionBudget() {
+        return expansionBudget;
+    }
+
+    public boolean isAnytime() {
+        return anytime;
+    }
+
+    public String getRouteCacheFile() {
+        return routeCacheFile;
+    }
+
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    public SnapshotMode getSnapshotMode() {
+        return snapshotMode;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public PlannerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isMetricsOutput() {
+        return metricsOutput;
+    }
+}
@@ -0,0 +1,47 @@
+package uk.ac.ed.inf;
+
+import java.util.PriorityQueue;
+
+/**
+ * Open list backed by java.util.PriorityQueue. Removing a Node that is not at the head of the queue, or changing
+ * its weight, requires a linear scan of the queue.
+ */
+public class PriorityQueueOpenList implements OpenList {
+
+    /**
+     * Min Heap of Nodes, ordered by their weights.
+     */
+    private final PriorityQueue<Node> queue = new PriorityQueue<>();
+
+    @Override
+    public void add(Node node) {
+        queue.add(node);
+    }
+
+    @Override
+    public Node peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public Node poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public boolean remove(Node node) {
+        return queue.remove(node);
+    }
+
+    @Override
+    public void updateWeight(Node node, double weight) {
+        queue.remove(node);
+        node.setWeight(weight);
+        queue.add(node);
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,91 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Closed set of Nodes used during path calculation, bucketed into a grid of square cells with sides of
+ * Node.PROXIMITY_CONSTANT. Since two coordinates closer than PROXIMITY_CONSTANT can only be at most one cell apart,
+ * a proximity lookup only needs to check the Nodes in the cells neighbouring the given coordinate.
+ *
+ * @see uk.ac.ed.inf.Node#closeToLngLat(LngLat)
+ */
+public class ProximityGrid {
+
+    /**
+     * Side length of a single cell of the grid.
+     */
+    private static final double CELL_SIZE = Node.PROXIMITY_CONSTANT;
+
+    /**
+     * Mapping between the key of a cell and all the Nodes whose coordinates fall in that cell.
+     */
+    private final HashMap<Long, List<Node>> cells = new HashMap<>();
+
+    /**
+     * Adds a Node to the cell its coordinate falls in.
+     *
+     * @param node     Node to be added.
+     */
+    public void add(Node node) {
+        LngLat coordinate = node.getCoordinate();
+        long key = cellKey(cellIndex(coordinate.lng()), cellIndex(coordinate.lat()));
+        cells.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+    }
+
+    /**
+     * Checks whether some Node in the grid has a coordinate close to a given LngLat coordinate. Gives exactly the same
+     * result as checking every Node with Node.closeToLngLat, but only visits the Nodes in neighbouring cells.
+     *
+     * @param coordinate     LngLat coordinate.
+     * @return               <code>true</code> if some Node in the grid has coordinate close to a given coordinate.
+     *
+     * @see uk.ac.ed.inf.Node#closeToLngLat(LngLat)
+     */
+    public boolean containsNodeCloseTo(LngLat coordinate) {
+
+        // the range is computed from the coordinate shifted by a whole cell, rather than from its own cell +/- 1,
+        // so that rounding in the division does not leave out a cell holding a close Node
+        int minX = cellIndex(coordinate.lng() - CELL_SIZE);
+        int maxX = cellIndex(coordinate.lng() + CELL_SIZE);
+        int minY = cellIndex(coordinate.lat() - CELL_SIZE);
+        int maxY = cellIndex(coordinate.lat() + CELL_SIZE);
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                List<Node> nodes = cells.get(cellKey(x, y));
+                if (nodes == null) {
+                    continue;
+                }
+                for (Node node : nodes) {
+                    if (node.closeToLngLat(coordinate)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Index of the cell along one axis that a given value falls in.
+     *
+     * @param value     Longitude or Latitude value.
+     * @return          Index of the cell.
+     */
+    private static int cellIndex(double value) {
+        return (int) Math.floor(value / CELL_SIZE);
+    }
+
+    /**
+     * Combines the two indices of a cell into a single key.
+     *
+     * @param x     Index of the cell along the Longitude axis.
+     * @param y     Index of the cell along the Latitude axis.
+     * @return      Key of the cell.
+     */
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
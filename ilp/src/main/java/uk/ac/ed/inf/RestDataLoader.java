@@ -0,0 +1,306 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Loads the data from the REST-service asynchronously, so that independent requests are in flight at the same time
+ * rather than one after another. All requests share a single HttpClient.
+ * <p>
+ * Just like the synchronous access methods, a request that fails for any reason results in an empty List or Map.
+ * <p>
+ * With a SnapshotStore, the last good response of every endpoint is kept locally. Online, requests are sent with the
+ * ETag and Last-Modified of the snapshot, so an unchanged response is not downloaded again, and a failed request falls
+ * back to the snapshot instead of to an empty List or Map. Offline, no requests are sent at all. A new body is streamed
+ * into its snapshot as it arrives and de-serialized from the snapshot's file, so it is never held in memory as a whole.
+ * Only the download is skipped, every body is de-serialized again. An endpoint that can be taken neither from the
+ * REST-server nor from a snapshot is reported, and its future fails instead of completing with an empty List or Map.
+ */
+public class RestDataLoader {
+
+    /**
+     * Functional interface for de-serializing a response of the REST-service.
+     *
+     * @param <T>    Type of the de-serialized response.
+     */
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(InputStream response) throws IOException;
+    }
+
+    /**
+     * Base address of the REST-server, like: "https://website.net/"
+     */
+    private final String baseServerURL;
+
+    /**
+     * HTTP client shared by all requests.
+     */
+    private final HttpClient client;
+
+    /**
+     * Store of the last good responses, <code>null</code> to always send plain requests.
+     */
+    private final SnapshotStore snapshots;
+
+    /**
+     * Whether requests are sent, or all data is taken from the snapshots.
+     */
+    private final SnapshotMode snapshotMode;
+
+    /**
+     * Creates a loader for a given REST-server.
+     *
+     * @param baseServerURL    String of the Base REST server address, like: "https://website.net/"
+     */
+    public RestDataLoader(String baseServerURL) {
+        this(baseServerURL, null, SnapshotMode.ONLINE);
+    }
+
+    /**
+     * Creates a loader for a given REST-server, keeping the responses in a snapshot store.
+     *
+     * @param baseServerURL    String of the Base REST server address, like: "https://website.net/"
+     * @param snapshots        Store of the last good responses, <code>null</code> to always send plain requests.
+     * @param snapshotMode     Whether requests are sent, or all data is taken from the snapshots.
+     */
+    public RestDataLoader(String baseServerURL, SnapshotStore snapshots, SnapshotMode snapshotMode) {
+        this.baseServerURL = baseServerURL;
+        this.client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+        this.snapshots = snapshots;
+        this.snapshotMode = snapshotMode;
+    }
+
+    /**
+     * Creates a loader for a given REST-server, with the snapshot store and mode given in the settings.
+     *
+     * @param baseServerURL    String of the Base REST server address, like: "https://website.net/"
+     * @param settings         Settings naming the snapshot directory and mode.
+     * @return                 New loader.
+     */
+    public static RestDataLoader forSettings(String baseServerURL, PlannerSettings settings) {
+        SnapshotStore snapshots = settings.getSnapshotDirectory() == null ? null : new SnapshotStore(Path.of(settings.getSnapshotDirectory()));
+        return new RestDataLoader(baseServerURL, snapshots, settings.getSnapshotMode());
+    }
+
+    /**
+     * Starts loading the edges of the Central Area.
+     *
+     * @return     Future of the List of edges of the Central Area.
+     * @see uk.ac.ed.inf.CentralAreaAccess#readEdgesOfCentralArea(InputStream)
+     */
+    public CompletableFuture<List<LngLat>> loadCentralArea() {
+        return load("centralArea", CentralAreaAccess::readEdgesOfCentralArea, new ArrayList<LngLat>());
+    }
+
+    /**
+     * Starts loading the No-Fly zones.
+     *
+     * @return     Future of the List of lists of edges of different No-Fly zones.
+     * @see uk.ac.ed.inf.NoFlyZonesAccess#readNoFlyZones(InputStream)
+     */
+    public CompletableFuture<List<List<LngLat>>> loadNoFlyZones() {
+        return load("noFlyZones", NoFlyZonesAccess::readNoFlyZones, new ArrayList<List<LngLat>>());
+    }
+
+    /**
+     * Starts loading the participating Restaurants.
+     *
+     * @return     Future of the Map between the name of every participating Restaurant and the Restaurant.
+     * @see uk.ac.ed.inf.Restaurant#readRestaurants(InputStream)
+     */
+    public CompletableFuture<Map<String, Restaurant>> loadRestaurants() {
+        return load("restaurants", Restaurant::readRestaurants, new HashMap<String, Restaurant>());
+    }
+
+    /**
+     * Starts loading the Orders for a given date. The request is sent straight away, and the Orders are validated by
+     * the validation stage as soon as both the Orders and the stage are available.
+     *
+     * @param date               String of a date.
+     * @param validationStage    Future of the stage validating the Orders against the participating Restaurants.
+     * @return                   Future of the List of validated Orders.
+     * @see uk.ac.ed.inf.Order#readOrders(InputStream, OrderValidationStage)
+     */
+    public CompletableFuture<List<Order>> loadOrdersWith(String date, CompletableFuture<OrderValidationStage> validationStage) {
+        if (snapshots != null) {
+            return reportFailure("orders/" + date, fetch("orders/" + date)
+                    .thenCombine(validationStage, (body, stage) -> read(body, in -> Order.readOrders(in, stage))));
+        }
+        return send("orders/" + date)
+                .thenCombine(validationStage, (response, stage) -> read(response, body -> Order.readOrders(body, stage)))
+                .exceptionally(e -> new ArrayList<Order>());
+    }
+
+    /**
+     * Sends a GET request to an endpoint of the REST-server, and de-serializes its response once it arrives.
+     *
+     * @param endpoint    Endpoint relative to the base address.
+     * @param reader      De-serializer of the response.
+     * @param <T>         Type of the de-serialized response.
+     * @return            Future of the de-serialized response.
+     */
+    private <T> CompletableFuture<T> get(String endpoint, ResponseReader<T> reader) {
+        return send(endpoint).thenApply(response -> read(response, reader));
+    }
+
+    /**
+     * Loads an endpoint. Without a snapshot store, this is a plain request whose failure results in the empty value.
+     * With a snapshot store, the body is fetched with it, and a failure is reported.
+     *
+     * @param endpoint    Endpoint relative to the base address.
+     * @param reader      De-serializer of the body.
+     * @param empty       Value of a failed plain request.
+     * @param <T>         Type of the de-serialized body.
+     * @return            Future of the de-serialized body.
+     */
+    private <T> CompletableFuture<T> load(String endpoint, ResponseReader<T> reader, T empty) {
+        if (snapshots == null) {
+            return get(endpoint, reader).exceptionally(e -> empty);
+        }
+        return reportFailure(endpoint, fetch(endpoint).thenApply(body -> read(body, reader)));
+    }
+
+    /**
+     * Reports the failure of loading an endpoint, which is then left to the caller of the loader.
+     *
+     * @param endpoint    Endpoint relative to the base address.
+     * @param future      Future of the de-serialized body.
+     * @param <T>         Type of the de-serialized body.
+     * @return            Future completing just like the given one, once the failure has been reported.
+     */
+    private static <T> CompletableFuture<T> reportFailure(String endpoint, CompletableFuture<T> future) {
+        return future.whenComplete((value, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof UncheckedIOException) {
+                    cause = cause.getCause();
+                }
+                System.out.println("Data of " + endpoint + " cannot be loaded. " + cause.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Loads the body of an endpoint with the snapshot store. Offline, the body is the snapshot. Online, the request
+     * is sent with the ETag and Last-Modified of the snapshot, and the snapshot is used when the server answers that
+     * it has not been modified, or when the request fails. A new body is streamed into the snapshot, replacing it,
+     * and a body that cannot be written there is treated like a failed request.
+     *
+     * @param endpoint    Endpoint relative to the base address.
+     * @return            Future of the file holding the body, failed if there is neither a response nor a snapshot.
+     */
+    private CompletableFuture<Path> fetch(String endpoint) {
+
+        SnapshotStore.Snapshot snapshot = snapshots.read(endpoint);
+        if (snapshotMode == SnapshotMode.OFFLINE) {
+            return snapshot == null
+                    ? CompletableFuture.failedFuture(new IOException("No snapshot of " + endpoint + "."))
+                    : CompletableFuture.completedFuture(snapshot.body());
+        }
+
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseServerURL + endpoint)).GET();
+            if (snapshot != null && snapshot.etag() != null) {
+                builder.header("If-None-Match", snapshot.etag());
+            }
+            if (snapshot != null && snapshot.lastModified() != null) {
+                builder.header("If-Modified-Since", snapshot.lastModified());
+            }
+            request = builder.build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()).thenApply(response -> {
+            try (InputStream body = response.body()) {
+                if (response.statusCode() == 304 && snapshot != null) {
+                    return snapshot.body();
+                }
+                if (response.statusCode() / 100 != 2) {
+                    throw new IOException("Request to " + response.uri() + " failed with status " + response.statusCode());
+                }
+
+                String etag = response.headers().firstValue("ETag").orElse(null);
+                String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+                return snapshots.write(endpoint, body, etag, lastModified).body();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).exceptionally(e -> {
+            if (snapshot == null) {
+                throw new UncheckedIOException(new IOException("Request to " + endpoint + " failed, and there is no snapshot of it.", e));
+            }
+            // a slow or failing server does not leave the run without data
+            System.out.println("Request to " + endpoint + " failed, using the snapshot fetched at " + snapshot.fetchedAt() + ".");
+            return snapshot.body();
+        });
+    }
+
+    /**
+     * Sends a GET request to an endpoint of the REST-server.
+     *
+     * @param endpoint    Endpoint relative to the base address.
+     * @return            Future of the response, whose body is streamed as it arrives.
+     */
+    private CompletableFuture<HttpResponse<InputStream>> send(String endpoint) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseServerURL + endpoint)).GET().build();
+            return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IllegalArgumentException e) {
+            // in case the URL is malformed the request fails just like one that did not reach the server
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * De-serializes a body kept in a snapshot, whether it has just been downloaded or was taken from an earlier run.
+     *
+     * @param body      File holding the body of a response.
+     * @param reader    De-serializer of the body.
+     * @param <T>       Type of the de-serialized body.
+     * @return          De-serialized body.
+     * @throws UncheckedIOException    When the body could not be read or de-serialized.
+     */
+    private static <T> T read(Path body, ResponseReader<T> reader) {
+        try (InputStream in = Files.newInputStream(body)) {
+            return reader.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * De-serializes the body of a successful response.
+     *
+     * @param response    Response of the REST-server.
+     * @param reader      De-serializer of the response.
+     * @param <T>         Type of the de-serialized response.
+     * @return            De-serialized response.
+     * @throws UncheckedIOException    When the response was not successful or could not be de-serialized.
+     */
+    private static <T> T read(HttpResponse<InputStream> response, ResponseReader<T> reader) {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("Request to " + response.uri() + " failed with status " + response.statusCode());
+            }
+            return reader.read(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,6 +15,11 @@ import java.util.Map;
  */
 public class Restaurant {
 
+    /**
+     * Object mapper shared by all de-serializations of Restaurants.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * Name of the participating restaurant. JSON Property.
      */
@@ -42,21 +48,33 @@ public class Restaurant {
      */
     public static Map<String, Restaurant> getRestaurantsFromRestServer(String baseServerURL ){
 
-        try {
-            var url = new URL(baseServerURL + "restaurants");
-            Restaurant[] restaurants = new ObjectMapper().readValue(url, Restaurant[].class);
-
-            var restaurantMap = new HashMap<String, Restaurant>();
-            for(Restaurant restaurant: restaurants){
-                restaurantMap.put(restaurant.name, restaurant);
-            }
-            return restaurantMap;
+        try (InputStream response = new URL(baseServerURL + "restaurants").openStream()) {
+            return readRestaurants(response);
         } catch(IOException e){
             // in case a URL is malformed or the server under a given address has not been found it will return empty map
             return new HashMap<String, Restaurant>();
         }
     }
 
+    /**
+     * De-serializes the participating restaurants, as returned by the REST-service, into a Map between Restaurant's
+     * name and a Restaurant object.
+     *
+     * @param response      JSON response of the REST-service.
+     * @return              Map between the name of every participating Restaurant and the Restaurant.
+     * @throws IOException  When the response cannot be read or is not a valid list of Restaurants.
+     */
+    public static Map<String, Restaurant> readRestaurants(InputStream response) throws IOException {
+
+        Restaurant[] restaurants = MAPPER.readValue(response, Restaurant[].class);
+
+        var restaurantMap = new HashMap<String, Restaurant>();
+        for(Restaurant restaurant: restaurants){
+            restaurantMap.put(restaurant.name, restaurant);
+        }
+        return restaurantMap;
+    }
+
     ////////////////////////
     ///      GETTERS     ///
     ////////////////////////
@@ -0,0 +1,133 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the Drone's routes to and from Restaurants for a path planning run. Every Order from the same
+ * Restaurant is delivered along the same route, so each route only has to be calculated once. Routes may be put into
+ * the cache concurrently, and a single cache can be shared between the runs for several dates.
+ */
+public class RouteCache {
+
+    /**
+     * Route between DRONE_START_COORDINATES and a Restaurant.
+     *
+     * @param pathTo      List of Nodes from DRONE_START_COORDINATES to the Restaurant.
+     * @param pathFrom    List of Nodes from the Restaurant back to DRONE_START_COORDINATES.
+     */
+    public record Route(List<Node> pathTo, List<Node> pathFrom) {
+
+        /**
+         * Assembles the full path for an Order along this route. Nodes are cloned, so the cached route is never
+         * modified, and all of them are stamped with the given ticks.
+         *
+         * @param ticksSinceStartOfCalculation    Milliseconds that have passed since the start of Drone's path calculation for the day.
+         * @return                                New List of Nodes, going to the Restaurant and back.
+         */
+        public List<Node> toOrderPath(long ticksSinceStartOfCalculation) {
+
+            var orderPath = new ArrayList<Node>(pathTo.size() + pathFrom.size());
+            for (Node node : pathTo) {
+                orderPath.add(node.cloneNode());
+            }
+            for (Node node : pathFrom) {
+                orderPath.add(node.cloneNode());
+            }
+
+            for (Node node : orderPath) {
+                node.setTicksSinceStartOfCalculation(ticksSinceStartOfCalculation);
+            }
+            return orderPath;
+        }
+
+        /**
+         * @return    Number of Nodes in the full path for an Order along this route.
+         */
+        public int size() {
+            return pathTo.size() + pathFrom.size();
+        }
+
+        /**
+         * @return    Number of moves the Drone makes for an Order along this route, one between every two Nodes of the full path.
+         */
+        public int moves() {
+            return size() - 1;
+        }
+    }
+
+    /**
+     * Mapping between the Restaurant's location and the route to it. Inaccessible Restaurants have no entry.
+     */
+    private final Map<LngLat, Route> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Locations of the Restaurants for which no route could be found.
+     */
+    private final Set<LngLat> inaccessible = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Stores the route to a Restaurant.
+     *
+     * @param restaurantLocation    Location of the Restaurant.
+     * @param route                 Route to and from the Restaurant.
+     */
+    public void put(LngLat restaurantLocation, Route route) {
+        routes.put(restaurantLocation, route);
+    }
+
+    /**
+     * Returns the cached route to a Restaurant.
+     *
+     * @param restaurantLocation    Location of the Restaurant.
+     * @return                      Route to and from the Restaurant, <code>null</code> if the Restaurant was inaccessible.
+     */
+    public Route get(LngLat restaurantLocation) {
+        return routes.get(restaurantLocation);
+    }
+
+    /**
+     * Records that no route could be found to a Restaurant, so that it is not searched for again.
+     *
+     * @param restaurantLocation    Location of the Restaurant.
+     */
+    public void putInaccessible(LngLat restaurantLocation) {
+        inaccessible.add(restaurantLocation);
+    }
+
+    /**
+     * Checks whether the route to a Restaurant has already been calculated, whether it was found or not.
+     *
+     * @param restaurantLocation    Location of the Restaurant.
+     * @return                      <code>true</code> if the Restaurant has a route or is known to be inaccessible.
+     */
+    public boolean contains(LngLat restaurantLocation) {
+        return routes.containsKey(restaurantLocation) || inaccessible.contains(restaurantLocation);
+    }
+
+    /**
+     * Keeps the routes for later runs. A cache held in memory only has nothing to keep them in.
+     *
+     * @see uk.ac.ed.inf.PersistentRouteCache#save()
+     */
+    public void save() {
+    }
+
+    /**
+     * @return    Unmodifiable view of the mapping between the Restaurants' locations and the routes to them.
+     */
+    protected Map<LngLat, Route> getRoutes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * @return    Unmodifiable view of the locations of the Restaurants for which no route could be found.
+     */
+    protected Set<LngLat> getInaccessible() {
+        return Collections.unmodifiableSet(inaccessible);
+    }
+}
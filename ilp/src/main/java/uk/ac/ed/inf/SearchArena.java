@@ -0,0 +1,829 @@
+package uk.ac.ed.inf;
+
+import uk.ac.ed.inf.Exceptions.RestaurantNotAccessibleException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reusable memory for the path calculation. Every Node of a search is a position in a set of primitive arrays,
+ * which hold its coordinates, weight, parent and direction, and the open list and the closed set only hold those
+ * positions. The arrays are kept between searches, so once an arena has grown to the size of the largest search,
+ * a search only allocates the Nodes of the path it returns.
+ * <p>
+ * The search expands, checks and orders the Nodes exactly like the Node based search in DroneControl, so both find
+ * the same paths. Arenas are not thread-safe, every thread uses its own.
+ * <p>
+ * With symmetry pruning, Nodes in open sky, away from the No-Fly zones and the border of the Central Area, only get
+ * the children that keep or slightly bend their direction, plus the one heading to the Restaurant. Any two moves in
+ * open sky reach the same point in either order, so the other children would mostly repeat paths found through these.
+ * A child heading straight to the Restaurant keeps moving in its direction while it stays in open sky, without
+ * going through the open list, like a jump of jump point search. Nodes near a boundary still get every child, as
+ * that is where the other directions can be forced.
+ * <p>
+ * A search is bounded by the number of Nodes it expands, rather than by the time it takes, so the same Restaurant is
+ * found or deemed inaccessible on every machine. In anytime mode, once a path is found, the rest of the expansion
+ * budget is spent on weighted A* searches with the weights of ANYTIME_WEIGHTS, weighing every Node by the moves taken
+ * to it plus the weighted moves still needed. Nodes which cannot lead to a path shorter than the shortest one found so
+ * far are not added, and the shortest path is returned once the weights or the budget run out.
+ *
+ * @see uk.ac.ed.inf.DroneControl#calculatePathForOrder(LngLat, List, NoFlyZoneIndex, PlannerSettings)
+ */
+public class SearchArena {
+
+    /**
+     * Initial number of Nodes the arena can hold.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Side length of a single cell of the closed set grid.
+     */
+    private static final double CELL_SIZE = Node.PROXIMITY_CONSTANT;
+
+    /**
+     * Distance from a Node within which a No-Fly zone edge or the border of the Central Area makes the Node not be in
+     * open sky.
+     */
+    private static final double OPEN_SKY_RADIUS = 2 * LngLat.MOVE_DISTANCE;
+
+    /**
+     * Weights of the distance to the target in the weighted A* searches of anytime mode, in the order they are run.
+     */
+    private static final double[] ANYTIME_WEIGHTS = {2.0, 1.5, 1.25, 1.0};
+
+    /**
+     * Compass directions by their ordinal.
+     */
+    private static final Compass[] DIRECTIONS = Compass.values();
+
+    /**
+     * Change of Longitude of a move in every Compass direction, by its ordinal.
+     */
+    private static final double[] LNG_OFFSETS = new double[DIRECTIONS.length];
+
+    /**
+     * Change of Latitude of a move in every Compass direction, by its ordinal.
+     */
+    private static final double[] LAT_OFFSETS = new double[DIRECTIONS.length];
+
+    static {
+        // taken from LngLat, so that adding an offset gives exactly the coordinates of LngLat.nextPosition
+        for (Compass direction : DIRECTIONS) {
+            LngLat offset = new LngLat(0, 0).nextPosition(direction);
+            LNG_OFFSETS[direction.ordinal()] = offset.lng();
+            LAT_OFFSETS[direction.ordinal()] = offset.lat();
+        }
+    }
+
+    /**
+     * Arena of every thread, created on its first search.
+     */
+    private static final ThreadLocal<SearchArena> ARENAS = ThreadLocal.withInitial(SearchArena::new);
+
+    /**
+     * Coordinates of the Nodes.
+     */
+    private double[] lngs = new double[INITIAL_CAPACITY];
+    private double[] lats = new double[INITIAL_CAPACITY];
+
+    /**
+     * Weights of the Nodes.
+     */
+    private double[] weights = new double[INITIAL_CAPACITY];
+
+    /**
+     * Positions of the Nodes' parents, -1 for the starting Node.
+     */
+    private int[] parents = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of moves from the starting Node to the Nodes.
+     */
+    private int[] depths = new int[INITIAL_CAPACITY];
+
+    /**
+     * Ordinals of the Compass directions from the Nodes' parents, -1 for the starting Node.
+     */
+    private byte[] directions = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Whether the Nodes are in the Central Area.
+     */
+    private boolean[] inCentralArea = new boolean[INITIAL_CAPACITY];
+
+    /**
+     * Positions of the Nodes in the open list heap, -1 when a Node is not in it.
+     */
+    private int[] heapIndices = new int[INITIAL_CAPACITY];
+
+    /**
+     * Next Node in the same cell of the closed set, -1 for the last one.
+     */
+    private int[] nextInCell = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of Nodes of the current search.
+     */
+    private int size;
+
+    /**
+     * Open list, as a binary Min Heap of Node positions.
+     */
+    private int[] heap = new int[INITIAL_CAPACITY];
+
+    /**
+     * Weights of the Nodes in the heap, at the same positions as in the "heap" array.
+     */
+    private double[] heapWeights = new double[INITIAL_CAPACITY];
+
+    /**
+     * Number of Nodes in the heap.
+     */
+    private int heapSize;
+
+    /**
+     * Keys of the closed set cells, in an open addressing hash table.
+     */
+    private long[] cellKeys = new long[INITIAL_CAPACITY];
+
+    /**
+     * First Node in every cell of the hash table.
+     */
+    private int[] cellHeads = new int[INITIAL_CAPACITY];
+
+    /**
+     * Search that last used every slot of the hash table. Slots used by earlier searches count as empty, so the table
+     * does not have to be cleared between searches.
+     */
+    private int[] cellStamps = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of the current search.
+     */
+    private int stamp;
+
+    /**
+     * Number of cells in use by the current search.
+     */
+    private int cellCount;
+
+    /**
+     * Weight of the distance to the target in the current weighted A* search, 0 to weigh the Nodes like the Node
+     * based search does.
+     */
+    private double heuristicWeight;
+
+    /**
+     * Number of Nodes of the shortest path found so far, paths of this many Nodes or more are not searched for.
+     */
+    private int pathSizeBound = Integer.MAX_VALUE;
+
+    /**
+     * Number of Nodes that may be expanded by the current search, counting every step of a jump as an expansion.
+     */
+    private long expansionBudget = Long.MAX_VALUE;
+
+    /**
+     * Work done by the last search.
+     */
+    private long nodesExpanded, noFlySegmentTests;
+    private int peakOpenListSize;
+
+    /**
+     * @return    Arena of the current thread.
+     */
+    public static SearchArena forCurrentThread() {
+        return ARENAS.get();
+    }
+
+    /**
+     * Finds the path between two coordinates, avoiding the No-Fly zones and not coming back to the Central Area once
+     * it has been left. The search is recorded into the given metrics.
+     *
+     * @param startCoor          Coordinates the Drone starts at.
+     * @param endCoor            Coordinates of the Restaurant.
+     * @param centralArea        List of edges of the Central Area.
+     * @param noFlyZones         Compiled index over the zones that the Drone cannot enter.
+     * @param expansionBudget    Number of Nodes that may be expanded before the Restaurant is deemed inaccessible.
+     * @param symmetryPruning    <code>true</code> to prune the children of Nodes in open sky.
+     * @param anytime            <code>true</code> to spend the rest of the budget on finding shorter paths, once a path is found.
+     * @param metrics            Registry the search is recorded into.
+     * @return                   List of Nodes defining the path between the two coordinates, including the start but not the end.
+     * @throws RestaurantNotAccessibleException When the search runs out of its expansion budget or out of Nodes to
+     *                                          expand before finding any path.
+     */
+    public List<Node> findPath(LngLat startCoor, LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, long expansionBudget, boolean symmetryPruning, boolean anytime, PlannerMetrics metrics) throws RestaurantNotAccessibleException {
+
+        long startNanos = System.nanoTime();
+        boolean found = false;
+        reset();
+        try {
+            List<Node> path = search(startCoor, endCoor, centralArea, noFlyZones, expansionBudget, symmetryPruning, 0, Integer.MAX_VALUE);
+            found = true;
+
+            // the budget is counted over all searches, so the weighted searches only get what the first one left
+            for (int i = 0; anytime && i < ANYTIME_WEIGHTS.length && nodesExpanded < expansionBudget; i++) {
+                try {
+                    path = search(startCoor, endCoor, centralArea, noFlyZones, expansionBudget, symmetryPruning, ANYTIME_WEIGHTS[i], path.size());
+                } catch (RestaurantNotAccessibleException e) {
+                    // no shorter path within the budget, the next weight may still find one
+                }
+            }
+            return path;
+        } finally {
+            metrics.recordPathSearch(nodesExpanded, noFlySegmentTests, peakOpenListSize, System.nanoTime() - startNanos, found);
+        }
+    }
+
+    /**
+     * Runs a single search of findPath, adding the work done to the arena's fields.
+     *
+     * @param heuristicWeight    Weight of the distance to the target in weighted A*, 0 to weigh the Nodes like the
+     *                           Node based search does.
+     * @param pathSizeBound      Only paths of fewer Nodes are searched for.
+     * @see uk.ac.ed.inf.SearchArena#findPath(LngLat, LngLat, List, NoFlyZoneIndex, long, boolean, boolean, PlannerMetrics)
+     */
+    private List<Node> search(LngLat startCoor, LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, long expansionBudget, boolean symmetryPruning, double heuristicWeight, int pathSizeBound) throws RestaurantNotAccessibleException {
+
+        clear();
+        this.heuristicWeight = heuristicWeight;
+        this.pathSizeBound = pathSizeBound;
+        this.expansionBudget = expansionBudget;
+        int start = addNode(startCoor.lng(), startCoor.lat(), startCoor.distanceTo(endCoor), -1, -1, false);
+        heapAdd(start);
+
+        while (heapSize > 0) {
+
+            int current = heap[0];
+            if (LngLat.closeTo(lngs[current], lats[current], endCoor.lng(), endCoor.lat())) {
+                return buildPath(current);
+            }
+
+            // if the search has used up its budget, deem Restaurant as inaccessible and move on
+            if (nodesExpanded >= expansionBudget) {
+                throw new RestaurantNotAccessibleException("Restaurant not accessible.");
+            }
+
+            if (current == start) {
+                closedSetAdd(start);
+            }
+
+            // starting node does not need to be verified
+            if (symmetryPruning && current != start && inOpenSky(current, centralArea, noFlyZones)) {
+                expandPruned(current, endCoor, startCoor, centralArea, noFlyZones);
+            } else {
+                expand(current, current != start, false, endCoor, startCoor, centralArea, noFlyZones);
+            }
+
+            peakOpenListSize = Math.max(peakOpenListSize, heapSize);
+
+            // the current Node is removed only after its children were added, like in the Node based search, so
+            // that Nodes with equal weights leave the heap in the same order
+            heapRemove(current);
+        }
+
+        // no more Nodes to expand means there is no path to the Restaurant
+        throw new RestaurantNotAccessibleException("Restaurant not accessible.");
+    }
+
+    /**
+     * Expands a Node, adding a child in every Compass direction the Drone can move to from it. The children are put
+     * into the closed set and the open list, and take the positions from the arena's size before the expansion up to
+     * its size after it.
+     *
+     * @param current        Position of the Node to be expanded.
+     * @param checkMoves     <code>false</code> to add a child in every direction without checking the moves.
+     * @param backward       <code>true</code> if the Drone moves from the children to their parents, as in a search
+     *                       grown from the Restaurant. Decides which way the Central Area cannot be re-entered.
+     * @param target         Coordinates the search is heading to.
+     * @param origin         Coordinates the search has started from.
+     * @param centralArea    List of edges of the Central Area.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     */
+    void expand(int current, boolean checkMoves, boolean backward, LngLat target, LngLat origin, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones) {
+
+        nodesExpanded++;
+
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int next = addChild(current, d, checkMoves, backward, target, origin, centralArea, noFlyZones);
+            if (next >= 0) {
+                heapAdd(next);
+            }
+        }
+    }
+
+    /**
+     * Expands a Node in open sky with symmetry pruning. Only the children in the direction from the Node's parent,
+     * in the two directions next to it and in the direction of the target are added. The child in the direction of
+     * the target jumps on in that direction for as long as it stays in open sky and the target stays in that direction,
+     * and only the Node it lands on is put into the open list.
+     *
+     * @param current        Position of the Node to be expanded, which has a parent.
+     * @param target         Coordinates the search is heading to.
+     * @param origin         Coordinates the search has started from.
+     * @param centralArea    List of edges of the Central Area.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     */
+    private void expandPruned(int current, LngLat target, LngLat origin, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones) {
+
+        nodesExpanded++;
+
+        int count = DIRECTIONS.length;
+        int parentDirection = directions[current];
+        int targetDirection = directionTowards(current, target);
+
+        for (int d = 0; d < count; d++) {
+            int turn = Math.floorMod(d - parentDirection + 1, count);
+            if (turn > 2 && d != targetDirection) {
+                continue;
+            }
+
+            int next = addChild(current, d, true, false, target, origin, centralArea, noFlyZones);
+            if (next < 0) {
+                continue;
+            }
+            if (d == targetDirection) {
+                next = jump(next, d, target, origin, centralArea, noFlyZones);
+            }
+            heapAdd(next);
+        }
+    }
+
+    /**
+     * Keeps moving from a Node in a given direction, adding every Node on the way to the closed set, until leaving
+     * open sky, getting close to the target, the target no longer being in that direction, a move not being valid, or
+     * the expansion budget running out. Every step is counted as an expansion, as it does the work of one.
+     *
+     * @param node           Position of the Node to jump from.
+     * @param direction      Ordinal of the Compass direction of the jump.
+     * @param target         Coordinates the search is heading to.
+     * @param origin         Coordinates the search has started from.
+     * @param centralArea    List of edges of the Central Area.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     * @return               Position of the Node the jump lands on.
+     */
+    private int jump(int node, int direction, LngLat target, LngLat origin, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones) {
+
+        while (!LngLat.closeTo(lngs[node], lats[node], target.lng(), target.lat())
+                && directionTowards(node, target) == direction
+                && nodesExpanded < expansionBudget
+                && inOpenSky(node, centralArea, noFlyZones)) {
+            nodesExpanded++;
+            int next = addChild(node, direction, true, false, target, origin, centralArea, noFlyZones);
+            if (next < 0) {
+                break;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * Adds the child of a Node in a given Compass direction to the arena and the closed set, if the Drone can move
+     * there. The child is not put into the open list.
+     *
+     * @param current        Position of the Node.
+     * @param d              Ordinal of the Compass direction of the move.
+     * @param checkMoves     <code>false</code> to add the child without checking the move.
+     * @param backward       <code>true</code> if the Drone moves from the child to the Node.
+     * @param target         Coordinates the search is heading to.
+     * @param origin         Coordinates the search has started from.
+     * @param centralArea    List of edges of the Central Area.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     * @return               Position of the child, -1 if the move is not valid.
+     *
+     * @see uk.ac.ed.inf.SearchArena#expand(int, boolean, boolean, LngLat, LngLat, List, NoFlyZoneIndex)
+     */
+    private int addChild(int current, int d, boolean checkMoves, boolean backward, LngLat target, LngLat origin, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones) {
+
+        double nextLng = lngs[current] + LNG_OFFSETS[d];
+        double nextLat = lats[current] + LAT_OFFSETS[d];
+
+        boolean nextInCentralArea = LngLat.inArea(nextLng, nextLat, centralArea);
+
+        boolean validMove = !checkMoves;
+        int parent = parents[current];
+        if (!validMove && !(parent >= 0 && nextLng == lngs[parent] && nextLat == lats[parent])) {
+            noFlySegmentTests++;
+            validMove = !noFlyZones.lineCrossesNoFlyZone(lngs[current], lats[current], nextLng, nextLat)
+                    && !noFlyZones.pointInsideNoFlyZone(nextLng, nextLat)
+                    && !closedSetContainsNodeCloseTo(nextLng, nextLat)
+                    && !(backward
+                        ? inCentralArea[current] && !nextInCentralArea
+                        : nextInCentralArea && !inCentralArea[current]);
+        }
+
+        if (!validMove) {
+            return -1;
+        }
+
+        double distanceToTarget = LngLat.distance(nextLng, nextLat, target.lng(), target.lat());
+        double weight = 1.6 * distanceToTarget - LngLat.distance(nextLng, nextLat, origin.lng(), origin.lat());
+        if (heuristicWeight > 0) {
+            // the path through the child has its Nodes so far, plus at least one for every move still needed
+            double movesNeeded = Math.ceil(Math.max(0, distanceToTarget - Node.PROXIMITY_CONSTANT) / LngLat.MOVE_DISTANCE);
+            if (depths[current] + 2 + movesNeeded >= pathSizeBound) {
+                return -1;
+            }
+            weight = (depths[current] + 1) * LngLat.MOVE_DISTANCE + heuristicWeight * distanceToTarget;
+        }
+        int next = addNode(nextLng, nextLat, weight, current, d, nextInCentralArea);
+        closedSetAdd(next);
+        return next;
+    }
+
+    /**
+     * Checks whether a Node is in open sky: no No-Fly zone edge is near it, and the corners of the square of side
+     * 2 * OPEN_SKY_RADIUS around it are all on the same side of the border of the Central Area as the Node itself.
+     *
+     * @param node           Position of the Node.
+     * @param centralArea    List of edges of the Central Area.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     * @return               <code>true</code> if the Node is in open sky.
+     */
+    private boolean inOpenSky(int node, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones) {
+
+        double lng = lngs[node];
+        double lat = lats[node];
+        if (noFlyZones.hasEdgesNear(lng, lat, OPEN_SKY_RADIUS)) {
+            return false;
+        }
+        boolean nodeInCentralArea = inCentralArea[node];
+        return LngLat.inArea(lng - OPEN_SKY_RADIUS, lat - OPEN_SKY_RADIUS, centralArea) == nodeInCentralArea
+                && LngLat.inArea(lng + OPEN_SKY_RADIUS, lat - OPEN_SKY_RADIUS, centralArea) == nodeInCentralArea
+                && LngLat.inArea(lng - OPEN_SKY_RADIUS, lat + OPEN_SKY_RADIUS, centralArea) == nodeInCentralArea
+                && LngLat.inArea(lng + OPEN_SKY_RADIUS, lat + OPEN_SKY_RADIUS, centralArea) == nodeInCentralArea;
+    }
+
+    /**
+     * @param node      Position of the Node.
+     * @param target    Coordinates to head to.
+     * @return          Ordinal of the Compass direction closest to the direction from the Node to the target.
+     */
+    private int directionTowards(int node, LngLat target) {
+        double angle = Math.toDegrees(Math.atan2(target.lat() - lats[node], target.lng() - lngs[node]));
+        return Math.floorMod((int) Math.round(angle / 22.5), DIRECTIONS.length);
+    }
+
+    /**
+     * Creates the Nodes of the path leading to a given Node, which is not included.
+     *
+     * @param endParent    Position of the Node close to the end of the path.
+     * @return             List of Nodes from the start to the given Node. Ticks of the Nodes are left at 0.
+     */
+    List<Node> buildPath(int endParent) {
+
+        var path = new ArrayList<Node>();
+        for (int i = endParent; i >= 0; i = parents[i]) {
+            path.add(new Node(new LngLat(lngs[i], lats[i]), weights[i], getDirection(i), 0, inCentralArea[i]));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Empties the arena for a new search, keeping its arrays, and zeroes the work done.
+     */
+    void reset() {
+        clear();
+        nodesExpanded = 0;
+        noFlySegmentTests = 0;
+        peakOpenListSize = 0;
+    }
+
+    /**
+     * Empties the arena for a new search, keeping its arrays and the work done so far.
+     */
+    private void clear() {
+        size = 0;
+        heapSize = 0;
+        cellCount = 0;
+
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(cellStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Adds a Node to the arena, growing the arrays when they are full.
+     *
+     * @param lng                  Longitude of the Node.
+     * @param lat                  Latitude of the Node.
+     * @param weight               Weight of the Node.
+     * @param parent               Position of the Node's parent, -1 for the starting Node.
+     * @param direction            Ordinal of the Compass direction from the parent, -1 for the starting Node.
+     * @param nodeInCentralArea    Whether the Node is in the Central Area.
+     * @return                     Position of the new Node.
+     */
+    int addNode(double lng, double lat, double weight, int parent, int direction, boolean nodeInCentralArea) {
+
+        if (size == lngs.length) {
+            int capacity = size * 2;
+            lngs = Arrays.copyOf(lngs, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            directions = Arrays.copyOf(directions, capacity);
+            inCentralArea = Arrays.copyOf(inCentralArea, capacity);
+            heapIndices = Arrays.copyOf(heapIndices, capacity);
+            nextInCell = Arrays.copyOf(nextInCell, capacity);
+        }
+
+        int node = size++;
+        lngs[node] = lng;
+        lats[node] = lat;
+        weights[node] = weight;
+        parents[node] = parent;
+        depths[node] = parent < 0 ? 0 : depths[parent] + 1;
+        directions[node] = (byte) direction;
+        inCentralArea[node] = nodeInCentralArea;
+        heapIndices[node] = -1;
+        nextInCell[node] = -1;
+        return node;
+    }
+
+
+    ////////////////////////
+    ///    OPEN LIST     ///
+    ////////////////////////
+
+    /**
+     * Adds a Node to the heap. The heap follows the same steps as IndexedHeapOpenList.
+     *
+     * @param node    Position of the Node.
+     *
+     * @see uk.ac.ed.inf.IndexedHeapOpenList
+     */
+    void heapAdd(int node) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+            heapWeights = Arrays.copyOf(heapWeights, heapSize * 2);
+        }
+        siftUp(heapSize++, node, weights[node]);
+    }
+
+    /**
+     * Removes a Node from the heap, the last Node of the heap takes its place.
+     *
+     * @param node    Position of the Node.
+     */
+    void heapRemove(int node) {
+        int i = heapIndices[node];
+        heapIndices[node] = -1;
+        int s = --heapSize;
+        if (s != i) {
+            int moved = heap[s];
+            double movedWeight = heapWeights[s];
+            siftDown(i, moved, movedWeight);
+            if (heap[i] == moved) {
+                siftUp(i, moved, movedWeight);
+            }
+        }
+    }
+
+    /**
+     * Inserts a Node at position k, moving it up the heap until it is larger or equal to its parent.
+     *
+     * @param k         Position to insert the Node at.
+     * @param node      Position of the Node in the arena.
+     * @param weight    Weight of the Node.
+     */
+    private void siftUp(int k, int node, double weight) {
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (Double.compare(weight, heapWeights[parent]) >= 0) {
+                break;
+            }
+            place(k, heap[parent], heapWeights[parent]);
+            k = parent;
+        }
+        place(k, node, weight);
+    }
+
+    /**
+     * Inserts a Node at position k, moving it down the heap until it is smaller or equal to its children.
+     *
+     * @param k         Position to insert the Node at.
+     * @param node      Position of the Node in the arena.
+     * @param weight    Weight of the Node.
+     */
+    private void siftDown(int k, int node, double weight) {
+        int half = heapSize >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && Double.compare(heapWeights[child], heapWeights[right]) > 0) {
+                child = right;
+            }
+            if (Double.compare(weight, heapWeights[child]) <= 0) {
+                break;
+            }
+            place(k, heap[child], heapWeights[child]);
+            k = child;
+        }
+        place(k, node, weight);
+    }
+
+    /**
+     * Puts a Node at a given position of the heap, and records that position for the Node.
+     *
+     * @param k         Position in the heap.
+     * @param node      Position of the Node in the arena.
+     * @param weight    Weight of the Node.
+     */
+    private void place(int k, int node, double weight) {
+        heap[k] = node;
+        heapWeights[k] = weight;
+        heapIndices[node] = k;
+    }
+
+
+    ////////////////////////
+    ///    CLOSED SET    ///
+    ////////////////////////
+
+    /**
+     * Adds a Node to the cell of the closed set its coordinates fall in.
+     *
+     * @param node    Position of the Node.
+     *
+     * @see uk.ac.ed.inf.ProximityGrid#add(Node)
+     */
+    void closedSetAdd(int node) {
+
+        if ((cellCount + 1) * 2 > cellKeys.length) {
+            growCells();
+        }
+
+        long key = cellKey(cellIndex(lngs[node]), cellIndex(lats[node]));
+        int slot = findSlot(key);
+        if (cellStamps[slot] != stamp) {
+            cellStamps[slot] = stamp;
+            cellKeys[slot] = key;
+            cellHeads[slot] = -1;
+            cellCount++;
+        }
+        nextInCell[node] = cellHeads[slot];
+        cellHeads[slot] = node;
+    }
+
+    /**
+     * Checks whether some Node in the closed set is closer than Node.PROXIMITY_CONSTANT to given coordinates, only
+     * visiting the Nodes in neighbouring cells.
+     *
+     * @param lng    Longitude of the coordinates.
+     * @param lat    Latitude of the coordinates.
+     * @return       <code>true</code> if some Node in the closed set is close to the coordinates.
+     *
+     * @see uk.ac.ed.inf.ProximityGrid#containsNodeCloseTo(LngLat)
+     */
+    private boolean closedSetContainsNodeCloseTo(double lng, double lat) {
+        return findNodeCloseTo(lng, lat) >= 0;
+    }
+
+    /**
+     * Finds a Node in the closed set that is closer than Node.PROXIMITY_CONSTANT to given coordinates.
+     *
+     * @param lng    Longitude of the coordinates.
+     * @param lat    Latitude of the coordinates.
+     * @return       Position of such a Node, -1 if there is none.
+     */
+    int findNodeCloseTo(double lng, double lat) {
+
+        int minX = cellIndex(lng - CELL_SIZE);
+        int maxX = cellIndex(lng + CELL_SIZE);
+        int minY = cellIndex(lat - CELL_SIZE);
+        int maxY = cellIndex(lat + CELL_SIZE);
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                int slot = findSlot(cellKey(x, y));
+                if (cellStamps[slot] != stamp) {
+                    continue;
+                }
+                for (int node = cellHeads[slot]; node >= 0; node = nextInCell[node]) {
+                    if (LngLat.distance(lngs[node], lats[node], lng, lat) < Node.PROXIMITY_CONSTANT) {
+                        return node;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the slot of the hash table holding a cell, or the empty slot where it would be put.
+     *
+     * @param key    Key of the cell.
+     * @return       Position of the slot.
+     */
+    private int findSlot(long key) {
+        int mask = cellKeys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (cellStamps[slot] == stamp && cellKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the hash table, putting the cells of the current search back into it.
+     */
+    private void growCells() {
+
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+        int[] oldStamps = cellStamps;
+
+        cellKeys = new long[oldKeys.length * 2];
+        cellHeads = new int[oldKeys.length * 2];
+        cellStamps = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] == stamp) {
+                int slot = findSlot(oldKeys[i]);
+                cellStamps[slot] = stamp;
+                cellKeys[slot] = oldKeys[i];
+                cellHeads[slot] = oldHeads[i];
+            }
+        }
+    }
+
+    /**
+     * Index of the cell along one axis that a given value falls in.
+     *
+     * @param value     Longitude or Latitude value.
+     * @return          Index of the cell.
+     */
+    private static int cellIndex(double value) {
+        return (int) Math.floor(value / CELL_SIZE);
+    }
+
+    /**
+     * Combines the two indices of a cell into a single key.
+     *
+     * @param x     Index of the cell along the Longitude axis.
+     * @param y     Index of the cell along the Latitude axis.
+     * @return      Key of the cell.
+     */
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+
+    ////////////////////////
+    ///      GETTERS     ///
+    ////////////////////////
+
+    static double getLngOffset(Compass direction) {
+        return LNG_OFFSETS[direction.ordinal()];
+    }
+
+    static double getLatOffset(Compass direction) {
+        return LAT_OFFSETS[direction.ordinal()];
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    double getLng(int node) {
+        return lngs[node];
+    }
+
+    double getLat(int node) {
+        return lats[node];
+    }
+
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    Compass getDirection(int node) {
+        return directions[node] < 0 ? null : DIRECTIONS[directions[node]];
+    }
+
+    boolean getInCentralArea(int node) {
+        return inCentralArea[node];
+    }
+
+    int peek() {
+        return heapSize == 0 ? -1 : heap[0];
+    }
+
+    int getHeapSize() {
+        return heapSize;
+    }
+
+    long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    long getNoFlySegmentTests() {
+        return noFlySegmentTests;
+    }
+}
@@ -0,0 +1,30 @@
+package uk.ac.ed.inf;
+
+/**
+ * Enum of the available implementations of the path calculation to a Restaurant.
+ *
+ * @see uk.ac.ed.inf.DroneControl#calculatePathForOrder(LngLat, java.util.List, NoFlyZoneIndex, PlannerSettings)
+ */
+public enum SearchType {
+
+    /**
+     * Search from the start with a Node object for every expanded Node, in the open list chosen by the settings.
+     */
+    NODES,
+
+    /**
+     * The same search from the start, in a pooled SearchArena of primitive arrays.
+     */
+    ARENA,
+
+    /**
+     * BidirectionalSearch, grown from both the start and the Restaurant.
+     */
+    BIDIRECTIONAL,
+
+    /**
+     * Shortest polyline on the VisibilityGraph of the No-Fly zones, converted into Drone moves. Falls back to ARENA
+     * when the moves cannot follow the polyline.
+     */
+    VISIBILITY_GRAPH
+}
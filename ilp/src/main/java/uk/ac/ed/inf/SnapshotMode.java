@@ -0,0 +1,20 @@
+package uk.ac.ed.inf;
+
+/**
+ * Ways the data of the REST-service is taken from a SnapshotStore.
+ *
+ * @see uk.ac.ed.inf.RestDataLoader
+ */
+public enum SnapshotMode {
+
+    /**
+     * Requests are sent conditionally on the snapshots, and the snapshots are used when nothing has changed or a
+     * request fails. Changed responses replace the snapshots.
+     */
+    ONLINE,
+
+    /**
+     * No requests are sent, all data is taken from the snapshots.
+     */
+    OFFLINE
+}
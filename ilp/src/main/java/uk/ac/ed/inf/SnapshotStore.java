@@ -0,0 +1,177 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Local store of the last good responses of the REST-service, one snapshot per endpoint. Every snapshot is the body of
+ * the response in "ENDPOINT.json", next to "ENDPOINT.properties" holding the VERSION of the store, the SHA-256 hash
+ * of the body, the ETag and Last-Modified headers the body was sent with, and when it was fetched. Slashes in the
+ * endpoint are replaced by dashes, so the Orders of a date are kept in "orders-YYYY-MM-DD.json".
+ * <p>
+ * Both files are written under temporary names and moved into place, the properties last. A body that does not match
+ * the hash in its properties, for example after a run was stopped while writing it, is treated as missing.
+ *
+ * @see uk.ac.ed.inf.RestDataLoader
+ */
+public class SnapshotStore {
+
+    /**
+     * Version of the store, snapshots of other versions are treated as missing.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Snapshot of a single endpoint.
+     *
+     * @param body            File holding the body of the response.
+     * @param sha256          Hex SHA-256 hash of the body.
+     * @param etag            ETag header of the response, <code>null</code> if there was none.
+     * @param lastModified    Last-Modified header of the response, <code>null</code> if there was none.
+     * @param fetchedAt       When the response was received.
+     */
+    public record Snapshot(Path body, String sha256, String etag, String lastModified, Instant fetchedAt) {}
+
+    /**
+     * Directory the snapshots are kept in.
+     */
+    private final Path directory;
+
+    /**
+     * Creates a store over a directory, which is created once the first snapshot is written.
+     *
+     * @param directory    Directory the snapshots are kept in.
+     */
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the snapshot of an endpoint.
+     *
+     * @param endpoint    Endpoint relative to the base address of the REST-server.
+     * @return            Snapshot of the endpoint, <code>null</code> if there is no valid one.
+     */
+    public Snapshot read(String endpoint) {
+
+        var properties = new Properties();
+        try (InputStream in = Files.newInputStream(propertiesFile(endpoint))) {
+            properties.load(in);
+            if (!String.valueOf(VERSION).equals(properties.getProperty("version"))) {
+                return null;
+            }
+
+            Path body = bodyFile(endpoint);
+            String sha256;
+            try (InputStream bodyIn = Files.newInputStream(body)) {
+                sha256 = sha256(bodyIn);
+            }
+            if (!sha256.equals(properties.getProperty("sha256"))) {
+                return null;
+            }
+            return new Snapshot(body, sha256, properties.getProperty("etag"), properties.getProperty("lastModified"),
+                    Instant.parse(properties.getProperty("fetchedAt")));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Snapshot of " + endpoint + " cannot be read. " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the snapshot of an endpoint, streaming the body into its file as it is read, so that it is never held
+     * in memory as a whole.
+     *
+     * @param endpoint        Endpoint relative to the base address of the REST-server.
+     * @param body            Body of the response, read to its end but not closed.
+     * @param etag            ETag header of the response, <code>null</code> if there was none.
+     * @param lastModified    Last-Modified header of the response, <code>null</code> if there was none.
+     * @return                The new snapshot.
+     * @throws IOException    When the body cannot be read or the snapshot cannot be written.
+     */
+    public Snapshot write(String endpoint, InputStream body, String etag, String lastModified) throws IOException {
+
+        Files.createDirectories(directory);
+        MessageDigest digest = newDigest();
+        Path bodyTemp = Files.createTempFile(directory, fileName(endpoint), ".tmp");
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(bodyTemp), digest)) {
+            body.transferTo(out);
+        } catch (IOException e) {
+            // a body cut short is not kept
+            Files.deleteIfExists(bodyTemp);
+            throw e;
+        }
+        Files.move(bodyTemp, bodyFile(endpoint), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        var snapshot = new Snapshot(bodyFile(endpoint), HexFormat.of().formatHex(digest.digest()), etag, lastModified, Instant.now());
+
+        var properties = new Properties();
+        properties.setProperty("version", String.valueOf(VERSION));
+        properties.setProperty("sha256", snapshot.sha256());
+        properties.setProperty("fetchedAt", snapshot.fetchedAt().toString());
+        if (etag != null) {
+            properties.setProperty("etag", etag);
+        }
+        if (lastModified != null) {
+            properties.setProperty("lastModified", lastModified);
+        }
+
+        Path propertiesTemp = Files.createTempFile(directory, fileName(endpoint), ".tmp");
+        try (OutputStream out = Files.newOutputStream(propertiesTemp)) {
+            properties.store(out, "Snapshot of " + endpoint);
+        }
+        Files.move(propertiesTemp, propertiesFile(endpoint), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return snapshot;
+    }
+
+    /**
+     * @param body    Stream of the bytes to be hashed, read to its end but not closed.
+     * @return        Hex SHA-256 hash of the bytes.
+     * @throws IOException    When the stream cannot be read.
+     */
+    public static String sha256(InputStream body) throws IOException {
+        var in = new DigestInputStream(body, newDigest());
+        in.transferTo(OutputStream.nullOutputStream());
+        return HexFormat.of().formatHex(in.getMessageDigest().digest());
+    }
+
+    /**
+     * @return    New SHA-256 digest.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param endpoint    Endpoint relative to the base address of the REST-server.
+     * @return            Name the files of the endpoint's snapshot start with.
+     */
+    private static String fileName(String endpoint) {
+        return endpoint.replace('/', '-');
+    }
+
+    private Path bodyFile(String endpoint) {
+        return directory.resolve(fileName(endpoint) + ".json");
+    }
+
+    private Path propertiesFile(String endpoint) {
+        return directory.resolve(fileName(endpoint) + ".properties");
+    }
+}
@@ -0,0 +1,428 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Visibility graph over the No-Fly zones, for planning paths in a map that is mostly open sky. The vertices of the
+ * graph are the convex corners of the No-Fly zones, pushed outwards by INFLATION, and two vertices are connected when
+ * the straight line between them does not cross any zone. The shortest path between two points around the zones
+ * always bends at such corners, so a route only takes a small query on the graph, plus a pass that converts the
+ * resulting polyline into Drone moves.
+ * <p>
+ * The graph is built once per NoFlyZoneIndex. The vertices visible from the start and from every Restaurant are
+ * worked out on their first query and kept, as the same few points are queried for every Order. Otherwise the graph
+ * is only read, so it can be queried from several threads.
+ *
+ * @see uk.ac.ed.inf.NoFlyZoneIndex#getVisibilityGraph()
+ */
+public final class VisibilityGraph {
+
+    /**
+     * Distance the corners of the No-Fly zones are pushed outwards by. The Drone's moves stay within a move of the
+     * polyline, so this leaves them a move of clearance from the zones.
+     */
+    static final double INFLATION = 2 * LngLat.MOVE_DISTANCE;
+
+    /**
+     * Largest factor of INFLATION a corner is pushed out by, so that very sharp corners do not make far away vertices.
+     */
+    private static final double MAX_MITRE = 3;
+
+    /**
+     * Largest number of points whose visible vertices are kept.
+     */
+    private static final int MAX_TERMINALS = 256;
+
+    /**
+     * Compass directions, of which equally good ones are tried in this order when converting a polyline into moves.
+     */
+    private static final Compass[] DIRECTIONS = Compass.values();
+
+    /**
+     * No-Fly zones, as lists of their edge coordinates.
+     */
+    private final List<List<LngLat>> noFlyZones;
+
+    /**
+     * Bounding boxes of the No-Fly zones, as {minLng, minLat, maxLng, maxLat}, at the same positions as in the "noFlyZones" list.
+     */
+    private final double[][] zoneBounds;
+
+    /**
+     * Coordinates of the vertices.
+     */
+    private final LngLat[] vertices;
+
+    /**
+     * Positions of the vertices visible from every vertex.
+     */
+    private final int[][] neighbours;
+
+    /**
+     * Distances from queried points to every vertex, infinite for the vertices not visible from them.
+     */
+    private final Map<LngLat, double[]> terminals = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the graph over a list of No-Fly zones.
+     *
+     * @param noFlyZones    List of lists of edge coordinates defining zones that the Drone cannot enter.
+     */
+    public VisibilityGraph(List<List<LngLat>> noFlyZones) {
+        this.noFlyZones = noFlyZones;
+        this.zoneBounds = new double[noFlyZones.size()][];
+
+        for (int z = 0; z < noFlyZones.size(); z++) {
+            double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (LngLat point : noFlyZones.get(z)) {
+                bounds[0] = Math.min(bounds[0], point.lng());
+                bounds[1] = Math.min(bounds[1], point.lat());
+                bounds[2] = Math.max(bounds[2], point.lng());
+                bounds[3] = Math.max(bounds[3], point.lat());
+            }
+            zoneBounds[z] = bounds;
+        }
+
+        var corners = new ArrayList<LngLat>();
+        for (List<LngLat> noFlyZone : noFlyZones) {
+            addInflatedCorners(noFlyZone, corners);
+        }
+        this.vertices = corners.toArray(new LngLat[0]);
+
+        var visible = new ArrayList<List<Integer>>();
+        for (int i = 0; i < vertices.length; i++) {
+            visible.add(new ArrayList<>());
+        }
+        for (int i = 0; i < vertices.length; i++) {
+            for (int j = i + 1; j < vertices.length; j++) {
+                if (isVisible(vertices[i], vertices[j])) {
+                    visible.get(i).add(j);
+                    visible.get(j).add(i);
+                }
+            }
+        }
+        this.neighbours = new int[vertices.length][];
+        for (int i = 0; i < vertices.length; i++) {
+            neighbours[i] = visible.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Pushes every convex corner of a No-Fly zone outwards by INFLATION, and adds the ones which do not end up in
+     * another zone to the given list. Concave corners are left out, as a shortest path never bends at them.
+     *
+     * @param noFlyZone    List of edge coordinates of a No-Fly zone, which may repeat the first point at the end.
+     * @param corners      List the pushed out corners are added to.
+     */
+    private void addInflatedCorners(List<LngLat> noFlyZone, List<LngLat> corners) {
+
+        int len = noFlyZone.size();
+        if (len > 1 && noFlyZone.get(0).sameCoordinates(noFlyZone.get(len - 1))) {
+            len--;
+        }
+        if (len < 3) {
+            return;
+        }
+
+        // the sign of the area tells which way round the corners are listed
+        double area = 0;
+        for (int i = 0; i < len; i++) {
+            LngLat one = noFlyZone.get(i);
+            LngLat two = noFlyZone.get((i + 1) % len);
+            area += one.lng() * two.lat() - two.lng() * one.lat();
+        }
+        double orientation = Math.signum(area);
+
+        for (int i = 0; i < len; i++) {
+            LngLat previous = noFlyZone.get((i + len - 1) % len);
+            LngLat corner = noFlyZone.get(i);
+            LngLat next = noFlyZone.get((i + 1) % len);
+
+            double inLng = corner.lng() - previous.lng(), inLat = corner.lat() - previous.lat();
+            double outLng = next.lng() - corner.lng(), outLat = next.lat() - corner.lat();
+            double inLength = Math.hypot(inLng, inLat), outLength = Math.hypot(outLng, outLat);
+            if (inLength == 0 || outLength == 0 || (inLng * outLat - inLat * outLng) * orientation <= 0) {
+                continue;
+            }
+
+            // outward normals of the two edges meeting at the corner, and their mitre
+            double n1Lng = inLat / inLength * orientation, n1Lat = -inLng / inLength * orientation;
+            double n2Lng = outLat / outLength * orientation, n2Lat = -outLng / outLength * orientation;
+            double mitre = Math.min(MAX_MITRE, 1 / Math.max(1e-9, (1 + n1Lng * n2Lng + n1Lat * n2Lat) / 2));
+            double mitreLng = n1Lng + n2Lng, mitreLat = n1Lat + n2Lat;
+            double mitreLength = Math.hypot(mitreLng, mitreLat);
+            double offset = INFLATION * Math.sqrt(mitre);
+
+            var inflated = new LngLat(corner.lng() + mitreLng / mitreLength * offset, corner.lat() + mitreLat / mitreLength * offset);
+            if (!inflated.pointInsideNoFlyZone(noFlyZones)) {
+                corners.add(inflated);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the straight line between two points does not cross any No-Fly zone. Zones whose bounding box
+     * does not overlap the line's are skipped, which suits the long lines of the graph better than the cells of
+     * NoFlyZoneIndex.
+     *
+     * @param one    First point of the line.
+     * @param two    Second point of the line.
+     * @return       <code>true</code> if the line does not cross the edges of any No-Fly zone.
+     */
+    public boolean isVisible(LngLat one, LngLat two) {
+
+        double minLng = Math.min(one.lng(), two.lng()), maxLng = Math.max(one.lng(), two.lng());
+        double minLat = Math.min(one.lat(), two.lat()), maxLat = Math.max(one.lat(), two.lat());
+
+        for (int z = 0; z < zoneBounds.length; z++) {
+            double[] bounds = zoneBounds[z];
+            if (maxLng < bounds[0] || minLng > bounds[2] || maxLat < bounds[1] || minLat > bounds[3]) {
+                continue;
+            }
+            List<LngLat> noFlyZone = noFlyZones.get(z);
+            int len = noFlyZone.size();
+            for (int i = 0; i < len; i++) {
+                if (LngLat.lineIntersection(noFlyZone.get(i), noFlyZone.get((i + 1) % len), one, two)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the shortest polyline between two points that does not cross any No-Fly zone, with Dijkstra's algorithm
+     * over the vertices of the graph and the two points. The search stops once no vertex left can lead to a shorter
+     * polyline than the best one found.
+     *
+     * @param startCoor    Coordinates the polyline starts at.
+     * @param endCoor      Coordinates the polyline ends at.
+     * @return             Points of the polyline from the start to the end, <code>null</code> if the end cannot be reached.
+     */
+    public List<LngLat> shortestPolyline(LngLat startCoor, LngLat endCoor) {
+        return shortestPolyline(startCoor, endCoor, new long[2]);
+    }
+
+    /**
+     * Finds the shortest polyline between two points that does not cross any No-Fly zone, counting the vertices
+     * settled by the search.
+     *
+     * @param startCoor    Coordinates the polyline starts at.
+     * @param endCoor      Coordinates the polyline ends at.
+     * @param work         Counters of the work done, {vertices settled, moves tested}, the first one is added to.
+     * @return             Points of the polyline from the start to the end, <code>null</code> if the end cannot be reached.
+     */
+    private List<LngLat> shortestPolyline(LngLat startCoor, LngLat endCoor, long[] work) {
+
+        if (isVisible(startCoor, endCoor)) {
+            return List.of(startCoor, endCoor);
+        }
+
+        int count = vertices.length;
+        double[] distances = terminalDistances(startCoor).clone();
+        double[] toEnd = terminalDistances(endCoor);
+        int[] previous = new int[count];
+        boolean[] settled = new boolean[count];
+        Arrays.fill(previous, -1);
+
+        var frontier = new PriorityQueue<double[]>(Comparator.comparingDouble(entry -> entry[0]));
+        for (int i = 0; i < count; i++) {
+            if (distances[i] < Double.POSITIVE_INFINITY) {
+                frontier.add(new double[]{distances[i], i});
+            }
+        }
+
+        double bestLength = Double.POSITIVE_INFINITY;
+        int last = -1;
+        while (!frontier.isEmpty()) {
+            double[] entry = frontier.poll();
+            int current = (int) entry[1];
+            // no shorter way to the end can be found through the remaining vertices
+            if (entry[0] >= bestLength) {
+                break;
+            }
+            if (settled[current]) {
+                continue;
+            }
+            settled[current] = true;
+            work[0]++;
+
+            if (distances[current] + toEnd[current] < bestLength) {
+                bestLength = distances[current] + toEnd[current];
+                last = current;
+            }
+            for (int neighbour : neighbours[current]) {
+                double distance = distances[current] + vertices[current].distanceTo(vertices[neighbour]);
+                if (!settled[neighbour] && distance < distances[neighbour]) {
+                    distances[neighbour] = distance;
+                    previous[neighbour] = current;
+                    frontier.add(new double[]{distance, neighbour});
+                }
+            }
+        }
+
+        if (last < 0) {
+            return null;
+        }
+        var polyline = new ArrayList<LngLat>();
+        polyline.add(endCoor);
+        for (int i = last; i >= 0; i = previous[i]) {
+            polyline.add(vertices[i]);
+        }
+        polyline.add(startCoor);
+        Collections.reverse(polyline);
+        return polyline;
+    }
+
+    /**
+     * Returns the distances from a point to every vertex visible from it, working them out on the first query of the
+     * point.
+     *
+     * @param point    Coordinates of the start or a Restaurant.
+     * @return         Distances to every vertex, infinite for the vertices not visible from the point. Not to be modified.
+     */
+    private double[] terminalDistances(LngLat point) {
+
+        double[] distances = terminals.get(point);
+        if (distances == null) {
+            distances = new double[vertices.length];
+            for (int i = 0; i < vertices.length; i++) {
+                distances[i] = isVisible(point, vertices[i]) ? point.distanceTo(vertices[i]) : Double.POSITIVE_INFINITY;
+            }
+            if (terminals.size() < MAX_TERMINALS) {
+                terminals.put(point, distances);
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Finds the path between two coordinates by converting the shortest polyline between them into Drone moves. Every
+     * move heads in the Compass direction closest to the next point of the polyline, and is checked against the
+     * No-Fly zones and the Central Area like a move of the lattice search. A path found is recorded into the given
+     * metrics as a path search, counting the vertices settled on the graph as expanded and the moves tested against
+     * the No-Fly zones. When no path is found, the search is only recorded as a fallback, as the caller falls back
+     * to the lattice search, which records the outcome of the route.
+     *
+     * @param startCoor      Coordinates the Drone starts at.
+     * @param endCoor        Coordinates of the Restaurant.
+     * @param centralArea    List of edges of the Central Area.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     * @param metrics        Registry the search is recorded into.
+     * @return               List of Nodes defining the path between the two coordinates, including the start but not
+     *                       the end. <code>null</code> when there is no polyline, or the moves cannot follow it.
+     */
+    public List<Node> findPath(LngLat startCoor, LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, PlannerMetrics metrics) {
+
+        long startNanos = System.nanoTime();
+        long[] work = new long[2];
+        List<LngLat> polyline = shortestPolyline(startCoor, endCoor, work);
+        List<Node> path = polyline == null ? null : followPolyline(polyline, startCoor, endCoor, centralArea, noFlyZones, work);
+        if (path == null) {
+            metrics.recordVisibilityGraphFallback(work[0], work[1]);
+        } else {
+            metrics.recordPathSearch(work[0], work[1], 0, System.nanoTime() - startNanos, true);
+        }
+        return path;
+    }
+
+    /**
+     * Converts a polyline into Drone moves.
+     *
+     * @param polyline       Points of the polyline from the start to the end.
+     * @param startCoor      Coordinates the Drone starts at.
+     * @param endCoor        Coordinates of the Restaurant.
+     * @param centralArea    List of edges of the Central Area.
+     * @param noFlyZones     Compiled index over the zones that the Drone cannot enter.
+     * @param work           Counters of the work done, {vertices settled, moves tested}, the second one is added to.
+     * @return               List of Nodes from the start to the first Node close to the end, <code>null</code> if a move is not valid.
+     */
+    private static List<Node> followPolyline(List<LngLat> polyline, LngLat startCoor, LngLat endCoor, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, long[] work) {
+
+        double length = 0;
+        for (int i = 1; i < polyline.size(); i++) {
+            length += polyline.get(i - 1).distanceTo(polyline.get(i));
+        }
+        int maxMoves = (int) (2 * length / LngLat.MOVE_DISTANCE) + 16;
+
+        // like in the lattice search, the starting Node is not considered to be in the Central Area, although the
+        // moves from it are checked against where it really is
+        var path = new ArrayList<Node>();
+        path.add(new Node(startCoor, startCoor.distanceTo(endCoor), null, 0, false));
+        LngLat position = startCoor;
+        boolean inCentralArea = startCoor.inCentralArea(centralArea);
+
+        for (int waypoint = 1; waypoint < polyline.size(); waypoint++) {
+            LngLat target = polyline.get(waypoint);
+
+            while (!position.closeTo(target)) {
+                if (path.size() > maxMoves) {
+                    return null;
+                }
+
+                Compass direction = nextDirection(position, inCentralArea, target, centralArea, noFlyZones, work);
+                if (direction == null) {
+                    return null;
+                }
+
+                LngLat next = position.nextPosition(direction);
+                inCentralArea = next.inCentralArea(centralArea);
+                double weight = 1.6 * next.distanceTo(endCoor) - next.distanceTo(startCoor);
+                path.add(new Node(next, weight, direction, 0, inCentralArea));
+                position = next;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Picks the direction of the Drone's next move towards a point of the polyline. The directions are tried from the
+     * one whose move ends closest to the point, so that a move clipping a No-Fly zone near a corner is replaced by the
+     * next best one, as long as it still gets closer to the point.
+     *
+     * @param position         Coordinates of the Drone.
+     * @param inCentralArea    <code>true</code> if the Drone is in the Central Area.
+     * @param target           Coordinates to head to.
+     * @param centralArea      List of edges of the Central Area.
+     * @param noFlyZones       Compiled index over the zones that the Drone cannot enter.
+     * @param work             Counters of the work done, {vertices settled, moves tested}, the second one is added to.
+     * @return                 Compass direction of a valid move getting closer to the target, <code>null</code> if there is none.
+     */
+    private static Compass nextDirection(LngLat position, boolean inCentralArea, LngLat target, List<LngLat> centralArea, NoFlyZoneIndex noFlyZones, long[] work) {
+
+        double[] distances = new double[DIRECTIONS.length];
+        for (Compass direction : DIRECTIONS) {
+            distances[direction.ordinal()] = position.nextPosition(direction).distanceTo(target);
+        }
+        Compass[] directions = DIRECTIONS.clone();
+        Arrays.sort(directions, Comparator.comparingDouble(direction -> distances[direction.ordinal()]));
+
+        double distance = position.distanceTo(target);
+        for (Compass direction : directions) {
+            if (distances[direction.ordinal()] >= distance) {
+                break;
+            }
+            LngLat next = position.nextPosition(direction);
+            work[1]++;
+            if (!noFlyZones.lineCrossesNoFlyZone(position, next) && !noFlyZones.pointInsideNoFlyZone(next)
+                    && (inCentralArea || !next.inCentralArea(centralArea))) {
+                return direction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return    Number of vertices of the graph.
+     */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+}
@@ -8,14 +8,35 @@ import uk.ac.ed.inf.Exceptions.NoItemsInOrderException;
 import uk.ac.ed.inf.Exceptions.RestaurantNotAccessibleException;
 import uk.ac.ed.inf.Exceptions.TooManyItemsInOrderException;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AppTest extends TestCase
 {
@@ -40,4 +61,1092 @@ public class AppTest extends TestCase
     public void testTest(){
         assertTrue(true);
     }
+
+    public void testProximityGridMatchesLinearScan(){
+        var random = new Random(42);
+        var grid = new ProximityGrid();
+        var nodes = new ArrayList<Node>();
+
+        for (int i = 0; i < 2000; i++) {
+            var coordinate = new LngLat(-3.19 + random.nextDouble() * 0.005, 55.94 + random.nextDouble() * 0.005);
+            var node = new Node(coordinate, 0.0, null, 0, false);
+            nodes.add(node);
+            grid.add(node);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            var coordinate = new LngLat(-3.19 + random.nextDouble() * 0.005, 55.94 + random.nextDouble() * 0.005);
+            boolean expected = nodes.stream().anyMatch(node -> node.closeToLngLat(coordinate));
+            assertEquals(expected, grid.containsNodeCloseTo(coordinate));
+        }
+    }
+
+    public void testIndexedHeapOpenListMatchesPriorityQueueOrder(){
+        var random = new Random(7);
+        OpenList heap = OpenListType.INDEXED_HEAP.create();
+        OpenList queue = OpenListType.PRIORITY_QUEUE.create();
+        var heapNodes = new ArrayList<Node>();
+        var queueNodes = new ArrayList<Node>();
+
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(4);
+            if (operation < 2 || heapNodes.isEmpty()) {
+                // weights are drawn from a small set to produce plenty of ties
+                double weight = random.nextInt(50);
+                var coordinate = new LngLat(i, i);
+                var heapNode = new Node(coordinate, weight, null, 0, false);
+                var queueNode = new Node(coordinate, weight, null, 0, false);
+                heap.add(heapNode);
+                queue.add(queueNode);
+                heapNodes.add(heapNode);
+                queueNodes.add(queueNode);
+            } else if (operation == 2) {
+                int index = random.nextInt(heapNodes.size());
+                assertEquals(queue.remove(queueNodes.remove(index)), heap.remove(heapNodes.remove(index)));
+            } else {
+                Node heapNode = heap.poll();
+                Node queueNode = queue.poll();
+                assertEquals(queueNode.getCoordinate(), heapNode.getCoordinate());
+                heapNodes.remove(heapNode);
+                queueNodes.remove(queueNode);
+            }
+            assertEquals(queue.size(), heap.size());
+        }
+    }
+
+    public void testNoFlyZoneIndexMatchesLngLat(){
+        var random = new Random(11);
+        var noFlyZones = new ArrayList<List<LngLat>>();
+
+        for (int z = 0; z < 100; z++) {
+            double centreLng = -3.2 + random.nextDouble() * 0.02;
+            double centreLat = 55.94 + random.nextDouble() * 0.01;
+            double radius = 0.0001 + random.nextDouble() * 0.001;
+            int vertices = 3 + random.nextInt(6);
+
+            var noFlyZone = new ArrayList<LngLat>();
+            for (int i = 0; i < vertices; i++) {
+                double angle = 2 * Math.PI * i / vertices + random.nextDouble();
+                double distance = radius * (0.5 + random.nextDouble());
+                noFlyZone.add(new LngLat(centreLng + distance * Math.cos(angle), centreLat + distance * Math.sin(angle)));
+            }
+            noFlyZone.add(noFlyZone.get(0));
+            noFlyZones.add(noFlyZone);
+        }
+
+        var index = new NoFlyZoneIndex(noFlyZones);
+        for (int i = 0; i < 20000; i++) {
+            var point = new LngLat(-3.2 + random.nextDouble() * 0.02, 55.94 + random.nextDouble() * 0.01);
+            var nextPoint = point.nextPosition(Compass.values()[random.nextInt(16)]);
+
+            assertEquals(point.pointInsideNoFlyZone(noFlyZones), index.pointInsideNoFlyZone(point));
+            assertEquals(LngLat.lineCrossesNoFlyZone(point, nextPoint, noFlyZones), index.lineCrossesNoFlyZone(point, nextPoint));
+        }
+    }
+
+    public void testParallelRoutesMatchSequential() throws IOException {
+        var random = new Random(21);
+
+        var noFlyZones = new ArrayList<List<LngLat>>();
+        for (int z = 0; z < 20; z++) {
+            double centreLng = -3.196 + random.nextDouble() * 0.02;
+            double centreLat = 55.938 + random.nextDouble() * 0.012;
+            double radius = 0.0002 + random.nextDouble() * 0.0005;
+            var noFlyZone = new ArrayList<LngLat>();
+            for (int i = 0; i < 5; i++) {
+                double angle = 2 * Math.PI * i / 5;
+                noFlyZone.add(new LngLat(centreLng + radius * Math.cos(angle), centreLat + radius * Math.sin(angle)));
+            }
+            noFlyZone.add(noFlyZone.get(0));
+            noFlyZones.add(noFlyZone);
+        }
+        // a Restaurant in the middle of this zone is inaccessible, the others mostly are not
+        noFlyZones.add(List.of(new LngLat(-3.1800, 55.9400), new LngLat(-3.1780, 55.9400), new LngLat(-3.1780, 55.9420),
+                new LngLat(-3.1800, 55.9420), new LngLat(-3.1800, 55.9400)));
+        var index = new NoFlyZoneIndex(noFlyZones);
+
+        var menus = new StringBuilder("[");
+        for (int i = 0; i < 12; i++) {
+            var location = i == 0 ? new LngLat(-3.1790, 55.9410) : new LngLat(-3.196 + random.nextDouble() * 0.02, 55.938 + random.nextDouble() * 0.012);
+            menus.append(i == 0 ? "" : ",").append(String.format("{\"name\":\"R%d\",\"longitude\":%s,\"latitude\":%s,\"menu\":[]}", i, location.lng(), location.lat()));
+        }
+        List<Restaurant> restaurants = Restaurant.readRestaurants(new ByteArrayInputStream(menus.append("]").toString().getBytes(StandardCharsets.UTF_8))).values().stream().toList();
+
+        var sequentialSettings = new PlannerSettings();
+        sequentialSettings.setParallelism(1);
+        sequentialSettings.setExpansionBudget(20000);
+        var parallelSettings = new PlannerSettings();
+        parallelSettings.setParallelism(4);
+        parallelSettings.setExpansionBudget(20000);
+
+        var sequential = new RouteCache();
+        var parallel = new RouteCache();
+        DroneControl.calculateRestaurantRoutes(restaurants, CENTRAL_AREA, index, sequential, sequentialSettings);
+        DroneControl.calculateRestaurantRoutes(restaurants, CENTRAL_AREA, index, parallel, parallelSettings);
+
+        int found = 0;
+        for (Restaurant restaurant : restaurants) {
+            RouteCache.Route expected = sequential.get(restaurant.getLocation());
+            RouteCache.Route route = parallel.get(restaurant.getLocation());
+            assertTrue(parallel.contains(restaurant.getLocation()));
+            if (expected == null) {
+                assertNull(route);
+                continue;
+            }
+            found++;
+            assertEquals(expected.size(), route.size());
+            for (int n = 0; n < expected.pathTo().size(); n++) {
+                assertTrue(expected.pathTo().get(n).getCoordinate().sameCoordinates(route.pathTo().get(n).getCoordinate()));
+                assertEquals(expected.pathTo().get(n).getDirectionFromParent(), route.pathTo().get(n).getDirectionFromParent());
+            }
+        }
+        assertTrue(found >= 8 && found < restaurants.size());
+        assertEquals(sequentialSettings.getMetrics().toJson().get("nodes_expanded"), parallelSettings.getMetrics().toJson().get("nodes_expanded"));
+
+        // an interrupted calculation fails, instead of leaving some Restaurants neither routed nor inaccessible
+        Thread.currentThread().interrupt();
+        try {
+            DroneControl.calculateRestaurantRoutes(restaurants, CENTRAL_AREA, index, new RouteCache(), parallelSettings);
+            fail("An interrupted route calculation must not complete.");
+        } catch (IllegalStateException e) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    public void testBatchPlannerPlansEveryDateOfRange() throws IOException {
+        String order = "{\"orderNo\":\"%s\",\"orderDate\":\"2023-05-30\",\"customer\":\"C\",\"creditCardNumber\":\"4000123412341234\",\"creditCardExpiry\":\"04/28\",\"cvv\":\"%s\",\"priceTotalInPence\":1100,\"orderItems\":[\"Margarita\"]}";
+        var responses = Map.of(
+                "/centralArea", "[{\"name\":\"A\",\"longitude\":-3.192473,\"latitude\":55.946233},{\"name\":\"B\",\"longitude\":-3.192473,\"latitude\":55.942617},"
+                        + "{\"name\":\"C\",\"longitude\":-3.184319,\"latitude\":55.942617},{\"name\":\"D\",\"longitude\":-3.184319,\"latitude\":55.946233}]",
+                "/noFlyZones", "[]",
+                "/restaurants", "[{\"name\":\"R\",\"longitude\":-3.1940,\"latitude\":55.9380,\"menu\":[{\"name\":\"Margarita\",\"priceInPence\":1000}]}]",
+                "/orders/2023-05-30", "[" + String.format(order, "1A2B0000", "123") + "," + String.format(order, "1A2B0001", "12") + "]");
+
+        // the Orders of the second date cannot be fetched
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String body = responses.get(exchange.getRequestURI().getPath());
+            byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(body == null ? 500 : 200, body == null ? -1 : bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+
+        var dates = List.of("2023-05-30", "2023-05-31");
+        var files = new ArrayList<File>();
+        for (String date : dates) {
+            files.addAll(List.of(new File("deliveries-" + date + ".json"), new File("flightpath-" + date + ".json"), new File("drone-" + date + ".geojson")));
+        }
+        try {
+            var batchPlanner = new BatchPlanner("http://127.0.0.1:" + server.getAddress().getPort() + "/", new PlannerSettings());
+            List<BatchPlanner.DateSummary> summaries = batchPlanner.planDates(LocalDate.parse(dates.get(0)), LocalDate.parse(dates.get(1)));
+
+            assertEquals(2, summaries.size());
+            assertEquals("2023-05-30", summaries.get(0).date());
+            assertEquals(2, summaries.get(0).orders());
+            assertEquals(1, summaries.get(0).delivered());
+            assertTrue(summaries.get(0).moves() > 0);
+            assertEquals("2023-05-31", summaries.get(1).date());
+            assertEquals(0, summaries.get(1).orders());
+            assertEquals(0, summaries.get(1).moves());
+            assertEquals(2, batchPlanner.getValidationStage().getValidatedOrders());
+
+            // every date gets its files, and the flightpath holds exactly the moves of the summary
+            var mapper = new ObjectMapper();
+            assertTrue(files.stream().allMatch(File::exists));
+            assertEquals("Delivered", mapper.readTree(files.get(0)).get(0).get("outcome").asText());
+            assertEquals("InvalidCvv", mapper.readTree(files.get(0)).get(1).get("outcome").asText());
+            assertEquals(summaries.get(0).moves(), mapper.readTree(files.get(1)).size());
+            assertEquals(0, mapper.readTree(files.get(3)).size());
+
+            // an interrupted batch fails, instead of looking like a range with nothing to plan
+            Thread.currentThread().interrupt();
+            try {
+                batchPlanner.planDates(LocalDate.parse(dates.get(0)), LocalDate.parse(dates.get(1)));
+                fail("An interrupted batch must not complete.");
+            } catch (IllegalStateException e) {
+                assertTrue(Thread.interrupted());
+            }
+        } finally {
+            server.stop(0);
+            files.forEach(File::delete);
+        }
+    }
+
+    public void testRestDataLoaderLoadsConcurrently() throws IOException {
+        var responses = Map.of(
+                "/centralArea", "[{\"name\":\"A\",\"longitude\":-3.192473,\"latitude\":55.946233},{\"name\":\"B\",\"longitude\":-3.184319,\"latitude\":55.942617}]",
+                "/noFlyZones", "[{\"name\":\"Z\",\"coordinates\":[[-3.19,55.944],[-3.189,55.943],[-3.187,55.944],[-3.19,55.944]]}]",
+                "/restaurants", "[{\"name\":\"R\",\"longitude\":-3.1912,\"latitude\":55.9455,\"menu\":[{\"name\":\"Margarita\",\"priceInPence\":1000}]}]",
+                "/orders/2023-01-01", "[{\"orderNo\":\"1A2B0000\",\"orderDate\":\"2023-01-01\",\"customer\":\"C\",\"creditCardNumber\":\"4000123412341234\",\"creditCardExpiry\":\"04/28\",\"cvv\":\"123\",\"priceTotalInPence\":1100,\"orderItems\":[\"Margarita\"]},"
+                        + "{\"orderNo\":\"1A2B0001\",\"orderDate\":\"2023-01-01\",\"customer\":\"C\",\"creditCardNumber\":\"4000123412341234\",\"creditCardExpiry\":\"04/28\",\"cvv\":\"12\",\"priceTotalInPence\":1100,\"orderItems\":[\"Margarita\"]}]");
+
+        // every response waits until all four of them have been requested, which only happens if the requests overlap
+        var allRequested = new CountDownLatch(responses.size());
+        var overlapping = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            String body = responses.get(exchange.getRequestURI().getPath());
+            if (body != null) {
+                allRequested.countDown();
+                try {
+                    if (allRequested.await(10, TimeUnit.SECONDS)) {
+                        overlapping.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(body == null ? 404 : 200, body == null ? -1 : bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            var loader = new RestDataLoader("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+            var centralArea = loader.loadCentralArea();
+            var noFlyZones = loader.loadNoFlyZones();
+            var restaurants = loader.loadRestaurants();
+            var validationStage = restaurants.thenApply(restaurantMap -> new OrderValidationStage(restaurantMap.values().stream().toList(), 1));
+            var orders = loader.loadOrdersWith("2023-01-01", validationStage);
+            var missingOrders = loader.loadOrdersWith("2023-01-02", validationStage);
+
+            assertEquals(2, centralArea.join().size());
+            assertEquals(1, noFlyZones.join().size());
+            assertEquals(4, noFlyZones.join().get(0).size());
+            assertEquals(new LngLat(-3.1912, 55.9455), restaurants.join().get("R").getLocation());
+            assertEquals(OrderOutcome.ValidButNotDelivered, orders.join().get(0).getOrderOutcome());
+            assertEquals(OrderOutcome.InvalidCvv, orders.join().get(1).getOrderOutcome());
+            assertTrue(missingOrders.join().isEmpty());
+            assertEquals(responses.size(), overlapping.get());
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public void testSnapshotStoreServesOfflineAndAfterFailures() throws IOException {
+        var responses = Map.of(
+                "/centralArea", "[{\"name\":\"A\",\"longitude\":-3.192473,\"latitude\":55.946233},{\"name\":\"B\",\"longitude\":-3.184319,\"latitude\":55.942617}]",
+                "/restaurants", "[{\"name\":\"R\",\"longitude\":-3.1912,\"latitude\":55.9455,\"menu\":[{\"name\":\"Margarita\",\"priceInPence\":1000}]}]");
+        String lastModified = "Sun, 01 Jan 2023 00:00:00 GMT";
+        var notModified = new AtomicInteger();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String body = responses.get(exchange.getRequestURI().getPath());
+            if (lastModified.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Last-Modified", lastModified);
+            exchange.sendResponseHeaders(body == null ? 404 : 200, body == null ? -1 : bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+
+        var directory = Files.createTempDirectory("snapshots");
+        var store = new SnapshotStore(directory);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        try {
+            var loader = new RestDataLoader(url, store, SnapshotMode.ONLINE);
+            assertEquals(2, loader.loadCentralArea().join().size());
+            assertEquals(new LngLat(-3.1912, 55.9455), loader.loadRestaurants().join().get("R").getLocation());
+            assertEquals(0, notModified.get());
+
+            // the second run sends conditional requests and takes the unchanged bodies from the snapshots
+            loader = new RestDataLoader(url, store, SnapshotMode.ONLINE);
+            assertEquals(2, loader.loadCentralArea().join().size());
+            assertEquals(1, loader.loadRestaurants().join().size());
+            assertEquals(2, notModified.get());
+        } finally {
+            server.stop(0);
+        }
+
+        // with the server gone, the snapshots are used both online and offline
+        assertEquals(2, new RestDataLoader(url, store, SnapshotMode.ONLINE).loadCentralArea().join().size());
+        assertEquals(2, new RestDataLoader(url, store, SnapshotMode.OFFLINE).loadCentralArea().join().size());
+        assertEquals(1, new RestDataLoader(url, store, SnapshotMode.OFFLINE).loadRestaurants().join().size());
+        assertNotNull(store.read("restaurants").lastModified());
+
+        // a body not matching its hash is treated as missing, and an endpoint without a snapshot fails rather than being empty
+        Files.writeString(directory.resolve("centralArea.json"), "[]");
+        assertNull(store.read("centralArea"));
+        for (CompletableFuture<?> missing : List.of(new RestDataLoader(url, store, SnapshotMode.OFFLINE).loadCentralArea(),
+                new RestDataLoader(url, store, SnapshotMode.ONLINE).loadNoFlyZones())) {
+            try {
+                missing.join();
+                fail();
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof UncheckedIOException || e.getCause() instanceof IOException);
+            }
+        }
+    }
+
+    public void testStreamOrdersValidatesOneAtATime() throws IOException {
+        var menu = new ByteArrayInputStream("[{\"name\":\"R\",\"longitude\":-3.1912,\"latitude\":55.9455,\"menu\":[{\"name\":\"Margarita\",\"priceInPence\":1000}]}]".getBytes(StandardCharsets.UTF_8));
+        List<Restaurant> restaurants = Restaurant.readRestaurants(menu).values().stream().toList();
+
+        String order = "{\"orderNo\":\"1A2B0000\",\"orderDate\":\"2023-01-01\",\"customer\":\"C\",\"creditCardNumber\":\"4000123412341234\",\"creditCardExpiry\":\"04/28\",\"cvv\":\"123\",\"priceTotalInPence\":1100,\"orderItems\":[\"Margarita\"]}";
+        String truncated = "[" + order + "," + order.replace("1100", "900") + ",{\"orderNo\":";
+
+        var stage = new OrderValidationStage(restaurants, 1);
+        var received = new ArrayList<Order>();
+        try {
+            Order.streamOrders(new ByteArrayInputStream(truncated.getBytes(StandardCharsets.UTF_8)), stage, received::add);
+            fail("A truncated response must not be read successfully");
+        } catch (IOException e) {
+            // the Orders before the truncation have already been handed on
+        }
+        assertEquals(2, received.size());
+        assertEquals(OrderOutcome.ValidButNotDelivered, received.get(0).getOrderOutcome());
+        assertEquals(OrderOutcome.InvalidTotal, received.get(1).getOrderOutcome());
+
+        // the stage is reused by the next response, counting the Orders of both
+        var orders = Order.readOrders(new ByteArrayInputStream(("[" + order + "]").getBytes(StandardCharsets.UTF_8)), stage);
+        assertEquals(1, orders.size());
+        assertEquals(OrderOutcome.ValidButNotDelivered, orders.get(0).getOrderOutcome());
+        assertEquals(3, stage.getValidatedOrders());
+    }
+
+    public void testFlightpathJsonWriterMatchesObjectMapper() throws IOException {
+        var path = new ArrayList<Node>();
+        var coordinate = new LngLat(-3.186874, 55.944494);
+        path.add(new Node(coordinate, 0, null, 0, false));
+        Compass[] directions = {Compass.N, Compass.SSE, null, Compass.W, Compass.ENE, null};
+        for (int move = 0; move < directions.length; move++) {
+            coordinate = coordinate.nextPosition(directions[move]);
+            path.add(new Node(coordinate, 0, directions[move], 3L * move, false));
+        }
+
+        // moves built the way the flightpath file used to be, as a list of maps serialized by an ObjectMapper
+        var listOfMoves = new ArrayList<Map<String, Object>>();
+        for (String orderNo : List.of("1AFFE082", "2B3C4D5E")) {
+            for (int i = 0; i < path.size() - 1; i++) {
+                var move = new LinkedHashMap<String, Object>();
+                move.put("orderNo", orderNo);
+                move.put("fromLongitude", path.get(i).getCoordinate().getLng());
+                move.put("fromLatitude", path.get(i).getCoordinate().getLat());
+                move.put("angle", path.get(i + 1).getDirectionFromParent() == null ? null : path.get(i + 1).getDirectionFromParent().angle);
+                move.put("toLongitude", path.get(i + 1).getCoordinate().getLng());
+                move.put("toLatitude", path.get(i + 1).getCoordinate().getLat());
+                move.put("ticksSinceStartOfCalculation", path.get(i + 1).getTicksSinceStartOfCalculation());
+                listOfMoves.add(move);
+            }
+        }
+        var mapper = new ObjectMapper();
+
+        for (boolean pretty : new boolean[]{true, false}) {
+            File file = File.createTempFile("flightpath", ".json");
+            try {
+                try (var writer = new FlightpathJsonWriter(file, pretty)) {
+                    writer.writeOrderPath("1AFFE082", path);
+                    writer.writeOrderPath("2B3C4D5E", path);
+                }
+                byte[] expected = pretty ? mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(listOfMoves) : mapper.writeValueAsBytes(listOfMoves);
+                assertEquals(new String(expected, StandardCharsets.UTF_8), Files.readString(file.toPath()));
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    public void testBinaryFlightpathConvertsBackToIdenticalJson() throws IOException {
+        var random = new Random(5);
+        var orderPathMap = new LinkedHashMap<String, List<Node>>();
+
+        for (int order = 0; order < 5; order++) {
+            var path = new ArrayList<Node>();
+            var coordinate = new LngLat(-3.186874, 55.944494);
+            path.add(new Node(coordinate, 0, null, 0, false));
+            for (int move = 0; move < 200; move++) {
+                Compass direction = random.nextInt(20) == 0 ? null : Compass.values()[random.nextInt(16)];
+                coordinate = coordinate.nextPosition(direction);
+                if (move == 100) {
+                    // a coordinate that is not exactly one move away from the previous one
+                    coordinate = new LngLat(coordinate.lng() + 1e-7, coordinate.lat());
+                }
+                path.add(new Node(coordinate, 0, direction, order * 7L + move / 50, false));
+            }
+            orderPathMap.put("ORDER00" + order, path);
+        }
+        orderPathMap.put("ORDER000-again", orderPathMap.get("ORDER000"));
+
+        File expected = File.createTempFile("flightpath", ".json");
+        File binary = File.createTempFile("flightpath", ".bin");
+        File converted = File.createTempFile("flightpath", ".json");
+        try {
+            try (var jsonWriter = new FlightpathJsonWriter(expected, true);
+                 var binaryWriter = new FlightpathBinaryWriter(binary)) {
+                for (Map.Entry<String, List<Node>> orderPath : orderPathMap.entrySet()) {
+                    jsonWriter.writeOrderPath(orderPath.getKey(), orderPath.getValue());
+                    binaryWriter.writeOrderPath(orderPath.getKey(), orderPath.getValue());
+                }
+            }
+            FlightpathBinaryReader.toJson(binary, converted, true);
+
+            assertTrue(binary.length() * 10 < expected.length());
+            assertTrue(Arrays.equals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(converted.toPath())));
+        } finally {
+            expected.delete();
+            binary.delete();
+            converted.delete();
+        }
+    }
+
+    public void testMenuIndexResolvesFirstRestaurantSellingAllItems() throws IOException {
+        var restaurantMap = readMenus(SHARED_ITEM_MENUS);
+        var restaurants = List.of(restaurantMap.get("A"), restaurantMap.get("B"));
+        var menuIndex = new MenuIndex(restaurants);
+
+        assertEquals(0, menuIndex.findRestaurant(new String[]{"Margarita"}));
+        assertEquals(0, menuIndex.findRestaurant(new String[]{"Margarita", "Calzone", "Margarita"}));
+        assertEquals(1, menuIndex.findRestaurant(new String[]{"Margarita", "Hawaiian"}));
+        assertEquals(-1, menuIndex.findRestaurant(new String[]{"Calzone", "Hawaiian"}));
+        assertEquals(-1, menuIndex.findRestaurant(new String[]{"Margarita", "Pepperoni"}));
+        assertEquals(900, menuIndex.getPrice(1, "Margarita"));
+        assertEquals(0, menuIndex.getPrice(0, "Hawaiian"));
+        assertFalse(menuIndex.contains("Pepperoni"));
+
+        String order = "{\"orderNo\":\"1A2B0000\",\"orderDate\":\"2023-01-01\",\"customer\":\"C\",\"creditCardNumber\":\"4000123412341234\",\"creditCardExpiry\":\"04/28\",\"cvv\":\"123\",";
+        String orders = "[" + order + "\"priceTotalInPence\":2200,\"orderItems\":[\"Margarita\",\"Hawaiian\"]},"
+                + order + "\"priceTotalInPence\":2500,\"orderItems\":[\"Calzone\",\"Hawaiian\"]},"
+                + order + "\"priceTotalInPence\":2500,\"orderItems\":[\"Pepperoni\",\"Hawaiian\"]}]";
+        var validated = Order.readOrders(new ByteArrayInputStream(orders.getBytes(StandardCharsets.UTF_8)), restaurants);
+
+        assertEquals(OrderOutcome.ValidButNotDelivered, validated.get(0).getOrderOutcome());
+        assertEquals("B", validated.get(0).getRestaurantName());
+        assertEquals(OrderOutcome.InvalidPizzaCombinationMultipleSuppliers, validated.get(1).getOrderOutcome());
+        assertEquals(OrderOutcome.InvalidPizzaNotDefined, validated.get(2).getOrderOutcome());
+    }
+
+    public void testOrderValidatorMatchesRegexExpiryCheck(){
+        var random = new Random(3);
+        String alphabet = "0123456789/a ";
+        String[] orderDates = {"2023-01-01", "2023-04-15", "2024-12-31", "2025-02-28"};
+
+        var orderDateMonths = new HashMap<String, Integer>();
+        for (int i = 0; i < 50000; i++) {
+            var expiry = new StringBuilder();
+            int length = random.nextInt(5) == 0 ? random.nextInt(8) : 5;
+            for (int c = 0; c < length; c++) {
+                expiry.append(c == 2 && random.nextBoolean() ? '/' : alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String orderDate = orderDates[random.nextInt(orderDates.length)];
+
+            // reference check, as previously done in Order
+            boolean expected;
+            if (!expiry.toString().matches("\\b(0[1-9]|1[0-2])+/+([0-9][0-9])\\b")) {
+                expected = false;
+            } else if (expiry.length() != 5) {
+                // strings like "0101/25" used to match the pattern and then fail to be parsed
+                expected = false;
+            } else {
+                int mm = Integer.parseInt(expiry.substring(0, 2));
+                int yyyy = Integer.parseInt("20" + expiry.substring(3, 5));
+                expected = LocalDate.parse(orderDate).isBefore(LocalDate.of(yyyy, mm, 1));
+            }
+
+            assertEquals(expiry.toString(), expected, OrderValidator.isCardExpiryAfterOrderDate(expiry.toString(), orderDate));
+            assertEquals(expiry.toString(), expected, OrderValidator.isCardExpiryAfterOrderDate(expiry.toString(), orderDate, orderDateMonths));
+        }
+        assertTrue(orderDateMonths.size() <= orderDates.length);
+    }
+
+    public void testParallelValidationMatchesSequential() throws IOException {
+        List<Restaurant> restaurants = readMenus(SHARED_ITEM_MENUS).values().stream().toList();
+        String[] pizzas = {"Margarita", "Calzone", "Hawaiian", "Pepperoni"};
+        String[] expiries = {"04/28", "12/22", "13/25", "01/23"};
+
+        var random = new Random(13);
+        var sequential = new ArrayList<Order>();
+        var parallel = new ArrayList<Order>();
+        var streamed = new ArrayList<Order>();
+        for (int i = 0; i < 5000; i++) {
+            String[] items = new String[random.nextInt(6)];
+            for (int item = 0; item < items.length; item++) {
+                items[item] = pizzas[random.nextInt(pizzas.length)];
+            }
+            String orderNo = random.nextInt(10) == 0 ? "1A2B" : String.format("%08d", i);
+            for (List<Order> orders : List.of(sequential, parallel, streamed)) {
+                var order = new Order();
+                order.setOrderNo(orderNo);
+                order.setOrderDate("2023-01-0" + (1 + i % 7));
+                order.setCreditCardNumber("4000123412341234");
+                order.setCreditCardExpiry(expiries[i % expiries.length]);
+                order.setCvv(i % 11 == 0 ? "12" : "123");
+                order.setPriceTotalInPence(100 + 1000 * items.length);
+                order.setOrderItems(items);
+                orders.add(order);
+            }
+        }
+
+        // both stages share a single index over the menus
+        var menuIndex = new MenuIndex(restaurants);
+        new OrderValidationStage(menuIndex, 1, new PlannerMetrics()).validate(sequential);
+        var stage = new OrderValidationStage(menuIndex, 4, new PlannerMetrics());
+        stage.validate(parallel);
+
+        // streamed Orders are validated in chunks while they are being read, and handed on in the order they were read;
+        // the wall-clock time counted leaves out the source's wait before its first Order
+        var received = new ArrayList<Order>();
+        var streamStage = new OrderValidationStage(menuIndex, 4, new PlannerMetrics());
+        streamStage.validate(consumer -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            streamed.forEach(consumer);
+        }, received::add);
+        assertEquals(streamed, received);
+        assertTrue(streamStage.getOrdersPerSecond() > 5000 / 0.3);
+
+        long[] expectedCounts = new long[OrderOutcome.values().length];
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getOrderOutcome(), parallel.get(i).getOrderOutcome());
+            assertEquals(sequential.get(i).getRestaurantName(), parallel.get(i).getRestaurantName());
+            assertEquals(sequential.get(i).getOrderOutcome(), streamed.get(i).getOrderOutcome());
+            expectedCounts[sequential.get(i).getOrderOutcome().ordinal()]++;
+        }
+        for (OrderOutcome outcome : OrderOutcome.values()) {
+            assertEquals(expectedCounts[outcome.ordinal()], (long) stage.getOutcomeCounts().get(outcome));
+        }
+        assertEquals(5000, stage.getValidatedOrders());
+        assertTrue(stage.getOrdersPerSecond() > 0);
+    }
+
+    public void testPlannerMetricsExportsCumulativeHistograms(){
+
+        var metrics = new PlannerMetrics();
+        metrics.recordPathSearch(120, 900, 40, 200_000, true);
+        metrics.recordPathSearch(30, 200, 75, 3_000_000, true);
+        metrics.recordPathSearch(10, 50, 5, 20_000_000_000L, false);
+        metrics.recordPlanningRun(26, 1950, 2000);
+
+        String text = metrics.toPrometheus();
+        assertTrue(text.contains("# TYPE pizzadronz_route_calculation_seconds histogram\n"));
+        assertTrue(text.contains("pizzadronz_path_searches_total{result=\"found\"} 2\n"));
+        assertTrue(text.contains("pizzadronz_path_searches_total{result=\"not_accessible\"} 1\n"));
+        assertTrue(text.contains("pizzadronz_nodes_expanded_total 160\n"));
+        assertTrue(text.contains("pizzadronz_no_fly_segment_tests_total 1150\n"));
+        assertTrue(text.contains("pizzadronz_open_list_peak_size 75\n"));
+        // buckets are cumulative, and a duration above the last bound is only counted by +Inf
+        assertTrue(text.contains("pizzadronz_route_calculation_seconds_bucket{le=\"0.0001\"} 0\n"));
+        assertTrue(text.contains("pizzadronz_route_calculation_seconds_bucket{le=\"0.0005\"} 1\n"));
+        assertTrue(text.contains("pizzadronz_route_calculation_seconds_bucket{le=\"0.005\"} 2\n"));
+        assertTrue(text.contains("pizzadronz_route_calculation_seconds_bucket{le=\"10\"} 2\n"));
+        assertTrue(text.contains("pizzadronz_route_calculation_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("pizzadronz_route_calculation_seconds_count 3\n"));
+        assertTrue(text.contains("pizzadronz_moves_used_peak 1950\n"));
+
+        assertEquals(160L, metrics.toJson().get("nodes_expanded"));
+        assertEquals(2000L, metrics.toJson().get("moves_limit"));
+    }
+
+    public void testSearchArenaFindsSamePathsAsNodeSearch() throws RestaurantNotAccessibleException {
+        var random = new Random(16);
+
+        var noFlyZones = new ArrayList<List<LngLat>>();
+        for (int z = 0; z < 30; z++) {
+            double centreLng = -3.196 + random.nextDouble() * 0.02;
+            double centreLat = 55.938 + random.nextDouble() * 0.012;
+            double radius = 0.0002 + random.nextDouble() * 0.0005;
+            var noFlyZone = new ArrayList<LngLat>();
+            for (int i = 0; i < 5; i++) {
+                double angle = 2 * Math.PI * i / 5;
+                noFlyZone.add(new LngLat(centreLng + radius * Math.cos(angle), centreLat + radius * Math.sin(angle)));
+            }
+            noFlyZone.add(noFlyZone.get(0));
+            noFlyZones.add(noFlyZone);
+        }
+        var index = new NoFlyZoneIndex(noFlyZones);
+
+        var arenaSettings = new PlannerSettings();
+        var nodeSettings = new PlannerSettings();
+        nodeSettings.setSearchType(SearchType.NODES);
+
+        for (int i = 0; i < 20; i++) {
+            var restaurant = new LngLat(-3.196 + random.nextDouble() * 0.02, 55.938 + random.nextDouble() * 0.012);
+            if (index.pointInsideNoFlyZone(restaurant)) {
+                continue;
+            }
+            // the same arena is reused by every search on this thread
+            List<Node> arenaPath = DroneControl.calculatePathForOrder(restaurant, CENTRAL_AREA, index, arenaSettings);
+            List<Node> nodePath = DroneControl.calculatePathForOrder(restaurant, CENTRAL_AREA, index, nodeSettings);
+
+            assertEquals(nodePath.size(), arenaPath.size());
+            for (int n = 0; n < nodePath.size(); n++) {
+                assertEquals(nodePath.get(n).getCoordinate(), arenaPath.get(n).getCoordinate());
+                assertEquals(nodePath.get(n).getDirectionFromParent(), arenaPath.get(n).getDirectionFromParent());
+                assertEquals(nodePath.get(n).getWeight(), arenaPath.get(n).getWeight());
+                assertEquals(nodePath.get(n).getInCentralArea(), arenaPath.get(n).getInCentralArea());
+            }
+        }
+        assertTrue((Long) arenaSettings.getMetrics().toJson().get("path_searches_found") >= 15);
+        assertEquals(arenaSettings.getMetrics().toJson().get("nodes_expanded"), nodeSettings.getMetrics().toJson().get("nodes_expanded"));
+        assertEquals(arenaSettings.getMetrics().toJson().get("no_fly_segment_tests"), nodeSettings.getMetrics().toJson().get("no_fly_segment_tests"));
+    }
+
+    public void testBidirectionalSearchFindsValidPaths() throws RestaurantNotAccessibleException {
+        // the Restaurant sits behind a cup opening towards the start, which the search from the start has to flood
+        List<List<LngLat>> noFlyZones = List.of(CUP);
+        var index = new NoFlyZoneIndex(noFlyZones);
+
+        var forwardSettings = new PlannerSettings();
+        var bidirectionalSettings = new PlannerSettings();
+        bidirectionalSettings.setSearchType(SearchType.BIDIRECTIONAL);
+
+        DroneControl.calculatePathForOrder(BEHIND_CUP, CENTRAL_AREA, index, forwardSettings);
+        List<Node> path = DroneControl.calculatePathForOrder(BEHIND_CUP, CENTRAL_AREA, index, bidirectionalSettings);
+        assertTrue((Long) bidirectionalSettings.getMetrics().toJson().get("nodes_expanded") < (Long) forwardSettings.getMetrics().toJson().get("nodes_expanded"));
+
+        // every move of the path is a real move of the Drone, avoids the cup, and does not come back to the Central Area
+        assertValidPath(path, START, BEHIND_CUP, CENTRAL_AREA, noFlyZones);
+    }
+
+    public void testVisibilityGraphFollowsShortestPolyline() throws RestaurantNotAccessibleException {
+        double x = CUP_CENTRE.lng(), y = CUP_CENTRE.lat();
+        List<List<LngLat>> noFlyZones = List.of(CUP);
+        var index = new NoFlyZoneIndex(noFlyZones);
+
+        // the four outer corners and the two tips of the cup are convex, and the polyline bends around two outer ones
+        VisibilityGraph graph = index.getVisibilityGraph();
+        assertSame(graph, index.getVisibilityGraph());
+        assertEquals(6, graph.getVertexCount());
+        List<LngLat> polyline = graph.shortestPolyline(START, BEHIND_CUP);
+        assertEquals(4, polyline.size());
+        assertEquals(2, graph.shortestPolyline(START, new LngLat(x - 0.002, y)).size());
+
+        var metrics = new PlannerMetrics();
+        List<Node> path = graph.findPath(START, BEHIND_CUP, CENTRAL_AREA, index, metrics);
+        assertNotNull(path);
+        assertValidPath(path, START, BEHIND_CUP, CENTRAL_AREA, noFlyZones);
+        // the vertices settled on the graph are counted as expanded, and every move tried as a segment test
+        assertEquals(1L, metrics.toJson().get("path_searches_found"));
+        assertTrue((Long) metrics.toJson().get("nodes_expanded") <= graph.getVertexCount());
+        assertTrue((Long) metrics.toJson().get("no_fly_segment_tests") >= path.size() - 1);
+
+        // a Restaurant in the middle of a box cannot be reached by following the polyline, nor by the fallback,
+        // which alone records the route as not accessible
+        var box = List.of(new LngLat(x - 0.0005, y - 0.0005), new LngLat(x + 0.0005, y - 0.0005), new LngLat(x + 0.0005, y + 0.0005),
+                new LngLat(x - 0.0005, y + 0.0005), new LngLat(x - 0.0005, y - 0.0005));
+        var walledSettings = new PlannerSettings();
+        walledSettings.setSearchType(SearchType.VISIBILITY_GRAPH);
+        walledSettings.setExpansionBudget(2000);
+        try {
+            DroneControl.calculatePathForOrder(new LngLat(x, y), CENTRAL_AREA, new NoFlyZoneIndex(List.of(box)), walledSettings);
+            fail("A Restaurant inside a No-Fly zone must not be accessible");
+        } catch (RestaurantNotAccessibleException e) {
+            // expected
+        }
+        assertEquals(0L, walledSettings.getMetrics().toJson().get("path_searches_found"));
+        assertEquals(1L, walledSettings.getMetrics().toJson().get("path_searches_not_accessible"));
+        assertEquals(1L, walledSettings.getMetrics().toJson().get("visibility_graph_fallbacks"));
+
+        // the snapped moves are never much longer than the lattice search's path
+        var settings = new PlannerSettings();
+        settings.setSearchType(SearchType.VISIBILITY_GRAPH);
+        List<Node> arenaPath = DroneControl.calculatePathForOrder(BEHIND_CUP, CENTRAL_AREA, index, new PlannerSettings());
+        assertTrue(DroneControl.calculatePathForOrder(BEHIND_CUP, CENTRAL_AREA, index, settings).size() <= arenaPath.size() + 2);
+    }
+
+    public void testSymmetryPruningCutsWorkOnOpenRoutes() throws RestaurantNotAccessibleException {
+        var restaurant = new LngLat(-3.1940, 55.9380);
+        List<List<LngLat>> noFlyZones = List.of(SQUARE_ZONE);
+        var index = new NoFlyZoneIndex(noFlyZones);
+
+        var settings = new PlannerSettings();
+        var prunedSettings = new PlannerSettings();
+        prunedSettings.setSymmetryPruning(true);
+
+        DroneControl.calculatePathForOrder(restaurant, CENTRAL_AREA, index, settings);
+        List<Node> path = DroneControl.calculatePathForOrder(restaurant, CENTRAL_AREA, index, prunedSettings);
+        // every step of a jump counts as an expansion, so the saving is in the moves tested and the open list
+        Map<String, Object> pruned = prunedSettings.getMetrics().toJson();
+        Map<String, Object> unpruned = settings.getMetrics().toJson();
+        assertTrue((Long) pruned.get("nodes_expanded") <= (Long) unpruned.get("nodes_expanded"));
+        assertTrue((Long) pruned.get("no_fly_segment_tests") * 2 < (Long) unpruned.get("no_fly_segment_tests"));
+        assertTrue((Long) pruned.get("open_list_peak_size") < (Long) unpruned.get("open_list_peak_size"));
+        assertValidPath(path, START, restaurant, CENTRAL_AREA, noFlyZones);
+    }
+
+    public void testPersistentRouteCacheKeepsRoutesPerGeometry() throws IOException, RestaurantNotAccessibleException {
+        var restaurant = new LngLat(-3.1940, 55.9380);
+        List<List<LngLat>> noFlyZones = List.of(SQUARE_ZONE);
+        List<List<LngLat>> movedNoFlyZones = List.of(SQUARE_ZONE.stream().map(point -> new LngLat(point.lng() + 0.001, point.lat())).toList());
+
+        File file = File.createTempFile("routes", ".bin");
+        file.delete();
+        try {
+            List<Node> pathTo = DroneControl.calculatePathForOrder(restaurant, CENTRAL_AREA, new NoFlyZoneIndex(noFlyZones), new PlannerSettings());
+            var cache = new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "ARENA", 5000);
+            assertFalse(cache.contains(restaurant));
+            cache.put(restaurant, new RouteCache.Route(pathTo, List.of(pathTo.get(0))));
+            cache.save();
+
+            // a new run over the same geometry finds the route exactly as it was calculated
+            RouteCache.Route route = new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "ARENA", 5000).get(restaurant);
+            assertNotNull(route);
+            assertEquals(pathTo.size(), route.pathTo().size());
+            for (int i = 0; i < pathTo.size(); i++) {
+                assertTrue(pathTo.get(i).getCoordinate().sameCoordinates(route.pathTo().get(i).getCoordinate()));
+                assertEquals(pathTo.get(i).getDirectionFromParent(), route.pathTo().get(i).getDirectionFromParent());
+                assertEquals(pathTo.get(i).getInCentralArea(), route.pathTo().get(i).getInCentralArea());
+            }
+
+            // moving a zone or changing the search invalidates the route, but it stays in the file for the old geometry
+            var moved = new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, movedNoFlyZones, "ARENA", 5000);
+            assertNull(moved.get(restaurant));
+            assertNull(new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "NODES", 5000).get(restaurant));
+            moved.put(restaurant, new RouteCache.Route(pathTo, List.of(pathTo.get(0))));
+            moved.save();
+            assertNotNull(new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "ARENA", 5000).get(restaurant));
+
+            // inaccessible Restaurants are kept for the same budget, and searched for again with another one
+            var inaccessible = new LngLat(-3.1900, 55.9405);
+            var cold = new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "ARENA", 5000);
+            cold.putInaccessible(inaccessible);
+            cold.save();
+            var warm = new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "ARENA", 5000);
+            assertTrue(warm.contains(inaccessible));
+            assertNull(warm.get(inaccessible));
+            assertNotNull(warm.get(restaurant));
+            assertFalse(new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "ARENA", 10000).contains(inaccessible));
+            assertFalse(new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, movedNoFlyZones, "ARENA", 5000).contains(inaccessible));
+
+            // a damaged file leaves the cache empty, even when the routes before the damage can still be read
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 40));
+            var damaged = new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "ARENA", 5000);
+            assertNull(damaged.get(restaurant));
+            assertFalse(damaged.contains(inaccessible));
+            Files.write(file.toPath(), Arrays.copyOf(bytes, 40));
+            assertNull(new PersistentRouteCache(file.toPath(), START, CENTRAL_AREA, noFlyZones, "ARENA", 5000).get(restaurant));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testExpansionBudgetBoundsSearchesReproducibly() throws RestaurantNotAccessibleException {
+        List<List<LngLat>> noFlyZones = List.of(SQUARE_ZONE);
+        var index = new NoFlyZoneIndex(noFlyZones);
+
+        // a Restaurant inside the zone is deemed inaccessible after exactly the budget, by the searches from the start,
+        // with every step of a jump of the pruned search counted against it
+        for (int variant = 0; variant < 3; variant++) {
+            var settings = new PlannerSettings();
+            settings.setSearchType(variant == 0 ? SearchType.NODES : SearchType.ARENA);
+            settings.setSymmetryPruning(variant == 2);
+            settings.setExpansionBudget(5000);
+            try {
+                DroneControl.calculatePathForOrder(new LngLat(-3.1900, 55.9405), CENTRAL_AREA, index, settings);
+                fail("Restaurant inside a No-Fly zone was found accessible.");
+            } catch (RestaurantNotAccessibleException e) {
+                assertEquals(5000L, settings.getMetrics().toJson().get("nodes_expanded"));
+            }
+        }
+
+        // anytime mode finds a path no longer than the first one, and with no budget left after it, the same path
+        var restaurant = new LngLat(-3.1940, 55.9380);
+        var settings = new PlannerSettings();
+        List<Node> path = DroneControl.calculatePathForOrder(restaurant, CENTRAL_AREA, index, settings);
+        long firstExpansions = (Long) settings.getMetrics().toJson().get("nodes_expanded");
+
+        var anytimeSettings = new PlannerSettings();
+        anytimeSettings.setAnytime(true);
+        List<Node> anytimePath = DroneControl.calculatePathForOrder(restaurant, CENTRAL_AREA, index, anytimeSettings);
+        assertTrue(anytimePath.size() <= path.size());
+        assertValidPath(anytimePath, START, restaurant, CENTRAL_AREA, noFlyZones);
+
+        anytimeSettings.setExpansionBudget(firstExpansions);
+        List<Node> budgetedPath = DroneControl.calculatePathForOrder(restaurant, CENTRAL_AREA, index, anytimeSettings);
+        assertEquals(path.size(), budgetedPath.size());
+        for (int i = 0; i < path.size(); i++) {
+            assertTrue(path.get(i).getCoordinate().sameCoordinates(budgetedPath.get(i).getCoordinate()));
+        }
+    }
+
+    public void testFleetPlannerSharesOrdersBetweenDrones() throws IOException {
+        Map<String, Restaurant> restaurants = readMenus(FLEET_MENUS);
+        var index = new NoFlyZoneIndex(new ArrayList<List<LngLat>>());
+        var routeCache = new RouteCache();
+
+        var settings = new PlannerSettings();
+        List<Order> singleOrders = fleetTestOrders();
+        Map<String, List<Node>> single = DroneControl.calculateDronesPath(singleOrders, restaurants, CENTRAL_AREA, index, routeCache, settings);
+        assertTrue(single.size() < singleOrders.size());
+
+        // a fleet of one delivers the same Orders along the same paths
+        List<FleetPlanner.DronePlan> one = FleetPlanner.planFleet(fleetTestOrders(), restaurants, CENTRAL_AREA, index, routeCache, settings);
+        assertEquals(1, one.size());
+        assertEquals(new ArrayList<>(single.keySet()), new ArrayList<>(one.get(0).orderPathMap().keySet()));
+
+        // a larger fleet delivers every Order exactly once, no Drone starts an Order over its limit, and every plan
+        // counts its moves like Route.moves()
+        settings.setFleetSize(3);
+        List<Order> fleetOrders = fleetTestOrders();
+        List<FleetPlanner.DronePlan> three = FleetPlanner.planFleet(fleetOrders, restaurants, CENTRAL_AREA, index, routeCache, settings);
+        assertEquals(3, three.size());
+
+        var delivered = new HashSet<String>();
+        for (FleetPlanner.DronePlan plan : three) {
+            int moves = 0;
+            for (List<Node> path : plan.orderPathMap().values()) {
+                assertTrue(moves <= 2000);
+                moves += path.size() - 1;
+                assertTrue(path.get(0).getCoordinate().sameCoordinates(path.get(path.size() - 1).getCoordinate()));
+            }
+            assertEquals(plan.moves(), moves);
+            for (String orderNo : plan.orderPathMap().keySet()) {
+                assertTrue(delivered.add(orderNo));
+            }
+        }
+        assertEquals(fleetOrders.size(), delivered.size());
+        assertTrue(fleetOrders.stream().allMatch(order -> order.getOrderOutcome() == OrderOutcome.Delivered));
+
+        // an interrupted fleet fails, instead of returning no plans for Orders that may already be Delivered
+        Thread.currentThread().interrupt();
+        try {
+            FleetPlanner.planFleet(fleetTestOrders(), restaurants, CENTRAL_AREA, index, routeCache, settings);
+            fail("An interrupted fleet must not complete.");
+        } catch (IllegalStateException e) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    public void testMoveBudgetSchedulerPacksMostOrdersWithinLimit() throws IOException {
+        String menus = "[{\"name\":\"A\",\"longitude\":-3.1940,\"latitude\":55.9380,\"menu\":[{\"name\":\"Margarita\",\"priceInPence\":1000}]},"
+                + "{\"name\":\"B\",\"longitude\":-3.1838,\"latitude\":55.9470,\"menu\":[{\"name\":\"Hawaiian\",\"priceInPence\":1200}]},"
+                + "{\"name\":\"C\",\"longitude\":-3.1900,\"latitude\":55.9450,\"menu\":[{\"name\":\"Calzone\",\"priceInPence\":1400}]}]";
+        Map<String, Restaurant> restaurants = readMenus(menus);
+
+        // round trips of 999, 500 and 700 moves
+        var routeCache = new RouteCache();
+        Map<String, Integer> moves = Map.of("A", 999, "B", 500, "C", 700);
+        for (Map.Entry<String, Integer> entry : moves.entrySet()) {
+            var path = new ArrayList<Node>();
+            for (int i = 0; i <= entry.getValue(); i++) {
+                path.add(new Node(new LngLat(0, 0), 0, null, 0, false));
+            }
+            int half = path.size() / 2;
+            routeCache.put(restaurants.get(entry.getKey()).getLocation(), new RouteCache.Route(path.subList(0, half), path.subList(half, path.size())));
+        }
+
+        var orders = new ArrayList<Order>();
+        for (String restaurantName : List.of("A", "B", "C", "B")) {
+            var order = new Order();
+            order.setOrderNo(String.format("%08d", orders.size()));
+            order.setRestaurantName(restaurantName);
+            order.setOrderOutcome(OrderOutcome.ValidButNotDelivered);
+            orders.add(order);
+        }
+
+        // the cheapest three fit into 2000 moves, the ranking of Restaurants would have started with A
+        List<Order> scheduled = MoveBudgetScheduler.schedule(orders, restaurants, routeCache, 2000);
+        assertEquals(List.of(orders.get(1), orders.get(3), orders.get(2)), scheduled);
+        assertEquals(List.of(orders.get(1), orders.get(3)), MoveBudgetScheduler.schedule(orders, restaurants, routeCache, 1699));
+        assertEquals(3, MoveBudgetScheduler.schedule(orders, restaurants, routeCache, 1700).size());
+
+        // two Drones deliver every Order, each within the limit
+        List<List<Order>> fleet = MoveBudgetScheduler.schedule(orders, restaurants, routeCache, 2000, 2);
+        assertEquals(List.of(orders.get(1), orders.get(2)), fleet.get(0));
+        assertEquals(List.of(orders.get(3), orders.get(0)), fleet.get(1));
+
+        // the Drone's path never goes over the limit, however many Orders there are
+        var manyOrders = new ArrayList<Order>();
+        for (int i = 0; i < 40; i++) {
+            var order = new Order();
+            order.setOrderNo(String.format("%08d", i));
+            order.setRestaurantName(i % 3 == 0 ? "A" : "B");
+            order.setOrderOutcome(OrderOutcome.ValidButNotDelivered);
+            manyOrders.add(order);
+        }
+        var settings = new PlannerSettings();
+        settings.setOrderScheduling(OrderScheduling.MOVE_BUDGET);
+        Map<String, List<Node>> paths = DroneControl.calculateDronesPath(manyOrders, restaurants, CENTRAL_AREA,
+                new NoFlyZoneIndex(new ArrayList<List<LngLat>>()), new RouteCache(), settings);
+        int flownMoves = 0;
+        for (List<Node> path : paths.values()) {
+            flownMoves += path.size() - 1;
+        }
+        assertFalse(paths.isEmpty());
+        assertTrue(flownMoves <= 2000);
+        // the metrics report the moves flown, not one more for every delivered Order
+        assertEquals((long) flownMoves, settings.getMetrics().toJson().get("moves_used"));
+    }
+
+    public void testIncrementalPlannerAppendsEveryOrderToValidFiles() throws IOException {
+        File file = File.createTempFile("appendable", ".json");
+        try (var array = new AppendableJsonArray(file.toPath(), "{\"list\":", "}")) {
+            assertEquals("{\"list\":[]}", Files.readString(file.toPath()));
+            array.appendAll("[1,2]".getBytes(StandardCharsets.UTF_8));
+            array.appendAll("[]".getBytes(StandardCharsets.UTF_8));
+            array.appendAll("[{\"a\":[3]}]".getBytes(StandardCharsets.UTF_8));
+            assertEquals("{\"list\":[1,2,{\"a\":[3]}]}", Files.readString(file.toPath()));
+        } finally {
+            file.delete();
+        }
+
+        Map<String, Restaurant> restaurants = readMenus(FLEET_MENUS);
+        String order = "{\"orderNo\":\"%s\",\"orderDate\":\"2023-01-01\",\"customer\":\"C\",\"creditCardNumber\":\"4000123412341234\",\"creditCardExpiry\":\"04/28\",\"cvv\":\"%s\",\"priceTotalInPence\":1100,\"orderItems\":[\"Margarita\"]}\n";
+        var stream = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            stream.append(String.format(order, String.format("%08d", i), i == 1 ? "12" : "123"));
+            // a malformed line and an Order of another date are skipped, and the Orders after them are still planned
+            if (i == 2) {
+                stream.append("{\"orderNo\":\"1A2B\",\"orderDate\":\n\n");
+                stream.append(String.format(order, "OTHERDAY", "123").replace("2023-01-01", "2023-01-02"));
+            }
+        }
+
+        String date = "2023-01-01";
+        var settings = new PlannerSettings();
+        var files = List.of(new File("deliveries-" + date + ".json"), new File("flightpath-" + date + ".json"), new File("drone-" + date + ".geojson"));
+        try {
+            var outcomes = new ArrayList<OrderOutcome>();
+            var refused = new ArrayList<String>();
+            var planner = new IncrementalPlanner(restaurants, CENTRAL_AREA, new ArrayList<List<LngLat>>(), date, settings);
+            try (planner) {
+                Order.readOrderStream(new ByteArrayInputStream(stream.toString().getBytes(StandardCharsets.UTF_8)), received -> {
+                    try {
+                        outcomes.add(planner.accept(received));
+                    } catch (IllegalArgumentException e) {
+                        refused.add(received.getOrderNo());
+                    } catch (IOException e) {
+                        fail(e.getMessage());
+                    }
+                });
+            }
+
+            assertEquals(30, outcomes.size());
+            assertEquals(List.of("OTHERDAY"), refused);
+            assertEquals(OrderOutcome.Delivered, outcomes.get(0));
+            assertEquals(OrderOutcome.InvalidCvv, outcomes.get(1));
+            assertEquals(OrderOutcome.ValidButNotDelivered, outcomes.get(29));
+            assertTrue(planner.getMovesLeft() >= 0);
+
+            // the files hold every planned Order, and the Drone flies exactly the moves it has used
+            var mapper = new ObjectMapper();
+            assertEquals(30, mapper.readTree(files.get(0)).size());
+            int delivered = (int) outcomes.stream().filter(outcome -> outcome == OrderOutcome.Delivered).count();
+            int moves = mapper.readTree(files.get(1)).size();
+            assertEquals(2000 - planner.getMovesLeft(), moves);
+            assertEquals(moves + delivered, mapper.readTree(files.get(2)).get("features").get(0).get("geometry").get("coordinates").size());
+
+            // closing the planner records the day's path, like a whole day planned at once
+            Map<String, Object> metrics = settings.getMetrics().toJson();
+            assertEquals(1L, metrics.get("planning_runs"));
+            assertEquals((long) delivered, metrics.get("orders_delivered"));
+            assertEquals((long) moves, metrics.get("moves_used"));
+        } finally {
+            files.forEach(File::delete);
+        }
+    }
+
+    /**
+     * Central Area of the tests, the one served by the REST-server.
+     */
+    private static final List<LngLat> CENTRAL_AREA = List.of(new LngLat(-3.192473, 55.946233), new LngLat(-3.192473, 55.942617),
+            new LngLat(-3.184319, 55.942617), new LngLat(-3.184319, 55.946233));
+
+    /**
+     * Start of the Drone, Appleton Tower.
+     */
+    private static final LngLat START = new LngLat(-3.186874, 55.944494);
+
+    /**
+     * No-Fly zone of a single square, on the way from the start to the Restaurant at (-3.1940, 55.9380).
+     */
+    private static final List<LngLat> SQUARE_ZONE = List.of(new LngLat(-3.1905, 55.9410), new LngLat(-3.1895, 55.9410),
+            new LngLat(-3.1895, 55.9400), new LngLat(-3.1905, 55.9400), new LngLat(-3.1905, 55.9410));
+
+    /**
+     * Centre of the cup.
+     */
+    private static final LngLat CUP_CENTRE = new LngLat(-3.1800, 55.9445);
+
+    /**
+     * No-Fly zone shaped like a cup, opening towards the start.
+     */
+    private static final List<LngLat> CUP = cup(CUP_CENTRE.lng(), CUP_CENTRE.lat());
+
+    /**
+     * Restaurant behind the cup, which a search from the start has to flood the cup to reach.
+     */
+    private static final LngLat BEHIND_CUP = new LngLat(CUP_CENTRE.lng() + 0.0015, CUP_CENTRE.lat());
+
+    /**
+     * Menus of two Restaurants at the same location, both selling the Margarita.
+     */
+    private static final String SHARED_ITEM_MENUS = "[{\"name\":\"A\",\"longitude\":0,\"latitude\":0,\"menu\":[{\"name\":\"Margarita\",\"priceInPence\":1000},{\"name\":\"Calzone\",\"priceInPence\":1400}]},"
+            + "{\"name\":\"B\",\"longitude\":0,\"latitude\":0,\"menu\":[{\"name\":\"Margarita\",\"priceInPence\":900},{\"name\":\"Hawaiian\",\"priceInPence\":1200}]}]";
+
+    /**
+     * Menus of the two Restaurants of the fleet test, "R" south-west and "S" north-east of the Central Area.
+     */
+    private static final String FLEET_MENUS = "[{\"name\":\"R\",\"longitude\":-3.1940,\"latitude\":55.9380,\"menu\":[{\"name\":\"Margarita\",\"priceInPence\":1000}]},"
+            + "{\"name\":\"S\",\"longitude\":-3.1838,\"latitude\":55.9470,\"menu\":[{\"name\":\"Hawaiian\",\"priceInPence\":1200}]}]";
+
+    /**
+     * @param x    Longitude of the centre of the cup.
+     * @param y    Latitude of the centre of the cup.
+     * @return     Cup shaped No-Fly zone, opening towards the west.
+     */
+    private static List<LngLat> cup(double x, double y) {
+        return List.of(new LngLat(x + 0.001, y - 0.001), new LngLat(x - 0.001, y - 0.001), new LngLat(x - 0.001, y - 0.0008),
+                new LngLat(x + 0.0008, y - 0.0008), new LngLat(x + 0.0008, y + 0.0008), new LngLat(x - 0.001, y + 0.0008),
+                new LngLat(x - 0.001, y + 0.001), new LngLat(x + 0.001, y + 0.001), new LngLat(x + 0.001, y - 0.001));
+    }
+
+    /**
+     * @param menus    Restaurants with their menus, as JSON served by the REST-server.
+     * @return         Restaurants by their names.
+     */
+    private static Map<String, Restaurant> readMenus(String menus) throws IOException {
+        return Restaurant.readRestaurants(new ByteArrayInputStream(menus.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return    Valid Orders from the two Restaurants of the fleet test, not yet delivered.
+     */
+    private static List<Order> fleetTestOrders() {
+        var orders = new ArrayList<Order>();
+        for (int i = 0; i < 40; i++) {
+            var order = new Order();
+            order.setOrderNo(String.format("%08d", i));
+            order.setRestaurantName(i % 4 == 0 ? "S" : "R");
+            order.setOrderOutcome(OrderOutcome.ValidButNotDelivered);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Asserts that every move of a path is a real move of the Drone, avoids the No-Fly zones and does not come back
+     * to the Central Area, and that the path leads from the start to close to the end.
+     */
+    private static void assertValidPath(List<Node> path, LngLat start, LngLat end, List<LngLat> CENTRAL_AREA, List<List<LngLat>> noFlyZones) {
+        assertTrue(path.get(0).getCoordinate().sameCoordinates(start));
+        boolean leftCentralArea = false;
+        for (int n = 1; n < path.size(); n++) {
+            LngLat from = path.get(n - 1).getCoordinate();
+            LngLat to = path.get(n).getCoordinate();
+            assertTrue(to.sameCoordinates(from.nextPosition(path.get(n).getDirectionFromParent())));
+            assertFalse(LngLat.lineCrossesNoFlyZone(from, to, noFlyZones));
+            assertFalse(to.pointInsideNoFlyZone(noFlyZones));
+            leftCentralArea |= !to.inCentralArea(CENTRAL_AREA);
+            assertFalse(leftCentralArea && to.inCentralArea(CENTRAL_AREA));
+        }
+        assertTrue(path.get(path.size() - 1).getCoordinate().closeTo(end));
+    }
 }